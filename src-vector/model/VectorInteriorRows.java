@@ -0,0 +1,103 @@
+package model;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Filters interior pixels of a direct convolution with the Vector API, one lane per pixel. The
+ * species are picked at run time: the widest double vectors the processor prefers, and int
+ * vectors of half their width so that there is an int lane for every double lane. Each lane does
+ * the same double multiplications, additions and truncations, in the same order, as
+ * Convolution.interiorPixel, so the results are identical to the scalar filter.
+ *
+ * <p>This class needs the jdk.incubator.vector module to compile and to run, and is only loaded
+ * through InteriorRows.load.
+ */
+final class VectorInteriorRows implements InteriorRows {
+
+  private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+  private static final double TWO_TO_52 = 0x1p52;
+  private static final VectorSpecies<Integer> INTS = VectorSpecies.of(int.class,
+      VectorShape.forBitSize(Math.max(64, DOUBLES.vectorBitSize() / 2)));
+
+  /**
+   * Constructor for the vector filter, refusing to make one where it would gain nothing.
+   *
+   * @throws UnsupportedOperationException if the processor has fewer than two double lanes
+   */
+  VectorInteriorRows() throws UnsupportedOperationException {
+    if (DOUBLES.length() < 2 || INTS.length() != DOUBLES.length()) {
+      throw new UnsupportedOperationException("No vector lanes for doubles");
+    }
+  }
+
+  @Override
+  public int filter(int[] src, int[] out, int from, int to, int[] tapOffsets, double[] weights,
+      boolean truncateTaps) {
+    int lanes = DOUBLES.length();
+    int index = from;
+    double[] sums = new double[3 * lanes];
+    for (; index + lanes <= to; index += lanes) {
+      DoubleVector red = DoubleVector.zero(DOUBLES);
+      DoubleVector green = DoubleVector.zero(DOUBLES);
+      DoubleVector blue = DoubleVector.zero(DOUBLES);
+      for (int tap = 0; tap < weights.length; tap++) {
+        IntVector rgb = IntVector.fromArray(INTS, src, index + tapOffsets[tap]);
+        double weight = weights[tap];
+        red = red.add(channel(rgb, 16).mul(weight));
+        green = green.add(channel(rgb, 8).mul(weight));
+        blue = blue.add(channel(rgb, 0).mul(weight));
+        if (truncateTaps) {
+          // the running totals of the scalar filter are ints, truncated after every tap
+          red = truncate(red);
+          green = truncate(green);
+          blue = truncate(blue);
+        }
+      }
+      if (!truncateTaps) {
+        red = red.add(SeparableConvolution.ROUNDING_SLACK);
+        green = green.add(SeparableConvolution.ROUNDING_SLACK);
+        blue = blue.add(SeparableConvolution.ROUNDING_SLACK);
+      }
+      // the int casts are done lane by lane, as C2 does not compile double to int vector casts
+      red.intoArray(sums, 0);
+      green.intoArray(sums, lanes);
+      blue.intoArray(sums, 2 * lanes);
+      for (int lane = 0; lane < lanes; lane++) {
+        out[index + lane] = PackedImage.pack((int) sums[lane], (int) sums[lanes + lane],
+            (int) sums[2 * lanes + lane]);
+      }
+    }
+    return index;
+  }
+
+  /**
+   * unpacks one channel of packed pixels as doubles.
+   *
+   * @param rgb   the packed pixels
+   * @param shift the position of the channel in a packed pixel
+   * @return the channel of every pixel
+   */
+  private static DoubleVector channel(IntVector rgb, int shift) {
+    return (DoubleVector) rgb.lanewise(VectorOperators.LSHR, shift).and(0xFF)
+        .convertShape(VectorOperators.I2D, DOUBLES, 0);
+  }
+
+  /**
+   * truncates every lane towards zero, as a cast to int does. Adding and taking away 2^52 rounds a
+   * magnitude below 2^52 to the nearest whole number exactly, and a magnitude that was rounded up
+   * is stepped back down, so no lane goes through a double to int cast.
+   *
+   * @param values the values to truncate, each of magnitude below 2^52
+   * @return the truncated values
+   */
+  private static DoubleVector truncate(DoubleVector values) {
+    DoubleVector magnitude = values.abs();
+    DoubleVector rounded = magnitude.add(TWO_TO_52).sub(TWO_TO_52);
+    DoubleVector floor = rounded.sub(1, rounded.compare(VectorOperators.GT, magnitude));
+    return floor.blend(floor.neg(), values.compare(VectorOperators.LT, 0));
+  }
+}
@@ -0,0 +1,122 @@
+package controller;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.FileImageOutputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Writes BufferedImages through ImageIO in the format named by the extension of the file: jpg or
+ * jpeg, png, bmp, gif, or any other format ImageIO has a writer for. A file whose extension names
+ * no format is written as a JPEG, as every file that was not a PPM always was. JPEG files are
+ * written at the quality of the save options and never progressive, and PNG files at their deflate
+ * level.
+ *
+ * <p>ImageWriters are kept once they are made and reused for later files of the same format. A
+ * writer can only write one file at a time, so each format has a pool of idle writers that files
+ * being written at the same time borrow from.
+ */
+final class ImageEncoder {
+
+  private static final Map<String, Queue<ImageWriter>> IDLE = new ConcurrentHashMap<>();
+
+  private ImageEncoder() {
+  }
+
+  /**
+   * gets the ImageIO format name for the extension of the supplied file name.
+   *
+   * @param name the name of the file
+   * @return the suffix that names the format, or "jpg" if there is none ImageIO can write
+   */
+  static String formatOf(String name) {
+    int dot = name.lastIndexOf('.');
+    String suffix = dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+    if (suffix.isEmpty() || !ImageIO.getImageWritersBySuffix(suffix).hasNext()) {
+      return "jpg";
+    }
+    return suffix;
+  }
+
+  /**
+   * writes the supplied image to the supplied file, replacing anything already in it, in the
+   * format named by the file's extension.
+   *
+   * @param image   the image to write
+   * @param file    the file to write to
+   * @param options the quality of JPEG files and the deflate level of PNG files
+   * @throws IOException if the image cannot be written
+   */
+  static void write(BufferedImage image, File file, SaveOptions options) throws IOException {
+    String format = formatOf(file.getName());
+    ImageWriter writer = borrow(format);
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        ImageOutputStream out = new FileImageOutputStream(raf)) {
+      raf.setLength(0);
+      writer.setOutput(out);
+      writer.write(null, new IIOImage(image, null, null), param(writer, format, options));
+    } finally {
+      writer.reset();
+      IDLE.get(format).add(writer);
+    }
+  }
+
+  /**
+   * takes an idle writer for the supplied format from its pool, or makes one if none is idle.
+   *
+   * @param format the suffix that names the format
+   * @return a writer for the format
+   * @throws IOException if ImageIO has no writer for the format
+   */
+  private static ImageWriter borrow(String format) throws IOException {
+    ImageWriter writer = IDLE.computeIfAbsent(format, f -> new ConcurrentLinkedQueue<>()).poll();
+    if (writer != null) {
+      return writer;
+    }
+    Iterator<ImageWriter> writers = ImageIO.getImageWritersBySuffix(format);
+    if (!writers.hasNext()) {
+      throw new IOException("No writer for " + format);
+    }
+    return writers.next();
+  }
+
+  /**
+   * builds the parameters the supplied writer writes a file with.
+   *
+   * @param writer  the writer
+   * @param format  the suffix that names the format
+   * @param options the quality of JPEG files and the deflate level of PNG files
+   * @return the parameters
+   */
+  private static ImageWriteParam param(ImageWriter writer, String format, SaveOptions options) {
+    ImageWriteParam param = writer.getDefaultWriteParam();
+    boolean jpeg = format.equals("jpg") || format.equals("jpeg");
+    if (jpeg && param.canWriteProgressive()) {
+      param.setProgressiveMode(ImageWriteParam.MODE_DISABLED);
+    }
+    if (jpeg && options.getJpegQuality() != SaveOptions.DEFAULT) {
+      param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+      param.setCompressionQuality(options.getJpegQuality() / 100f);
+    }
+    if (format.equals("png") && options.getPngLevel() != SaveOptions.DEFAULT
+        && param.canWriteCompressed()) {
+      // the PNG writer deflates at level (int) (9 * (1 - quality))
+      param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+      param.setCompressionQuality(options.getPngLevel() == 9 ? 0f
+          : 1f - (options.getPngLevel() + 0.5f) / 9f);
+    }
+    return param;
+  }
+}
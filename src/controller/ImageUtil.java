@@ -1,28 +1,38 @@
 package controller;
 
-import java.awt.Color;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Scanner;
+import java.util.function.BiFunction;
 import javax.imageio.ImageIO;
 import model.BlurFilter;
+import model.BoxBlurFilter;
+import model.EdgeMode;
+import model.GaussianBlurFilter;
 import model.GreyScaleFilter;
 import model.IImage;
 import model.IKernel;
 import model.IModel;
-import model.Image;
+import model.ImageRasters;
 import model.MultiLayerIModel;
-import model.Pixel;
+import model.PackedImage;
+import model.Region;
+import model.RepeatedFilter;
 import model.SepiaFilter;
 import model.SharpenFilter;
 import model.SimpleMultiLayerModel;
+import model.StackedBoxBlurFilter;
+import model.StreamingFilter;
 
 /**
  * This class contains utility methods to read a PPM image from file and simply print its contents.
@@ -85,15 +95,37 @@ public class ImageUtil {
    * @param sc the scanner to be used
    */
   public static void batchCommand(Scanner sc, MultiLayerIModel model) {
+    // consecutive color processing commands on one layer are held back and applied in one pass
+    List<IKernel> pendingColors = new ArrayList<>();
+    String pendingLayer = null;
+    boolean exactColors = true;
+    Region region = null;
+    PNMFormat format = PNMFormat.PLAIN;
+    int jpegQuality = SaveOptions.DEFAULT;
+    int pngLevel = SaveOptions.DEFAULT;
+    boolean lazy = model != null && model.isLazy();
+
     while (sc.hasNextLine()) {
       String line = sc.nextLine();
       System.out.println(line);
       String[] wordList = line.split(" ");
 
+      boolean colorCommand = wordList[0].equals("sepia") || wordList[0].equals("greyscale");
+      if (!pendingColors.isEmpty()
+          && (!colorCommand || !wordList[1].equals(pendingLayer))) {
+        model = batchApply(pendingLayer, model, pendingColors, exactColors, region);
+        pendingColors = new ArrayList<>();
+      }
+
       switch (wordList[0]) {
         case "load":
+          if (wordList[1].endsWith(ProjectFile.EXTENSION)) {
+            model = openProject(wordList[1], SimpleMultiLayerModel::new);
+            break;
+          }
           List<IImage> imageList1 = ImageUtil.readFile(wordList[1]);
           model = new SimpleMultiLayerModel("layer1", imageList1.get(0));
+          model.setLazy(lazy);
           for (int i = 1; i < imageList1.size(); i++) {
             model.addLayer("layer" + (i + 1), imageList1.get(i));
           }
@@ -102,24 +134,114 @@ public class ImageUtil {
           if (model == null || model.numLayers() < 1) {
             break;
           }
+          if (wordList[1].endsWith(ProjectFile.EXTENSION)) {
+            saveProject(model, wordList[1]);
+            break;
+          }
           ArrayList<IModel> imageModelList3 = model.getLayers();
           ArrayList<IImage> imageList3 = new ArrayList<>();
           for (IModel mod : imageModelList3) {
             imageList3.add(mod.getImage());
           }
-          writeFile(imageList3, wordList[1]);
+          writeFile(imageList3, wordList[1], new SaveOptions(format, jpegQuality, pngLevel));
+          break;
+        case "thumbnail":
+          if (model == null || model.numLayers() < 1) {
+            throw new IllegalStateException("No file loaded");
+          }
+          writeFile(Collections.singletonList(model.preview(Integer.parseInt(wordList[1]),
+              Integer.parseInt(wordList[2]))), wordList[3],
+              new SaveOptions(format, jpegQuality, pngLevel));
           break;
         case "blur":
-          model = batchApply(wordList[1], model, new BlurFilter());
+          for (IKernel pass : RepeatedFilter.passes(new BlurFilter(), repeats(wordList))) {
+            model = batchApply(wordList[1], model, pass, region);
+          }
           break;
         case "sharpen":
-          model = batchApply(wordList[1], model, new SharpenFilter());
+          for (IKernel pass : RepeatedFilter.passes(new SharpenFilter(), repeats(wordList))) {
+            model = batchApply(wordList[1], model, pass, region);
+          }
+          break;
+        case "boxBlur":
+          model = batchApply(wordList[1], model, new BoxBlurFilter(Integer.parseInt(wordList[2])),
+              region);
+          break;
+        case "stackedBlur":
+          model = batchApply(wordList[1], model, new StackedBoxBlurFilter(
+              Integer.parseInt(wordList[2]), Integer.parseInt(wordList[3])), region);
+          break;
+        case "gaussianBlur":
+          model = batchApply(wordList[1], model,
+              new GaussianBlurFilter(Double.parseDouble(wordList[2])), region);
+          break;
+        case "region":
+          if (wordList[1].equals("all")) {
+            region = null;
+          } else if (wordList.length == 5) {
+            region = new Region(Integer.parseInt(wordList[1]), Integer.parseInt(wordList[2]),
+                Integer.parseInt(wordList[3]), Integer.parseInt(wordList[4]));
+          } else {
+            throw new IllegalArgumentException("Invalid region");
+          }
+          break;
+        case "stream":
+          stream(wordList, exactColors, format);
+          break;
+        case "ppmFormat":
+          if (wordList[1].equals("plain")) {
+            format = PNMFormat.PLAIN;
+          } else if (wordList[1].equals("binary")) {
+            format = PNMFormat.BINARY;
+          } else {
+            throw new IllegalArgumentException("Invalid PPM format");
+          }
+          break;
+        case "jpegQuality":
+          jpegQuality = saveSetting(wordList, 1, 100);
+          break;
+        case "pngLevel":
+          pngLevel = saveSetting(wordList, 0, 9);
           break;
         case "sepia":
-          model = batchApply(wordList[1], model, new SepiaFilter());
+          pendingLayer = wordList[1];
+          for (int i = 0; i < repeats(wordList); i++) {
+            pendingColors.add(new SepiaFilter());
+          }
           break;
         case "greyscale":
-          model = batchApply(wordList[1], model, new GreyScaleFilter());
+          pendingLayer = wordList[1];
+          for (int i = 0; i < repeats(wordList); i++) {
+            pendingColors.add(new GreyScaleFilter());
+          }
+          break;
+        case "lazy":
+          if (wordList[1].equals("on")) {
+            lazy = true;
+          } else if (wordList[1].equals("off")) {
+            lazy = false;
+          } else {
+            throw new IllegalArgumentException("Invalid lazy mode");
+          }
+          if (model != null) {
+            model.setLazy(lazy);
+          }
+          break;
+        case "evaluate":
+          if (model != null) {
+            model.evaluate();
+          } else {
+            throw new IllegalStateException("No file loaded");
+          }
+          break;
+        case "colorFusion":
+          if (wordList[1].equals("exact")) {
+            exactColors = true;
+          } else if (wordList[1].equals("fused")) {
+            exactColors = false;
+          } else {
+            throw new IllegalArgumentException("Invalid color fusion mode");
+          }
           break;
         case "addLayerFromFile":
           List<IImage> imageList2 = readFile(wordList[1]);
@@ -131,6 +253,13 @@ public class ImageUtil {
             }
           }
           break;
+        case "duplicateLayer":
+          if (model != null) {
+            model.duplicateLayer(wordList[1], wordList[2]);
+          } else {
+            throw new IllegalStateException("No file loaded");
+          }
+          break;
         case "removeLayer":
           if (model != null) {
             model.removeLayer(wordList[1]);
@@ -156,6 +285,114 @@ public class ImageUtil {
           throw new IllegalArgumentException("Invalid command");
       }
     }
+    if (!pendingColors.isEmpty()) {
+      batchApply(pendingLayer, model, pendingColors, exactColors, region);
+    }
+  }
+
+  /**
+   * runs a stream command, which filters or color processes a PPM file straight into another PPM
+   * file, a few rows at a time, without loading either image or touching the model.
+   *
+   * @param wordList    the words of the command: stream, the operation, the input and output
+   *                    files, and optionally the number of times to apply the operation
+   * @param exactColors whether chains of color processing kernels clamp after every kernel
+   * @param format      whether to write a plain or binary output file
+   * @throws IllegalArgumentException if the command is incomplete or the operation unknown
+   */
+  private static void stream(String[] wordList, boolean exactColors, PNMFormat format)
+      throws IllegalArgumentException {
+    if (wordList.length < 4) {
+      throw new IllegalArgumentException("stream needs an operation, an input and an output file");
+    }
+    int times = repeats(wordList, 4);
+    switch (wordList[1]) {
+      case "blur":
+        streamFilter(wordList[2], wordList[3], RepeatedFilter.passes(new BlurFilter(), times),
+            format);
+        break;
+      case "sharpen":
+        streamFilter(wordList[2], wordList[3], RepeatedFilter.passes(new SharpenFilter(), times),
+            format);
+        break;
+      case "sepia":
+        streamColors(wordList[2], wordList[3],
+            Collections.nCopies(times, new SepiaFilter()), exactColors, format);
+        break;
+      case "greyscale":
+        streamColors(wordList[2], wordList[3],
+            Collections.nCopies(times, new GreyScaleFilter()), exactColors, format);
+        break;
+      default:
+        throw new IllegalArgumentException("Invalid stream operation");
+    }
+  }
+
+  /**
+   * reads the value of a jpegQuality or pngLevel command: a number in the supplied range, or
+   * "default" for the encoder's own default.
+   *
+   * @param wordList the words of the command
+   * @param min      the smallest value allowed
+   * @param max      the largest value allowed
+   * @return the value of the setting, or SaveOptions.DEFAULT
+   * @throws IllegalArgumentException if the value is missing, not a number or out of range
+   */
+  private static int saveSetting(String[] wordList, int min, int max)
+      throws IllegalArgumentException {
+    if (wordList.length < 2) {
+      throw new IllegalArgumentException(wordList[0] + " needs a value");
+    }
+    if (wordList[1].equals("default")) {
+      return SaveOptions.DEFAULT;
+    }
+    int value;
+    try {
+      value = Integer.parseInt(wordList[1]);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(wordList[0] + " must be a number or default");
+    }
+    if (value < min || value > max) {
+      throw new IllegalArgumentException(wordList[0] + " must be from " + min + " to " + max);
+    }
+    return value;
+  }
+
+  /**
+   * gets the number of times a filter command should be applied: the optional number after the
+   * layer name, or once if there is none.
+   *
+   * @param wordList the words of the command
+   * @return the number of times to apply the filter
+   * @throws IllegalArgumentException if the number is not a positive integer
+   */
+  private static int repeats(String[] wordList) throws IllegalArgumentException {
+    return repeats(wordList, 2);
+  }
+
+  /**
+   * gets the number of times a command should be applied: the optional number at the supplied
+   * position of the command, or once if there is none.
+   *
+   * @param wordList the words of the command
+   * @param index    the position of the number in the command
+   * @return the number of times to apply the command
+   * @throws IllegalArgumentException if the number is not a positive integer
+   */
+  private static int repeats(String[] wordList, int index) throws IllegalArgumentException {
+    if (wordList.length <= index) {
+      return 1;
+    }
+    int times;
+    try {
+      times = Integer.parseInt(wordList[index]);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Number of times must be an integer");
+    }
+    if (times < 1) {
+      throw new IllegalArgumentException("Number of times must be positive");
+    }
+    return times;
   }
 
   /**
@@ -178,6 +415,80 @@ public class ImageUtil {
     }
   }
 
+  /**
+   * If the model is not null applies the given chain of color processing kernels to the given
+   * layer in a single pass, otherwise throws an illegalStateException to the caller.
+   *
+   * @param name    Name of the specified layer
+   * @param model   Model containing the layer
+   * @param kernels Color processing kernels being applied, in order
+   * @param exact   whether to clamp colors after every kernel, exactly as separate commands would
+   * @return Updated model with the kernels applied to the given layer
+   */
+  public static MultiLayerIModel batchApply(String name, MultiLayerIModel model,
+      List<IKernel> kernels, boolean exact) {
+    if (model != null) {
+      model.setCurrent(name);
+      model.removeLayer(name);
+      model.addLayer(name, model.applyColorProcessing(kernels, exact));
+      return model;
+    } else {
+      throw new IllegalStateException("No file loaded");
+    }
+  }
+
+  /**
+   * If the model is not null applies the given kernel to a region of the given layer, or to all of
+   * it if the region is null, otherwise throws an illegalStateException to the caller.
+   *
+   * @param name   Name of the specified layer
+   * @param model  Model containing the layer
+   * @param kernel Filter Kernel that is being applied
+   * @param region the part of the layer to filter, or null for the whole layer
+   * @return Updated model with the kernel applied to the region of the given layer
+   */
+  public static MultiLayerIModel batchApply(String name, MultiLayerIModel model, IKernel kernel,
+      Region region) {
+    if (region == null) {
+      return batchApply(name, model, kernel);
+    }
+    if (model != null) {
+      model.setCurrent(name);
+      model.removeLayer(name);
+      model.addLayer(name, model.applyFilter(kernel, EdgeMode.ZERO, region));
+      return model;
+    } else {
+      throw new IllegalStateException("No file loaded");
+    }
+  }
+
+  /**
+   * If the model is not null applies the given chain of color processing kernels to a region of
+   * the given layer, or to all of it if the region is null, otherwise throws an
+   * illegalStateException to the caller.
+   *
+   * @param name    Name of the specified layer
+   * @param model   Model containing the layer
+   * @param kernels Color processing kernels being applied, in order
+   * @param exact   whether to clamp colors after every kernel, exactly as separate commands would
+   * @param region  the part of the layer to process, or null for the whole layer
+   * @return Updated model with the kernels applied to the region of the given layer
+   */
+  public static MultiLayerIModel batchApply(String name, MultiLayerIModel model,
+      List<IKernel> kernels, boolean exact, Region region) {
+    if (region == null) {
+      return batchApply(name, model, kernels, exact);
+    }
+    if (model != null) {
+      model.setCurrent(name);
+      model.removeLayer(name);
+      model.addLayer(name, model.applyColorProcessing(kernels, exact, region));
+      return model;
+    } else {
+      throw new IllegalStateException("No file loaded");
+    }
+  }
+
   /**
    * Reads a file and returns the contents as a IImage.
    *
@@ -193,7 +504,9 @@ public class ImageUtil {
       throw new IllegalArgumentException("Cannot read from empty path");
     } else if (filename.endsWith(".txt")) {
       return readMultiImages(filename);
-    } else if (filename.endsWith(".ppm")) {
+    } else if (filename.endsWith(ProjectFile.EXTENSION)) {
+      return ProjectFile.readImages(filename);
+    } else if (filename.endsWith(".ppm") || filename.endsWith(".pgm")) {
       result.add(ppmToImage(filename));
     } else {
       try {
@@ -205,84 +518,222 @@ public class ImageUtil {
       if (img == null) {
         throw new IllegalArgumentException("Cannot read this file");
       }
-
-      ArrayList<Pixel> pixelList = new ArrayList<>();
-
-      for (int h = 0; h < img.getHeight(); h++) {
-        for (int w = 0; w < img.getWidth(); w++) {
-          Color c = new Color(img.getRGB(w, h));
-          pixelList.add(new Pixel(c.getRed(), c.getGreen(), c.getBlue()));
-        }
-      }
-      result.add(new Image(img.getWidth(), img.getHeight(), pixelList));
+      result.add(ImageRasters.fromBufferedImage(img));
     }
     return result;
   }
 
   /**
-   * method that reads a text file path and creates a multi layer image model from it.
+   * method that reads a text file path and creates a multi layer image model from it. The layers
+   * are decoded at the same time, and are returned in the order the file lists them.
    *
    * @param filepath Path to the text file that holds the locations of all the layer files
    * @return a list of IImage of all the layers of the multiImage
    */
   public static List<IImage> readMultiImages(String filepath) {
 
-    Scanner sc;
-    List<IImage> result = new ArrayList<>();
-    try {
-      sc = new Scanner(new FileInputStream(filepath));
+    List<String> paths = new ArrayList<>();
+    try (Scanner sc = new Scanner(new FileInputStream(filepath))) {
+      while (sc.hasNextLine()) {
+        paths.add(sc.nextLine());
+      }
     } catch (FileNotFoundException e) {
       throw new IllegalArgumentException("File not found!");
     }
-    while (sc.hasNextLine()) {
-      String s = sc.nextLine();
-      result.add(readFile(s).get(0));
+    return LayerTasks.map(paths.size(), i -> readFile(paths.get(i)).get(0));
+  }
+
+  /**
+   * opens a project file as a new multi layer image model, with the names and transparency of its
+   * layers and its current layer as they were saved. Only the index of the file is read here; each
+   * layer is decoded the first time its pixels are read.
+   *
+   * @param filename the path of the project file
+   * @param newModel makes a model from the name and image of its first layer
+   * @param <M>      the type of model to open the project as
+   * @return the model of the project
+   * @throws IllegalArgumentException if the file is missing or is not a project file
+   */
+  public static <M extends MultiLayerIModel> M openProject(String filename,
+      BiFunction<String, IImage, M> newModel) throws IllegalArgumentException {
+    if (filename == null || newModel == null) {
+      throw new IllegalArgumentException("Cannot read from empty path");
     }
-    return result;
+    return ProjectFile.read(filename, newModel);
   }
 
   /**
-   * Read an image file in the PPM format and print the colors.
+   * saves every layer of the supplied model to one project file, keeping the names and
+   * transparency of its layers and its current layer.
+   *
+   * @param model the model to save
+   * @param name  the path of the project file
+   * @throws IllegalArgumentException if the model has no layers or the path is empty
+   */
+  public static void saveProject(MultiLayerIModel model, String name)
+      throws IllegalArgumentException {
+    if (name == null || name.equals("")) {
+      throw new IllegalArgumentException("Cannot write image to empty path");
+    }
+    ProjectFile.write(model, name);
+  }
+
+  /**
+   * Reads an image file in the PPM or PGM format, plain or binary, into an IImage.
    *
    * @param filename the path of the file.
+   * @return the image in the file
    * @throws IllegalArgumentException when the file is invalid
    */
   public static IImage ppmToImage(String filename) throws IllegalArgumentException {
-    Scanner sc;
-    try {
-      sc = new Scanner(new FileInputStream(filename));
-    } catch (FileNotFoundException e) {
-      throw new IllegalArgumentException("File not found!");
-    }
-    StringBuilder builder = new StringBuilder();
-    //read the file line by line, and populate a string. This will throw away any comment lines
-    while (sc.hasNextLine()) {
-      String s = sc.nextLine();
-      if (s.charAt(0) != '#') {
-        builder.append(s + System.lineSeparator());
+    try (PNMReader in = new PNMReader(filename)) {
+      int width = in.getWidth();
+      int[] pixels = new int[width * in.getHeight()];
+      int[] row = new int[width];
+      for (int i = 0; i < in.getHeight(); i++) {
+        in.readRow(row);
+        System.arraycopy(row, 0, pixels, width * i, width);
       }
+      return new PackedImage(width, in.getHeight(), pixels);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Failed To Read File");
     }
-    //now set up the scanner to read from the string we just built
-    sc = new Scanner(builder.toString());
-    String token;
-    token = sc.next();
-    if (!token.equals("P3")) {
-      throw new IllegalArgumentException("Invalid PPM file: plain RAW file should begin with P3");
+  }
+
+  /**
+   * filters a PPM file by the supplied kernel into another PPM file, reading and writing one row at
+   * a time, so that images larger than the available memory can be filtered. Pixels past the
+   * border of the image are treated as black, as when filtering a layer.
+   *
+   * @param input  the path of the PPM file to read
+   * @param output the path of the PPM file to write
+   * @param kernel the kernel to filter by
+   * @throws IllegalArgumentException if the input file is missing or invalid
+   * @throws IllegalStateException    if the output file cannot be written
+   */
+  public static void streamFilter(String input, String output, IKernel kernel)
+      throws IllegalArgumentException {
+    streamFilter(input, output, kernel, PNMFormat.PLAIN);
+  }
+
+  /**
+   * filters a PPM or PGM file by the supplied kernel into another file, reading and writing one row
+   * at a time, and writing the output in the supplied format.
+   *
+   * @param input  the path of the file to read
+   * @param output the path of the file to write
+   * @param kernel the kernel to filter by
+   * @param format whether to write plain or binary samples
+   * @throws IllegalArgumentException if the input file is missing or invalid
+   * @throws IllegalStateException    if the output file cannot be written
+   */
+  public static void streamFilter(String input, String output, IKernel kernel, PNMFormat format)
+      throws IllegalArgumentException {
+    streamFilter(input, output, Collections.singletonList(kernel), format);
+  }
+
+  /**
+   * filters a PPM or PGM file by each of the supplied kernels in turn into another file, passing
+   * the rows each filter finishes straight on to the next one, so that no intermediate image is
+   * held or written, and writing the output in the supplied format.
+   *
+   * @param input   the path of the file to read
+   * @param output  the path of the file to write
+   * @param kernels the kernels to filter by, in order
+   * @param format  whether to write plain or binary samples
+   * @throws IllegalArgumentException if the input file is missing or invalid
+   * @throws IllegalStateException    if the output file cannot be written
+   */
+  public static void streamFilter(String input, String output, List<IKernel> kernels,
+      PNMFormat format) throws IllegalArgumentException {
+    streamPPM(input, output, format, (width, height) -> {
+      List<StreamingFilter> stages = new ArrayList<>();
+      for (IKernel kernel : kernels) {
+        stages.add(StreamingFilter.filter(kernel, EdgeMode.ZERO, width, height));
+      }
+      return stages;
+    });
+  }
+
+  /**
+   * applies a chain of color processing kernels to a PPM file, writing the result to another PPM
+   * file one row at a time.
+   *
+   * @param input   the path of the PPM file to read
+   * @param output  the path of the PPM file to write
+   * @param kernels the color processing kernels to apply, in order
+   * @param exact   whether to clamp colors after every kernel, exactly as separate commands would
+   * @throws IllegalArgumentException if the input file is missing or invalid
+   * @throws IllegalStateException    if the output file cannot be written
+   */
+  public static void streamColors(String input, String output, List<IKernel> kernels,
+      boolean exact) throws IllegalArgumentException {
+    streamColors(input, output, kernels, exact, PNMFormat.PLAIN);
+  }
+
+  /**
+   * applies a chain of color processing kernels to a PPM or PGM file, writing the result to another
+   * file one row at a time, in the supplied format.
+   *
+   * @param input   the path of the file to read
+   * @param output  the path of the file to write
+   * @param kernels the color processing kernels to apply, in order
+   * @param exact   whether to clamp colors after every kernel, exactly as separate commands would
+   * @param format  whether to write plain or binary samples
+   * @throws IllegalArgumentException if the input file is missing or invalid
+   * @throws IllegalStateException    if the output file cannot be written
+   */
+  public static void streamColors(String input, String output, List<IKernel> kernels,
+      boolean exact, PNMFormat format) throws IllegalArgumentException {
+    streamPPM(input, output, format, (width, height) -> Collections.singletonList(
+        StreamingFilter.colorProcessing(kernels, exact, width, height)));
+  }
+
+  /**
+   * reads a PPM or PGM file row by row into a chain of streams built for its size, each handing the
+   * rows it finishes to the next, and writes each row the last stream hands back to the output file
+   * as soon as it is finished, as a PGM file if its name ends in .pgm and a PPM file otherwise.
+   *
+   * @param input  the path of the file to read
+   * @param output the path of the file to write
+   * @param format whether to write plain or binary samples
+   * @param start  builds the streams for an image of the given width and height, in order
+   * @throws IllegalArgumentException if the input file is missing or invalid
+   * @throws IllegalStateException    if the output file cannot be written
+   */
+  private static void streamPPM(String input, String output, PNMFormat format,
+      BiFunction<Integer, Integer, List<StreamingFilter>> start) throws IllegalArgumentException {
+    if (output == null || output.equals("")) {
+      throw new IllegalArgumentException("Cannot write image to empty path");
     }
-    int width = sc.nextInt();
-    int height = sc.nextInt();
-    // dispose of the max Color value
-    sc.nextInt();
-    ArrayList<Pixel> pixels = new ArrayList<>();
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        int r = sc.nextInt();
-        int g = sc.nextInt();
-        int b = sc.nextInt();
-        pixels.add(new Pixel(r, g, b));
+    try (PNMReader in = new PNMReader(input)) {
+      int width = in.getWidth();
+      int height = in.getHeight();
+      List<StreamingFilter> stages = start.apply(width, height);
+      try (PNMWriter out = new PNMWriter(openChannel(output), width, height, format,
+          output.endsWith(".pgm"))) {
+        int[] row = new int[width];
+        for (int i = 0; i < height; i++) {
+          in.readRow(row);
+          List<int[]> finished = Collections.singletonList(row);
+          for (StreamingFilter stage : stages) {
+            List<int[]> next = new ArrayList<>();
+            for (int[] done : finished) {
+              next.addAll(stage.addRow(done));
+            }
+            finished = next;
+          }
+          for (int[] done : finished) {
+            out.writeRow(done);
+          }
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException("Failed To Write To File");
       }
+      System.out.println("Successfully Wrote To File");
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Failed To Read File");
     }
-    return new Image(width, height, pixels);
   }
 
   /**
@@ -293,6 +744,35 @@ public class ImageUtil {
    */
   // should no longer take in IImage - should work with some sort of list
   public static void writeFile(List<IImage> imageList, String name) {
+    writeFile(imageList, name, new SaveOptions());
+  }
+
+  /**
+   * takes in a list of images from a multi layer image model and writes it to a file, writing any
+   * PPM or PGM files in the supplied format.
+   *
+   * @param imageList the list of images to make a file out of
+   * @param name      the name of the file to write
+   * @param format    whether PPM and PGM files are written with plain or binary samples
+   */
+  public static void writeFile(List<IImage> imageList, String name, PNMFormat format) {
+    writeFile(imageList, name, new SaveOptions(format, SaveOptions.DEFAULT, SaveOptions.DEFAULT));
+  }
+
+  /**
+   * takes in a list of images from a multi layer image model and writes it to a file, in the
+   * format named by the file's extension and encoded with the supplied options. The layers of a
+   * multi layer image are encoded at the same time, and the text file listing them is written once
+   * they all have been.
+   *
+   * @param imageList the list of images to make a file out of
+   * @param name      the name of the file to write
+   * @param options   how PPM, PGM, JPEG and PNG files are encoded
+   */
+  public static void writeFile(List<IImage> imageList, String name, SaveOptions options) {
+    if (options == null) {
+      throw new IllegalArgumentException("Null options provided");
+    }
     if (imageList == null || imageList.size() == 0) {
       throw new IllegalArgumentException("No Image Provided");
     }
@@ -301,16 +781,17 @@ public class ImageUtil {
       throw new IllegalArgumentException("Cannot write image to empty path");
     }
 
-    if (imageList.size() == 1) {
-      ImageUtil.writeSingleFile(imageList.get(0), name);
+    if (name.endsWith(ProjectFile.EXTENSION)) {
+      ProjectFile.write(imageList, name);
+    } else if (imageList.size() == 1) {
+      ImageUtil.writeSingleFile(imageList.get(0), name, options);
     } else if (imageList.size() > 1) {
       String[] nameAsArray = name.split("\\.");
-      List<String> pathList = new ArrayList<>();
-      for (int i = 0; i < imageList.size(); i++) {
+      List<String> pathList = LayerTasks.map(imageList.size(), i -> {
         String fileName = nameAsArray[0] + "image" + (i + 1) + "." + nameAsArray[1];
-        writeSingleFile(imageList.get(i), fileName);
-        pathList.add(fileName);
-      }
+        writeSingleFile(imageList.get(i), fileName, options);
+        return fileName;
+      });
       try (PrintWriter out = new PrintWriter(nameAsArray[0] + "Path.txt")) {
         for (String s : pathList) {
           out.println(s);
@@ -321,9 +802,11 @@ public class ImageUtil {
     }
   }
 
-  private static void writeSingleFile(IImage image, String name) {
+  private static void writeSingleFile(IImage image, String name, SaveOptions options) {
     if (name.endsWith(".ppm")) {
-      writePPM(image, name);
+      writePPM(image, name, options.getPNMFormat());
+    } else if (name.endsWith(".pgm")) {
+      writePGM(image, name, options.getPNMFormat());
     } else {
       File file;
       try {
@@ -337,16 +820,9 @@ public class ImageUtil {
         throw new IllegalStateException("File could not be created");
       }
 
-      BufferedImage bi = new BufferedImage(image.getWidth(), image.getHeight(),
-          BufferedImage.TYPE_INT_RGB);
-      for (int h = 0; h < image.getHeight(); h++) {
-        for (int w = 0; w < image.getWidth(); w++) {
-          Pixel p = image.getPixelAt(w, h);
-          bi.setRGB(w, h, 65536 * p.getRed() + 256 * p.getGreen() + p.getBlue());
-        }
-      }
+      BufferedImage bi = ImageRasters.toBufferedImage(image);
       try {
-        ImageIO.write(bi, "jpg", file);
+        ImageEncoder.write(bi, file, options);
       } catch (IOException e) {
         throw new IllegalStateException("File could not be written");
       }
@@ -362,23 +838,49 @@ public class ImageUtil {
    * @param name  desired name of the file
    */
   public static void writePPM(IImage image, String name) {
-    StringBuilder outputSB = new StringBuilder();
+    writePPM(image, name, PNMFormat.PLAIN);
+  }
 
+  /**
+   * Attempts to create a PPM image file with the desired name and writes the given image to it,
+   * as plain (P3) or binary (P6) samples.
+   *
+   * @param image  the image desired to be written as a file in ppm format
+   * @param name   desired name of the file
+   * @param format whether to write plain or binary samples
+   */
+  public static void writePPM(IImage image, String name, PNMFormat format) {
+    writePNM(image, name, format, false);
+  }
+
+  /**
+   * Attempts to create a PGM image file with the desired name and writes the luma of each pixel of
+   * the given image to it, as plain (P2) or binary (P5) samples.
+   *
+   * @param image  the image desired to be written as a file in pgm format
+   * @param name   desired name of the file
+   * @param format whether to write plain or binary samples
+   */
+  public static void writePGM(IImage image, String name, PNMFormat format) {
+    writePNM(image, name, format, true);
+  }
+
+  /**
+   * writes the given image to a PPM or PGM file row by row.
+   *
+   * @param image  the image to write
+   * @param name   desired name of the file
+   * @param format whether to write plain or binary samples
+   * @param grey   whether to write a PGM file rather than a PPM file
+   */
+  private static void writePNM(IImage image, String name, PNMFormat format, boolean grey) {
     if (image == null) {
       throw new IllegalArgumentException("Null image provided");
     }
-
-    outputSB.append("P3 \n" + image.getWidth() + "\n" + image.getHeight() + "\n255");
-
-    for (int i = 0; i < image.getHeight(); i++) {
-      for (int j = 0; j < image.getWidth(); j++) {
-        Pixel p = image.getPixelAt(j, i);
-        outputSB.append("\n" + p.getRed() + " " + p.getGreen() + " " + p.getBlue());
-      }
+    if (format == null) {
+      throw new IllegalArgumentException("Null format provided");
     }
 
-    String outputString = outputSB.toString();
-
     try {
       File file = new File(name);
       if (file.createNewFile()) {
@@ -390,14 +892,24 @@ public class ImageUtil {
       throw new IllegalStateException("File could not be created");
     }
 
-    try {
-      FileOutputStream fos = new FileOutputStream(name);
-      byte[] b = outputString.getBytes();
-      fos.write(b);
-      fos.close();
+    try (PNMWriter out = new PNMWriter(openChannel(name), image.getWidth(), image.getHeight(),
+        format, grey)) {
+      out.writeImage(image);
       System.out.println("Successfully Wrote To File");
     } catch (Exception e) {
       throw new IllegalStateException("Failed To Write To File");
     }
   }
+
+  /**
+   * opens a file for writing from the start, replacing anything already in it.
+   *
+   * @param name the path of the file
+   * @return a channel writing to the file
+   * @throws IOException if the file cannot be opened
+   */
+  private static FileChannel openChannel(String name) throws IOException {
+    return FileChannel.open(Paths.get(name), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING);
+  }
 }
\ No newline at end of file
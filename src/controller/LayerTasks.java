@@ -0,0 +1,149 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntFunction;
+import model.RowBands;
+
+/**
+ * Reads or writes the layers of a multi layer image at the same time. Each layer is one task, and
+ * no more tasks run at once than there are processors, or two on a single processor, so decoding a
+ * long manifest never holds more than a few layers' worth of codec buffers at a time. Tasks run on
+ * virtual threads where the JVM has them, since much of their time is spent waiting on files, and
+ * on a fixed pool of daemon threads otherwise.
+ *
+ * <p>Results come back in the order of the layers whatever order they finish in. If any layer
+ * fails, no further layers are started and the exception of the first layer, in layer order, that
+ * failed is thrown as it was thrown by that layer. Layers are run one after another on the calling
+ * thread when there is only one, when RowBands is set to run serially, or when the caller is itself
+ * one of these tasks, as when a manifest lists another manifest.
+ */
+final class LayerTasks {
+
+  // at least two, so one layer can be decoded while another waits on its file
+  private static final int LIMIT = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+  private static final ThreadLocal<Boolean> IN_TASK = ThreadLocal.withInitial(() -> false);
+
+  private static ExecutorService executor;
+
+  private LayerTasks() {
+  }
+
+  /**
+   * runs the supplied task for every layer from 0 to count and gathers what each returns.
+   *
+   * @param count the number of layers
+   * @param task  the work for one layer, given its index
+   * @param <T>   the type of the result of each layer
+   * @return the result of each layer, in layer order
+   * @throws RuntimeException the exception of the first layer that failed
+   */
+  static <T> List<T> map(int count, IntFunction<T> task) {
+    List<T> results = new ArrayList<>(count);
+    if (count < 2 || !RowBands.isParallel() || IN_TASK.get()) {
+      for (int i = 0; i < count; i++) {
+        results.add(task.apply(i));
+      }
+      return results;
+    }
+
+    ExecutorService service = executor();
+    Semaphore running = new Semaphore(LIMIT);
+    List<Future<T>> futures = new ArrayList<>(count);
+    RuntimeException[] failures = new RuntimeException[count];
+    AtomicBoolean failed = new AtomicBoolean();
+    try {
+      for (int i = 0; i < count; i++) {
+        running.acquireUninterruptibly();
+        if (failed.get()) {
+          running.release();
+          break;
+        }
+        int layer = i;
+        futures.add(service.submit(() -> {
+          IN_TASK.set(true);
+          try {
+            return task.apply(layer);
+          } catch (RuntimeException e) {
+            failures[layer] = e;
+            failed.set(true);
+            throw e;
+          } finally {
+            IN_TASK.set(false);
+            running.release();
+          }
+        }));
+      }
+      for (Future<T> future : futures) {
+        results.add(join(future));
+      }
+    } catch (ExecutionException e) {
+      // wait for the layers already started, so the first failure in layer order is known
+      for (Future<T> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException | CancellationException ignored) {
+          // reported below
+        } catch (InterruptedException interrupted) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+      RuntimeException first = Arrays.stream(failures).filter(f -> f != null).findFirst()
+          .orElse(null);
+      if (first != null) {
+        throw first;
+      }
+      throw new IllegalStateException("Layer failed", e.getCause());
+    }
+    return results;
+  }
+
+  /**
+   * waits for the supplied layer to finish.
+   *
+   * @param future the layer
+   * @param <T>    the type of its result
+   * @return its result
+   * @throws ExecutionException if the layer failed
+   */
+  private static <T> T join(Future<T> future) throws ExecutionException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while reading or writing layers");
+    }
+  }
+
+  /**
+   * gets the executor layers run on, making it the first time it is needed.
+   *
+   * @return an executor starting a virtual thread per task, or a fixed pool of daemon threads on
+   *         a JVM without virtual threads
+   */
+  private static synchronized ExecutorService executor() {
+    if (executor == null) {
+      try {
+        executor = (ExecutorService) Executors.class
+            .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+      } catch (ReflectiveOperationException e) {
+        executor = Executors.newFixedThreadPool(LIMIT, r -> {
+          Thread thread = new Thread(r, "layer-io");
+          thread.setDaemon(true);
+          return thread;
+        });
+      }
+    }
+    return executor;
+  }
+}
@@ -0,0 +1,19 @@
+package controller;
+
+/**
+ * The ways PPM and PGM files can be written.
+ */
+public enum PNMFormat {
+
+  /**
+   * Plain text samples: P3 for .ppm files and P2 for .pgm files. This is the default, and writes
+   * .ppm files exactly as they have always been written.
+   */
+  PLAIN,
+
+  /**
+   * Raw bytes, one per sample: P6 for .ppm files and P5 for .pgm files. Binary files are about a
+   * quarter of the size of plain ones, and are read and written many times faster.
+   */
+  BINARY
+}
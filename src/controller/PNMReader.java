@@ -0,0 +1,150 @@
+package controller;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import model.PackedImage;
+
+/**
+ * Reads the pixels of a PPM or PGM file row by row: plain (P3) or binary (P6) color, and plain (P2)
+ * or binary (P5) grey, whose pixels are read with equal red, green and blue values. Binary samples
+ * are read in bulk a row at a time and scaled from the file's maximum value to 0 - 255. Plain
+ * samples are read as 0 - 255 values, clamped, whatever the maximum value, as PPM files always have
+ * been.
+ */
+final class PNMReader implements AutoCloseable {
+
+  private final PPMTokenizer in;
+  private final int width;
+  private final int height;
+  private final int maxValue;
+  private final boolean binary;
+  private final boolean grey;
+  private final byte[] samples;
+
+  /**
+   * Constructor for a reader of the supplied file, which reads its header.
+   *
+   * @param filename the path of the file
+   * @throws IllegalArgumentException if the file is missing or its header is invalid
+   * @throws IOException              if the file cannot be read
+   */
+  PNMReader(String filename) throws IllegalArgumentException, IOException {
+    try {
+      this.in = new PPMTokenizer(new FileInputStream(filename));
+    } catch (FileNotFoundException e) {
+      throw new IllegalArgumentException("File not found!");
+    }
+    try {
+      String magic = this.in.next();
+      this.binary = magic.equals("P6") || magic.equals("P5");
+      this.grey = magic.equals("P2") || magic.equals("P5");
+      if (!this.binary && !this.grey && !magic.equals("P3")) {
+        throw new IllegalArgumentException(
+            "Invalid PPM file: file should begin with P3, P6, P2 or P5");
+      }
+      this.width = this.in.nextInt();
+      this.height = this.in.nextInt();
+      this.maxValue = this.in.nextInt();
+      if (this.width < 1 || this.height < 1) {
+        throw new IllegalArgumentException("Invalid PPM file");
+      }
+      if (this.binary) {
+        if (this.maxValue < 1 || this.maxValue > 65535) {
+          throw new IllegalArgumentException("Invalid PPM file");
+        }
+        this.in.skipSeparator();
+        int bytesPerSample = this.maxValue < 256 ? 1 : 2;
+        this.samples = new byte[this.width * (this.grey ? 1 : 3) * bytesPerSample];
+      } else {
+        this.samples = null;
+      }
+    } catch (IllegalArgumentException | IOException e) {
+      this.in.close();
+      throw e;
+    }
+  }
+
+  /**
+   * getter method for the width of the image in the file.
+   *
+   * @return the width of the image
+   */
+  int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * getter method for the height of the image in the file.
+   *
+   * @return the height of the image
+   */
+  int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * reads the next row of the image into the supplied array as packed RGB values.
+   *
+   * @param row the array to read into, as long as the image is wide
+   * @throws IllegalArgumentException if the file ends first or holds an invalid sample
+   * @throws IOException              if the file cannot be read
+   */
+  void readRow(int[] row) throws IllegalArgumentException, IOException {
+    if (!this.binary) {
+      for (int x = 0; x < this.width; x++) {
+        if (this.grey) {
+          int v = this.in.nextInt();
+          row[x] = PackedImage.pack(v, v, v);
+        } else {
+          int r = this.in.nextInt();
+          int g = this.in.nextInt();
+          int b = this.in.nextInt();
+          row[x] = PackedImage.pack(r, g, b);
+        }
+      }
+      return;
+    }
+    this.in.readFully(this.samples, 0, this.samples.length);
+    int channels = this.grey ? 1 : 3;
+    if (this.maxValue == 255) {
+      for (int x = 0, i = 0; x < this.width; x++, i += channels) {
+        int r = this.samples[i] & 0xFF;
+        row[x] = this.grey ? r << 16 | r << 8 | r
+            : r << 16 | (this.samples[i + 1] & 0xFF) << 8 | (this.samples[i + 2] & 0xFF);
+      }
+      return;
+    }
+    for (int x = 0; x < this.width; x++) {
+      int r = this.sample(x * channels);
+      row[x] = this.grey ? PackedImage.pack(r, r, r)
+          : PackedImage.pack(r, this.sample(x * channels + 1), this.sample(x * channels + 2));
+    }
+  }
+
+  /**
+   * reads one sample of the current row of a binary file, scaled to 0 - 255.
+   *
+   * @param index the index of the sample within the row
+   * @return the scaled sample
+   */
+  private int sample(int index) {
+    int value;
+    if (this.maxValue < 256) {
+      value = this.samples[index] & 0xFF;
+    } else {
+      value = (this.samples[2 * index] & 0xFF) << 8 | (this.samples[2 * index + 1] & 0xFF);
+    }
+    return (value * 255 + this.maxValue / 2) / this.maxValue;
+  }
+
+  /**
+   * closes the file.
+   *
+   * @throws IOException if the file cannot be closed
+   */
+  @Override
+  public void close() throws IOException {
+    this.in.close();
+  }
+}
@@ -0,0 +1,260 @@
+package controller;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import model.IImage;
+import model.RowBands;
+
+/**
+ * Writes an image to a PPM or PGM file, in the plain or binary format. Plain color files are
+ * written exactly as writePPM always has: a header of "P3 ", the width, the height and 255 on lines
+ * of their own, then one line per pixel with no newline at the end. Grey files store the luma of
+ * each pixel, rounded, so grey images are stored exactly.
+ *
+ * <p>Rows are encoded straight into byte buffers, copying the text of each sample from a table
+ * made once for the values 0 - 255. A whole image is encoded in stripes of rows on the pool of
+ * RowBands, a few stripes ahead of the one being written, and the stripes are written to the
+ * channel in order as they finish; their buffers are reused, so saving takes memory in proportion
+ * to a few stripes rather than to the file. Images streamed row by row are encoded on the calling
+ * thread.
+ */
+final class PNMWriter implements AutoCloseable {
+
+  // the number of pixels in each stripe of rows encoded as one task
+  private static final int STRIPE_PIXELS = 1 << 16;
+
+  // stripes encoded ahead of the one being written, per worker thread
+  private static final int STRIPES_PER_THREAD = 2;
+
+  // the text of each sample value, and the most bytes a plain color pixel takes
+  private static final byte[][] SAMPLE_TEXT = new byte[256][];
+  private static final int MAX_PIXEL_BYTES = 12;
+
+  static {
+    for (int value = 0; value < 256; value++) {
+      SAMPLE_TEXT[value] = Integer.toString(value).getBytes(StandardCharsets.US_ASCII);
+    }
+  }
+
+  private final WritableByteChannel out;
+  private final int width;
+  private final int height;
+  private final boolean binary;
+  private final boolean grey;
+  private final int pixelBytes;
+  private final byte[] buffer;
+  private int position;
+
+  /**
+   * Constructor for a writer of an image of the supplied size to the supplied channel, which
+   * starts with the header and closes the channel when it is closed.
+   *
+   * @param out    the channel to write to
+   * @param width  the width of the image
+   * @param height the height of the image
+   * @param format whether to write plain or binary samples
+   * @param grey   whether to write a grey (PGM) file rather than a color (PPM) one
+   */
+  PNMWriter(WritableByteChannel out, int width, int height, PNMFormat format, boolean grey) {
+    this.out = out;
+    this.width = width;
+    this.height = height;
+    this.binary = format == PNMFormat.BINARY;
+    this.grey = grey;
+    this.pixelBytes = this.binary ? (grey ? 1 : 3) : (grey ? 4 : MAX_PIXEL_BYTES);
+    String magic = this.binary ? (grey ? "P5" : "P6") : (grey ? "P2" : "P3");
+    String header = this.binary ? magic + "\n" + width + " " + height + "\n255\n"
+        : magic + " \n" + width + "\n" + height + "\n255";
+    byte[] bytes = header.getBytes(StandardCharsets.US_ASCII);
+    this.buffer = new byte[Math.max(STRIPE_PIXELS, width) * this.pixelBytes + bytes.length];
+    System.arraycopy(bytes, 0, this.buffer, 0, bytes.length);
+    this.position = bytes.length;
+  }
+
+  /**
+   * gets the grey value a grey file stores for the supplied pixel.
+   *
+   * @param rgb the packed RGB value of the pixel
+   * @return its luma, rounded to a whole value
+   */
+  static int grey(int rgb) {
+    return (int) Math.round(0.2126 * ((rgb >> 16) & 0xFF) + 0.7152 * ((rgb >> 8) & 0xFF)
+        + 0.0722 * (rgb & 0xFF));
+  }
+
+  /**
+   * writes the next row of the image.
+   *
+   * @param row the packed RGB values of the row, as long as the image is wide
+   * @throws IOException if the row cannot be written
+   */
+  void writeRow(int[] row) throws IOException {
+    if (this.position + this.width * this.pixelBytes > this.buffer.length) {
+      this.flush();
+    }
+    this.position = this.encode(row, this.buffer, this.position);
+  }
+
+  /**
+   * writes every row of the supplied image, which must be of this writer's size, encoding stripes
+   * of rows in parallel unless the image is small or RowBands is set to run serially.
+   *
+   * @param image the image to write
+   * @throws IOException if the image cannot be written
+   */
+  void writeImage(IImage image) throws IOException {
+    int stripeRows = Math.max(1, STRIPE_PIXELS / this.width);
+    int stripes = (this.height + stripeRows - 1) / stripeRows;
+    ForkJoinPool pool = RowBands.getPool();
+    long pixels = (long) this.width * this.height;
+    if (!RowBands.isParallel() || stripes < 2 || pixels < RowBands.getSerialThreshold()
+        || pool.getParallelism() < 2) {
+      int[] row = new int[this.width];
+      for (int y = 0; y < this.height; y++) {
+        this.readRow(image, y, row);
+        this.writeRow(row);
+      }
+      return;
+    }
+    // a lazy image is computed once here, rather than by whichever stripe reads it first
+    image.getRGBAt(0, 0);
+    this.flush();
+
+    int window = Math.min(stripes, pool.getParallelism() * STRIPES_PER_THREAD);
+    byte[][] buffers = new byte[window][];
+    Deque<ForkJoinTask<Integer>> pending = new ArrayDeque<>();
+    for (int stripe = 0; stripe < stripes; stripe++) {
+      if (pending.size() == window) {
+        this.write(buffers[(stripe - window) % window], pending.removeFirst().join());
+      }
+      int slot = stripe % window;
+      int fromRow = stripe * stripeRows;
+      int toRow = Math.min(this.height, fromRow + stripeRows);
+      if (buffers[slot] == null) {
+        buffers[slot] = new byte[stripeRows * this.width * this.pixelBytes];
+      }
+      byte[] stripeBuffer = buffers[slot];
+      pending.addLast(pool.submit(() -> {
+        int[] row = new int[this.width];
+        int length = 0;
+        for (int y = fromRow; y < toRow; y++) {
+          this.readRow(image, y, row);
+          length = this.encode(row, stripeBuffer, length);
+        }
+        return length;
+      }));
+    }
+    for (int stripe = stripes - pending.size(); stripe < stripes; stripe++) {
+      this.write(buffers[stripe % window], pending.removeFirst().join());
+    }
+  }
+
+  /**
+   * reads a row of the supplied image into the supplied array.
+   *
+   * @param image the image to read
+   * @param y     the row to read
+   * @param row   the array to read into
+   */
+  private void readRow(IImage image, int y, int[] row) {
+    for (int x = 0; x < this.width; x++) {
+      row[x] = image.getRGBAt(x, y);
+    }
+  }
+
+  /**
+   * encodes a row of pixels into the supplied array in this writer's format. It changes nothing but
+   * the array, so stripes can be encoded at the same time.
+   *
+   * @param row      the packed RGB values of the row
+   * @param bytes    the array to encode into
+   * @param position where in the array to start
+   * @return the position after the last byte written
+   */
+  private int encode(int[] row, byte[] bytes, int position) {
+    for (int x = 0; x < this.width; x++) {
+      int pixel = row[x];
+      if (this.binary) {
+        if (this.grey) {
+          bytes[position++] = (byte) grey(pixel);
+        } else {
+          bytes[position++] = (byte) (pixel >> 16);
+          bytes[position++] = (byte) (pixel >> 8);
+          bytes[position++] = (byte) pixel;
+        }
+      } else {
+        bytes[position++] = '\n';
+        if (this.grey) {
+          position = text(grey(pixel), bytes, position);
+        } else {
+          position = text((pixel >> 16) & 0xFF, bytes, position);
+          bytes[position++] = ' ';
+          position = text((pixel >> 8) & 0xFF, bytes, position);
+          bytes[position++] = ' ';
+          position = text(pixel & 0xFF, bytes, position);
+        }
+      }
+    }
+    return position;
+  }
+
+  /**
+   * copies the text of a sample into the supplied array.
+   *
+   * @param value    the sample, from 0 to 255
+   * @param bytes    the array to copy into
+   * @param position where in the array to start
+   * @return the position after the text
+   */
+  private static int text(int value, byte[] bytes, int position) {
+    byte[] digits = SAMPLE_TEXT[value];
+    for (byte digit : digits) {
+      bytes[position++] = digit;
+    }
+    return position;
+  }
+
+  /**
+   * writes the supplied bytes to the channel.
+   *
+   * @param bytes  the array holding the bytes
+   * @param length the number of bytes to write, from the start of the array
+   * @throws IOException if the bytes cannot be written
+   */
+  private void write(byte[] bytes, int length) throws IOException {
+    ByteBuffer wrapped = ByteBuffer.wrap(bytes, 0, length);
+    while (wrapped.hasRemaining()) {
+      this.out.write(wrapped);
+    }
+  }
+
+  /**
+   * writes out what is in the buffer.
+   *
+   * @throws IOException if the buffer cannot be written
+   */
+  private void flush() throws IOException {
+    this.write(this.buffer, this.position);
+    this.position = 0;
+  }
+
+  /**
+   * writes out what is left in the buffer and closes the channel.
+   *
+   * @throws IOException if the file cannot be written or closed
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      this.flush();
+    } finally {
+      this.out.close();
+    }
+  }
+}
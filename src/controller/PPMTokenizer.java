@@ -0,0 +1,179 @@
+package controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the whitespace separated tokens of a PPM or PGM file straight from its bytes, through a
+ * buffer of its own. Numbers are parsed digit by digit as they are read, and comments, which run
+ * from a # to the end of the line, are skipped wherever they appear, so a file is read in one pass
+ * without ever holding its text in memory. The samples of a binary file are read in bulk after its
+ * header.
+ */
+final class PPMTokenizer implements AutoCloseable {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final InputStream in;
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private int position;
+  private int limit;
+
+  /**
+   * Constructor for a tokenizer reading the supplied stream, which it closes when it is closed.
+   *
+   * @param in the stream to read
+   */
+  PPMTokenizer(InputStream in) {
+    this.in = in;
+  }
+
+  /**
+   * reads the next byte of the file.
+   *
+   * @return the byte, or -1 at the end of the file
+   * @throws IOException if the file cannot be read
+   */
+  private int read() throws IOException {
+    if (this.position == this.limit) {
+      this.limit = this.in.read(this.buffer, 0, BUFFER_SIZE);
+      this.position = 0;
+      if (this.limit <= 0) {
+        this.limit = 0;
+        return -1;
+      }
+    }
+    return this.buffer[this.position++] & 0xFF;
+  }
+
+  /**
+   * skips whitespace and comments up to the first byte of the next token.
+   *
+   * @return the first byte of the next token
+   * @throws IOException              if the file cannot be read
+   * @throws IllegalArgumentException if the file ends first
+   */
+  private int skip() throws IOException {
+    int c = this.read();
+    while (true) {
+      if (c == '#') {
+        while (c != '\n' && c != '\r' && c != -1) {
+          c = this.read();
+        }
+      } else if (c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f') {
+        c = this.read();
+      } else if (c == -1) {
+        throw new IllegalArgumentException("Invalid PPM file");
+      } else {
+        return c;
+      }
+    }
+  }
+
+  /**
+   * reads the next token as text, as for the magic number at the start of the file.
+   *
+   * @return the next token
+   * @throws IOException              if the file cannot be read
+   * @throws IllegalArgumentException if the file ends first
+   */
+  String next() throws IOException {
+    StringBuilder token = new StringBuilder();
+    int c = this.skip();
+    while (c > ' ' && c != '#') {
+      token.append((char) c);
+      c = this.read();
+    }
+    this.unread(c);
+    return token.toString();
+  }
+
+  /**
+   * reads the next token as a whole number.
+   *
+   * @return the number
+   * @throws IOException              if the file cannot be read
+   * @throws IllegalArgumentException if the file ends first or the token is not a number
+   */
+  int nextInt() throws IOException {
+    int c = this.skip();
+    boolean negative = c == '-';
+    if (negative || c == '+') {
+      c = this.read();
+    }
+    if (c < '0' || c > '9') {
+      throw new IllegalArgumentException("Invalid PPM file");
+    }
+    long value = 0;
+    while (c >= '0' && c <= '9') {
+      value = value * 10 + (c - '0');
+      if (value > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Invalid PPM file");
+      }
+      c = this.read();
+    }
+    if (c > ' ' && c != '#') {
+      throw new IllegalArgumentException("Invalid PPM file");
+    }
+    this.unread(c);
+    return (int) (negative ? -value : value);
+  }
+
+  /**
+   * steps back over the byte just read, so that a # ending a token still starts a comment.
+   *
+   * @param c the byte just read, or -1 at the end of the file
+   */
+  private void unread(int c) {
+    if (c != -1) {
+      this.position--;
+    }
+  }
+
+  /**
+   * reads the single whitespace byte that separates the header of a binary file from its samples.
+   *
+   * @throws IOException              if the file cannot be read
+   * @throws IllegalArgumentException if the next byte is not whitespace
+   */
+  void skipSeparator() throws IOException {
+    int c = this.read();
+    if (c != ' ' && c != '\n' && c != '\r' && c != '\t' && c != '\f') {
+      throw new IllegalArgumentException("Invalid PPM file");
+    }
+  }
+
+  /**
+   * reads the supplied number of raw bytes, first from the buffer and then straight from the
+   * stream.
+   *
+   * @param bytes  the array to read into
+   * @param offset where in the array to start
+   * @param length the number of bytes to read
+   * @throws IOException              if the file cannot be read
+   * @throws IllegalArgumentException if the file ends first
+   */
+  void readFully(byte[] bytes, int offset, int length) throws IOException {
+    int buffered = Math.min(length, this.limit - this.position);
+    System.arraycopy(this.buffer, this.position, bytes, offset, buffered);
+    this.position += buffered;
+    int done = buffered;
+    while (done < length) {
+      int read = this.in.read(bytes, offset + done, length - done);
+      if (read < 0) {
+        throw new IllegalArgumentException("Invalid PPM file");
+      }
+      done += read;
+    }
+  }
+
+  /**
+   * closes the stream this tokenizer reads.
+   *
+   * @throws IOException if the stream cannot be closed
+   */
+  @Override
+  public void close() throws IOException {
+    this.in.close();
+  }
+}
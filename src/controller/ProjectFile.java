@@ -0,0 +1,519 @@
+package controller;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import model.IImage;
+import model.LazyImage;
+import model.MultiLayerIModel;
+import model.PackedImage;
+
+/**
+ * Reads and writes a whole multi layer image as one project file, keeping the name and
+ * transparency of every layer, which layer is current and whether the model is lazy. The file
+ * starts with an index of the layers, giving the name, transparency and size of each and where its
+ * pixels are stored, followed by the pixels of each layer as three bytes per pixel, red, green and
+ * blue, row by row. Each layer is stored deflated at the fastest level, or raw if deflating does
+ * not make it much smaller.
+ *
+ * <p>Opening a project reads only the index. Each layer's image is lazy and keeps only the path of
+ * the file and its index entry, so a layer's stored bytes are read and decoded the first time it is
+ * shown, filtered or saved, and reopening a large project takes about as long whatever the size of
+ * its layers. The bytes are read through a channel that is closed straight after, rather than
+ * mapped, since a mapping holds the file open until it is collected, which on Windows would stop a
+ * project from being saved over the file it was opened from. Saving decodes every layer it saves
+ * before the file is replaced. A layer read after its file has been replaced by anything else fails
+ * rather than decode the new file's bytes. Layers must fit in Integer.MAX_VALUE bytes raw.
+ */
+final class ProjectFile {
+
+  /**
+   * the extension of project files.
+   */
+  static final String EXTENSION = ".layers";
+
+  private static final byte[] MAGIC = {'P', 'E', 'L', 'A', 'Y', 'E', 'R', 'S'};
+  private static final int VERSION = 1;
+  private static final byte RAW = 0;
+  private static final byte DEFLATED = 1;
+
+  // the rows encoded or decoded at a time
+  private static final int CHUNK_BYTES = 1 << 16;
+
+  // the bytes of a layer deflated before deciding whether deflating it is worthwhile
+  private static final int TRIAL_BYTES = 1 << 20;
+
+  private ProjectFile() {
+  }
+
+  /**
+   * The layers of an opened project in the order of its index, with its current layer and whether
+   * it is lazy.
+   */
+  private static final class Project {
+
+    final List<Entry> entries = new ArrayList<>();
+    final List<IImage> images = new ArrayList<>();
+    int current;
+    boolean lazy;
+  }
+
+  /**
+   * A layer of a project, as its index entry describes it.
+   */
+  private static final class Entry {
+
+    final String name;
+    final boolean transparent;
+    final int width;
+    final int height;
+    byte encoding;
+    long offset;
+    long length;
+
+    Entry(String name, boolean transparent, int width, int height) {
+      this.name = name;
+      this.transparent = transparent;
+      this.width = width;
+      this.height = height;
+    }
+  }
+
+  /**
+   * writes every layer of the supplied model to a project file, replacing any file already there.
+   * The file is written beside the old one and then moved over it, so a project can be saved over
+   * the file it was opened from, and a failed save leaves the old file as it was.
+   *
+   * @param model the model to save
+   * @param name  the path of the file
+   * @throws IllegalArgumentException if the model has no layers or a layer is too large to store
+   * @throws IllegalStateException    if the file cannot be written
+   */
+  static void write(MultiLayerIModel model, String name)
+      throws IllegalArgumentException, IllegalStateException {
+    if (model == null || model.numLayers() < 1) {
+      throw new IllegalArgumentException("No Image Provided");
+    }
+    List<String> names = model.getLayerNames();
+    List<IImage> images = new ArrayList<>();
+    List<Boolean> transparent = new ArrayList<>();
+    for (String layer : names) {
+      images.add(model.getLayer(layer).getImage());
+      transparent.add(model.getTransparency(layer));
+    }
+    write(names, images, transparent, names.indexOf(model.getCurName()), model.isLazy(), name);
+  }
+
+  /**
+   * writes the supplied images to a project file as opaque layers named "layer" + their number,
+   * the last of them current, replacing any file already there.
+   *
+   * @param images the layers to save
+   * @param name   the path of the file
+   * @throws IllegalArgumentException if a layer is too large to store
+   * @throws IllegalStateException    if the file cannot be written
+   */
+  static void write(List<IImage> images, String name)
+      throws IllegalArgumentException, IllegalStateException {
+    List<String> names = new ArrayList<>();
+    for (int i = 0; i < images.size(); i++) {
+      names.add("layer" + (i + 1));
+    }
+    Boolean[] transparent = new Boolean[images.size()];
+    Arrays.fill(transparent, false);
+    write(names, images, Arrays.asList(transparent), images.size() - 1, false, name);
+  }
+
+  /**
+   * writes the supplied layers to a project file.
+   *
+   * @param names       the names of the layers
+   * @param images      the images of the layers
+   * @param transparent whether each layer is transparent
+   * @param current     the index of the current layer, or -1 if there is none
+   * @param lazy        whether the model is lazy
+   * @param name        the path of the file
+   * @throws IllegalArgumentException if a layer is too large to store
+   * @throws IllegalStateException    if the file cannot be written
+   */
+  private static void write(List<String> names, List<IImage> images, List<Boolean> transparent,
+      int current, boolean lazy, String name) throws IllegalStateException {
+    List<Entry> entries = new ArrayList<>();
+    List<PackedImage> pixels = new ArrayList<>();
+    for (int i = 0; i < names.size(); i++) {
+      IImage layer = images.get(i);
+      // layers not yet read from the file being replaced are decoded by PackedImage.of below,
+      // before the file is touched
+      if (3L * layer.getWidth() * layer.getHeight() > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Layer " + names.get(i)
+            + " is too large for a project file");
+      }
+      PackedImage image = PackedImage.of(layer);
+      pixels.add(image);
+      entries.add(new Entry(names.get(i), transparent.get(i), image.getWidth(),
+          image.getHeight()));
+    }
+
+    Path path = Paths.get(name).toAbsolutePath();
+    Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+    try {
+      try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        byte[] index = index(entries, current, lazy);
+        out.position(index.length);
+        for (int i = 0; i < entries.size(); i++) {
+          Entry entry = entries.get(i);
+          entry.offset = out.position();
+          writeLayer(pixels.get(i), entry, out);
+          entry.length = out.position() - entry.offset;
+        }
+        writeFully(ByteBuffer.wrap(index(entries, current, lazy)), out, 0);
+      }
+      try {
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+      }
+      System.out.println("Successfully Wrote To File");
+    } catch (IOException e) {
+      try {
+        Files.deleteIfExists(temporary);
+      } catch (IOException ignored) {
+        // the save has failed either way
+      }
+      throw new IllegalStateException("Failed To Write To File");
+    }
+  }
+
+  /**
+   * encodes the index at the start of a project file. Every field has a fixed size but the names,
+   * so the index is as long before the offsets of the layers are known as after.
+   *
+   * @param entries the layers
+   * @param current the index of the current layer, or -1 if there is none
+   * @param lazy    whether the model is lazy
+   * @return the encoded index
+   * @throws IOException if the index cannot be encoded
+   */
+  private static byte[] index(List<Entry> entries, int current, boolean lazy)
+      throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.write(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(entries.size());
+      out.writeInt(current);
+      out.writeBoolean(lazy);
+      for (Entry entry : entries) {
+        out.writeUTF(entry.name);
+        out.writeBoolean(entry.transparent);
+        out.writeInt(entry.width);
+        out.writeInt(entry.height);
+        out.writeByte(entry.encoding);
+        out.writeLong(entry.offset);
+        out.writeLong(entry.length);
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * writes the pixels of a layer at the position of the channel, deflated if that makes them
+   * smaller and raw otherwise, and records which in its entry.
+   *
+   * @param image the pixels of the layer
+   * @param entry the entry of the layer
+   * @param out   the channel to write to
+   * @throws IOException if the pixels cannot be written
+   */
+  private static void writeLayer(PackedImage image, Entry entry, FileChannel out)
+      throws IOException {
+    long rawLength = 3L * entry.width * entry.height;
+    int rowBytes = 3 * entry.width;
+    int rows = Math.max(1, CHUNK_BYTES / rowBytes);
+    byte[] chunk = new byte[rows * rowBytes];
+    byte[] deflated = new byte[CHUNK_BYTES];
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    boolean deflate = true;
+    try {
+      long consumed = 0;
+      for (int y = 0; y < entry.height && deflate; y += rows) {
+        int length = encodeRows(image, y, Math.min(entry.height, y + rows), chunk);
+        deflater.setInput(chunk, 0, length);
+        while (!deflater.needsInput()) {
+          compressed.write(deflated, 0, deflater.deflate(deflated));
+        }
+        consumed += length;
+        // layers deflating barely shrinks, such as noise, are given up on early and stored raw
+        deflate = compressed.size() < rawLength
+            && (consumed < TRIAL_BYTES || compressed.size() < consumed / 10 * 9);
+      }
+      if (deflate) {
+        deflater.finish();
+        while (!deflater.finished() && compressed.size() < rawLength) {
+          compressed.write(deflated, 0, deflater.deflate(deflated));
+        }
+        deflate = compressed.size() < rawLength;
+      }
+    } finally {
+      deflater.end();
+    }
+
+    if (deflate) {
+      entry.encoding = DEFLATED;
+      writeFully(ByteBuffer.wrap(compressed.toByteArray()), out, out.position());
+      return;
+    }
+    entry.encoding = RAW;
+    for (int y = 0; y < entry.height; y += rows) {
+      int length = encodeRows(image, y, Math.min(entry.height, y + rows), chunk);
+      writeFully(ByteBuffer.wrap(chunk, 0, length), out, out.position());
+    }
+  }
+
+  /**
+   * encodes rows of a layer as three bytes per pixel.
+   *
+   * @param image   the pixels of the layer
+   * @param fromRow the first row
+   * @param toRow   the row after the last row
+   * @param bytes   the array to encode into
+   * @return the number of bytes encoded
+   */
+  private static int encodeRows(PackedImage image, int fromRow, int toRow, byte[] bytes) {
+    int position = 0;
+    for (int y = fromRow; y < toRow; y++) {
+      for (int x = 0; x < image.getWidth(); x++) {
+        int rgb = image.getRGBAt(x, y);
+        bytes[position++] = (byte) (rgb >> 16);
+        bytes[position++] = (byte) (rgb >> 8);
+        bytes[position++] = (byte) rgb;
+      }
+    }
+    return position;
+  }
+
+  /**
+   * writes all of the supplied bytes to the channel at the supplied position, leaving the channel
+   * positioned after them.
+   *
+   * @param bytes    the bytes to write
+   * @param out      the channel to write to
+   * @param position where in the file to write them
+   * @throws IOException if the bytes cannot be written
+   */
+  private static void writeFully(ByteBuffer bytes, FileChannel out, long position)
+      throws IOException {
+    out.position(position);
+    while (bytes.hasRemaining()) {
+      out.write(bytes);
+    }
+  }
+
+  /**
+   * opens a project file as a new model, whose layers are decoded only when they are first read.
+   *
+   * @param name     the path of the file
+   * @param newModel makes a model from the name and image of its first layer
+   * @param <M>      the type of model to open the project as
+   * @return the model, with every layer, transparency and the current layer of the project
+   * @throws IllegalArgumentException if the file is missing or is not a valid project file
+   * @throws IllegalStateException    if the file cannot be read
+   */
+  static <M extends MultiLayerIModel> M read(String name,
+      BiFunction<String, IImage, M> newModel) throws IllegalArgumentException,
+      IllegalStateException {
+    Project project = open(name);
+    M model = null;
+    for (int i = 0; i < project.entries.size(); i++) {
+      Entry entry = project.entries.get(i);
+      if (model == null) {
+        model = newModel.apply(entry.name, project.images.get(i));
+      } else {
+        model.addLayer(entry.name, project.images.get(i));
+      }
+      if (entry.transparent) {
+        model.flipTransparency(entry.name);
+      }
+    }
+    model.setLazy(project.lazy);
+    if (project.current >= 0) {
+      model.setCurrent(project.entries.get(project.current).name);
+    }
+    return model;
+  }
+
+  /**
+   * reads the layers of a project file, in the order they are stored, each decoded only when it is
+   * first read.
+   *
+   * @param name the path of the file
+   * @return the image of every layer of the project
+   * @throws IllegalArgumentException if the file is missing or is not a valid project file
+   * @throws IllegalStateException    if the file cannot be read
+   */
+  static List<IImage> readImages(String name)
+      throws IllegalArgumentException, IllegalStateException {
+    return open(name).images;
+  }
+
+  /**
+   * reads the index of a project file, making a lazy image for each layer that reads and decodes
+   * its stored bytes when it is first read.
+   *
+   * @param name the path of the file
+   * @return the layers of the project
+   * @throws IllegalArgumentException if the file is missing or is not a valid project file
+   * @throws IllegalStateException    if the file cannot be read
+   */
+  private static Project open(String name) throws IllegalArgumentException,
+      IllegalStateException {
+    Path path = Paths.get(name).toAbsolutePath();
+    try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+      BasicFileAttributes opened = Files.readAttributes(path, BasicFileAttributes.class);
+      DataInputStream index = new DataInputStream(
+          new BufferedInputStream(Channels.newInputStream(in)));
+      byte[] magic = new byte[MAGIC.length];
+      index.readFully(magic);
+      if (!Arrays.equals(magic, MAGIC) || index.readInt() != VERSION) {
+        throw new IllegalArgumentException("Invalid project file");
+      }
+      Project project = new Project();
+      int count = index.readInt();
+      project.current = index.readInt();
+      project.lazy = index.readBoolean();
+      if (count < 1 || project.current < -1 || project.current >= count) {
+        throw new IllegalArgumentException("Invalid project file");
+      }
+      for (int i = 0; i < count; i++) {
+        Entry entry = new Entry(index.readUTF(), index.readBoolean(), index.readInt(),
+            index.readInt());
+        entry.encoding = index.readByte();
+        entry.offset = index.readLong();
+        entry.length = index.readLong();
+        if (entry.width < 1 || entry.height < 1 || (entry.encoding != RAW
+            && entry.encoding != DEFLATED) || entry.offset < 0 || entry.length < 0
+            || entry.length > Integer.MAX_VALUE || entry.offset + entry.length > in.size()
+            || (entry.encoding == RAW && entry.length != 3L * entry.width * entry.height)) {
+          throw new IllegalArgumentException("Invalid project file");
+        }
+        project.entries.add(entry);
+      }
+
+      for (Entry entry : project.entries) {
+        project.images.add(LazyImage.of(entry.width, entry.height,
+            () -> decode(entry, load(path, opened, entry))));
+      }
+      return project;
+    } catch (NoSuchFileException e) {
+      throw new IllegalArgumentException("File not found!");
+    } catch (EOFException | UTFDataFormatException e) {
+      throw new IllegalArgumentException("Invalid project file");
+    } catch (IOException e) {
+      throw new IllegalStateException("Reading Failed");
+    }
+  }
+
+  /**
+   * reads the stored bytes of a layer from its project file.
+   *
+   * @param path   the path of the project file
+   * @param opened the attributes of the file when it was opened
+   * @param entry  the entry of the layer
+   * @return the stored bytes of the layer
+   * @throws IllegalStateException if the file has changed since it was opened or cannot be read
+   */
+  private static ByteBuffer load(Path path, BasicFileAttributes opened, Entry entry)
+      throws IllegalStateException {
+    try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+      BasicFileAttributes now = Files.readAttributes(path, BasicFileAttributes.class);
+      if (now.size() != opened.size()
+          || !now.lastModifiedTime().equals(opened.lastModifiedTime())
+          || !Objects.equals(now.fileKey(), opened.fileKey())) {
+        throw new IllegalStateException("Project file " + path + " changed since it was opened");
+      }
+      ByteBuffer data = ByteBuffer.allocate((int) entry.length);
+      while (data.hasRemaining()) {
+        if (in.read(data, entry.offset + data.position()) < 0) {
+          throw new IllegalStateException("Corrupt project layer " + entry.name);
+        }
+      }
+      data.flip();
+      return data;
+    } catch (IOException e) {
+      throw new IllegalStateException("Project file " + path + " can no longer be read");
+    }
+  }
+
+  /**
+   * decodes the pixels of a layer from its stored bytes.
+   *
+   * @param entry the entry of the layer
+   * @param data  the stored pixels of the layer
+   * @return the image of the layer
+   * @throws IllegalStateException if the stored pixels are corrupt
+   */
+  private static IImage decode(Entry entry, ByteBuffer data) throws IllegalStateException {
+    int width = entry.width;
+    int[] pixels = new int[width * entry.height];
+    int rowBytes = 3 * width;
+    int rows = Math.max(1, CHUNK_BYTES / rowBytes);
+    byte[] chunk = new byte[rows * rowBytes];
+    ByteBuffer source = data.duplicate();
+    Inflater inflater = entry.encoding == DEFLATED ? new Inflater() : null;
+    try {
+      if (inflater != null) {
+        inflater.setInput(source);
+      }
+      for (int y = 0; y < entry.height; y += rows) {
+        int length = Math.min(entry.height - y, rows) * rowBytes;
+        if (inflater == null) {
+          source.get(chunk, 0, length);
+        } else {
+          for (int read = 0; read < length; ) {
+            int inflated = inflater.inflate(chunk, read, length - read);
+            if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+              throw new IllegalStateException("Corrupt project layer " + entry.name);
+            }
+            read += inflated;
+          }
+        }
+        for (int i = 0, p = y * width; i < length; i += 3, p++) {
+          pixels[p] = (chunk[i] & 0xFF) << 16 | (chunk[i + 1] & 0xFF) << 8 | (chunk[i + 2] & 0xFF);
+        }
+      }
+    } catch (DataFormatException e) {
+      throw new IllegalStateException("Corrupt project layer " + entry.name);
+    } finally {
+      if (inflater != null) {
+        inflater.end();
+      }
+    }
+    return new PackedImage(width, entry.height, pixels);
+  }
+}
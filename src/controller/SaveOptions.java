@@ -0,0 +1,78 @@
+package controller;
+
+/**
+ * How images are encoded when they are saved: the format of PPM and PGM files, the quality of JPEG
+ * files and the compression level of PNG files. A setting left at DEFAULT leaves the encoder's own
+ * default in place.
+ */
+public final class SaveOptions {
+
+  /**
+   * the value of a setting that keeps the encoder's own default.
+   */
+  public static final int DEFAULT = -1;
+
+  private final PNMFormat pnmFormat;
+  private final int jpegQuality;
+  private final int pngLevel;
+
+  /**
+   * Constructor for the default options: plain PPM and PGM files, and the encoders' own defaults
+   * for JPEG and PNG files.
+   */
+  public SaveOptions() {
+    this(PNMFormat.PLAIN, DEFAULT, DEFAULT);
+  }
+
+  /**
+   * Constructor for options with the supplied settings.
+   *
+   * @param pnmFormat   whether PPM and PGM files are written with plain or binary samples
+   * @param jpegQuality the quality of JPEG files, from 1 (smallest) to 100 (best), or DEFAULT
+   * @param pngLevel    the deflate level of PNG files, from 0 (fastest, largest) to 9 (slowest,
+   *                    smallest), or DEFAULT
+   * @throws IllegalArgumentException if the format is null or a setting is out of range
+   */
+  public SaveOptions(PNMFormat pnmFormat, int jpegQuality, int pngLevel)
+      throws IllegalArgumentException {
+    if (pnmFormat == null) {
+      throw new IllegalArgumentException("Null format provided");
+    }
+    if (jpegQuality != DEFAULT && (jpegQuality < 1 || jpegQuality > 100)) {
+      throw new IllegalArgumentException("JPEG quality must be from 1 to 100");
+    }
+    if (pngLevel != DEFAULT && (pngLevel < 0 || pngLevel > 9)) {
+      throw new IllegalArgumentException("PNG level must be from 0 to 9");
+    }
+    this.pnmFormat = pnmFormat;
+    this.jpegQuality = jpegQuality;
+    this.pngLevel = pngLevel;
+  }
+
+  /**
+   * getter method for whether PPM and PGM files are written with plain or binary samples.
+   *
+   * @return the format of PPM and PGM files
+   */
+  public PNMFormat getPNMFormat() {
+    return this.pnmFormat;
+  }
+
+  /**
+   * getter method for the quality of JPEG files.
+   *
+   * @return the quality, from 1 to 100, or DEFAULT
+   */
+  public int getJpegQuality() {
+    return this.jpegQuality;
+  }
+
+  /**
+   * getter method for the deflate level of PNG files.
+   *
+   * @return the level, from 0 to 9, or DEFAULT
+   */
+  public int getPngLevel() {
+    return this.pngLevel;
+  }
+}
@@ -3,15 +3,21 @@ package controller;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import model.BlurFilter;
+import model.BoxBlurFilter;
 import model.ComplexMultiLayerIModel;
 import model.ComplexMultiLayerModel;
+import model.GaussianBlurFilter;
 import model.GreyScaleFilter;
 import model.IImage;
+import model.IKernel;
 import model.IModel;
+import model.RepeatedFilter;
 import model.SepiaFilter;
 import model.SharpenFilter;
+import model.StackedBoxBlurFilter;
 import view.IView;
 
 /**
@@ -54,11 +60,15 @@ public class SwingController implements ISwingController, ActionListener {
       //read from the input textfield
       case "open file": {
         view.openFile();
-        List<IImage> images = ImageUtil.readFile(view.getImageFilePath());
-        model = new ComplexMultiLayerModel("layer1", images.get(0)) {
-        };
-        for (int i = 1; i < images.size(); i++) {
-          model.addLayer("layer" + (i + 1), images.get(i));
+        if (view.getImageFilePath().endsWith(ProjectFile.EXTENSION)) {
+          model = ImageUtil.openProject(view.getImageFilePath(), ComplexMultiLayerModel::new);
+        } else {
+          List<IImage> images = ImageUtil.readFile(view.getImageFilePath());
+          model = new ComplexMultiLayerModel("layer1", images.get(0)) {
+          };
+          for (int i = 1; i < images.size(); i++) {
+            model.addLayer("layer" + (i + 1), images.get(i));
+          }
         }
         view.setLayerNames(model.getLayerNames());
         view.setImage(model);
@@ -147,12 +157,18 @@ public class SwingController implements ISwingController, ActionListener {
           break;
         }
         String saveFilePath = view.getSaveFilePath();
+        if (saveFilePath.endsWith(ProjectFile.EXTENSION)) {
+          ImageUtil.saveProject(model, saveFilePath);
+          break;
+        }
         ArrayList<IModel> imageModelList3 = model.getLayers();
         ArrayList<IImage> imageList3 = new ArrayList<>();
         for (IModel mod : imageModelList3) {
           imageList3.add(mod.getImage());
         }
-        ImageUtil.writeFile(imageList3, saveFilePath);
+        ImageUtil.writeFile(imageList3, saveFilePath,
+            new SaveOptions(view.isBinarySave() ? PNMFormat.BINARY : PNMFormat.PLAIN,
+                view.getJpegQuality(), view.getPngLevel()));
       }
       break;
       case "Exit Button":
@@ -168,21 +184,46 @@ public class SwingController implements ISwingController, ActionListener {
    * @param filter the name of the filter to apply to the current model layer
    */
   private void applyFilter(String filter, String layer) {
+    int times = view.getFilterRepeat();
     switch (filter) {
       case "Sepia": {
-        ImageUtil.batchApply(layer, model, new SepiaFilter());
+        ImageUtil.batchApply(layer, model,
+            Collections.nCopies(times, (IKernel) new SepiaFilter()), true);
       }
       break;
       case "GreyScale": {
-        ImageUtil.batchApply(layer, model, new GreyScaleFilter());
+        ImageUtil.batchApply(layer, model,
+            Collections.nCopies(times, (IKernel) new GreyScaleFilter()), true);
       }
       break;
       case "Blur": {
-        ImageUtil.batchApply(layer, model, new BlurFilter());
+        for (IKernel pass : RepeatedFilter.passes(new BlurFilter(), times)) {
+          ImageUtil.batchApply(layer, model, pass);
+        }
       }
       break;
       case "Sharpen": {
-        ImageUtil.batchApply(layer, model, new SharpenFilter());
+        for (IKernel pass : RepeatedFilter.passes(new SharpenFilter(), times)) {
+          ImageUtil.batchApply(layer, model, pass);
+        }
+      }
+      break;
+      case "Box Blur": {
+        // repeated box blurs are a stacked box blur
+        int radius = (int) view.getBlurSize();
+        ImageUtil.batchApply(layer, model, times == 1
+            ? new BoxBlurFilter(radius) : new StackedBoxBlurFilter(radius, times));
+      }
+      break;
+      case "Stacked Blur": {
+        ImageUtil.batchApply(layer, model,
+            new StackedBoxBlurFilter((int) view.getBlurSize(), 3 * times));
+      }
+      break;
+      case "Gaussian Blur": {
+        // blurring n times by sigma is one blur by sigma times the square root of n
+        ImageUtil.batchApply(layer, model,
+            new GaussianBlurFilter(view.getBlurSize() * Math.sqrt(times)));
       }
       break;
       default: throw new IllegalArgumentException("No such filter");
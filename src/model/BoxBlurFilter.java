@@ -0,0 +1,79 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * A box blur of any radius, which replaces every pixel by the average of the square of pixels
+ * within the radius of it. It is applied as a running sum along every row and then down every
+ * column, so it costs the same per pixel whatever its radius.
+ */
+public class BoxBlurFilter extends RunningBlurFilter {
+
+  private final int radius;
+
+  /**
+   * Constructor for a box blur of the supplied radius.
+   *
+   * @param radius the number of pixels on each side of a pixel that are averaged with it
+   * @throws IllegalArgumentException if the radius is less than one.
+   */
+  public BoxBlurFilter(int radius) throws IllegalArgumentException {
+    super(radius);
+    if (radius < 1) {
+      throw new IllegalArgumentException("blur radius must be at least 1");
+    }
+    this.radius = radius;
+  }
+
+  /**
+   * gets the passes of this blur: a single running sum.
+   *
+   * @return the passes of this blur
+   */
+  @Override
+  LinePass[] passes() {
+    return new LinePass[]{new BoxPass(this.radius)};
+  }
+
+  /**
+   * gets the number of pixels in the box, which every running sum is divided by.
+   *
+   * @return the scale of the result of the passes
+   */
+  @Override
+  double scale() {
+    double side = 2 * this.radius + 1;
+    return side * side;
+  }
+
+  /**
+   * gets the equal weights of the equivalent kernel along one axis.
+   *
+   * @return the one dimensional weights of this blur
+   */
+  @Override
+  double[] lineWeights() {
+    double[] weights = new double[2 * this.radius + 1];
+    Arrays.fill(weights, 1.0 / weights.length);
+    return weights;
+  }
+
+  /**
+   * describes this blur by its radius.
+   *
+   * @return the description of this blur
+   */
+  @Override
+  String describe() {
+    return "box blur " + this.radius;
+  }
+
+  /**
+   * getter method that returns the radius of this blur.
+   *
+   * @return the radius of this blur
+   */
+  public int getRadius() {
+    return this.radius;
+  }
+}
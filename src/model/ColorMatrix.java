@@ -0,0 +1,169 @@
+package model;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A 3x3 color transformation compiled into lookup tables. Every product of a kernel value and a
+ * channel value is computed once for each of the 256 possible channel values, so transforming a
+ * pixel takes nine table reads and six additions, and the result is clamped once when it is packed.
+ * Tables are built once per kernel instance and cached.
+ *
+ * <p>The tables hold exactly the double products ImageModel has always computed, and they are
+ * added in the same order before truncating, so the results are identical to multiplying through
+ * the kernel for every pixel.
+ *
+ * <p>A chain of color transformations can be run in one pass in two ways: exactly, by passing
+ * every pixel through each step's tables in turn, truncating and clamping after every step just as
+ * separate passes would; or fused, by multiplying the chain's matrices into one matrix, which
+ * costs a single step per pixel but skips the truncation and clamping between steps.
+ */
+final class ColorMatrix {
+
+  private static final Map<IKernel, ColorMatrix> CACHE =
+      Collections.synchronizedMap(new WeakHashMap<>());
+
+  // redFrom[c][v] is the contribution of value v of input channel c to the output red channel
+  private final double[][] redFrom;
+  private final double[][] greenFrom;
+  private final double[][] blueFrom;
+
+  private ColorMatrix(double[][] weights) {
+    this.redFrom = tables(weights, 0);
+    this.greenFrom = tables(weights, 1);
+    this.blueFrom = tables(weights, 2);
+  }
+
+  /**
+   * gets the tables of the supplied color transformation kernel, building them the first time the
+   * kernel is seen.
+   *
+   * @param kernel the 3x3 color transformation kernel, indexed [input channel][output channel]
+   * @return the compiled color transformation
+   */
+  static ColorMatrix of(IKernel kernel) {
+    ColorMatrix matrix = CACHE.get(kernel);
+    if (matrix == null) {
+      matrix = new ColorMatrix(weights(kernel));
+      CACHE.put(kernel, matrix);
+    }
+    return matrix;
+  }
+
+  /**
+   * multiplies a chain of color transformation kernels into the single transformation that has
+   * the same effect when no value is truncated or clamped between steps.
+   *
+   * @param kernels the 3x3 color transformation kernels, in the order they are applied
+   * @return the compiled product of the kernels
+   */
+  static ColorMatrix product(List<IKernel> kernels) {
+    double[][] product = new double[][]{{1, 0, 0}, {0, 1, 0}, {0, 0, 1}};
+    for (IKernel kernel : kernels) {
+      double[][] step = weights(kernel);
+      double[][] next = new double[3][3];
+      for (int in = 0; in < 3; in++) {
+        for (int out = 0; out < 3; out++) {
+          for (int between = 0; between < 3; between++) {
+            next[in][out] += product[in][between] * step[between][out];
+          }
+        }
+      }
+      product = next;
+    }
+    return new ColorMatrix(product);
+  }
+
+  private static double[][] weights(IKernel kernel) {
+    double[][] weights = new double[3][3];
+    for (int in = 0; in < 3; in++) {
+      for (int out = 0; out < 3; out++) {
+        weights[in][out] = kernel.getInKernel(in, out);
+      }
+    }
+    return weights;
+  }
+
+  private static double[][] tables(double[][] weights, int outputChannel) {
+    double[][] tables = new double[3][256];
+    for (int inputChannel = 0; inputChannel < 3; inputChannel++) {
+      double weight = weights[inputChannel][outputChannel];
+      for (int value = 0; value < 256; value++) {
+        tables[inputChannel][value] = weight * value;
+      }
+    }
+    return tables;
+  }
+
+  /**
+   * transforms the rows from fromRow (inclusive) to toRow (exclusive) of a packed image.
+   *
+   * @param src     the packed pixels of the image, row-major
+   * @param out     the array to write the transformed pixels to, row-major
+   * @param width   the width of the image
+   * @param fromRow the first row to transform
+   * @param toRow   the row after the last row to transform
+   */
+  void processRows(int[] src, int[] out, int width, int fromRow, int toRow) {
+    double[] redFromRed = this.redFrom[0];
+    double[] redFromGreen = this.redFrom[1];
+    double[] redFromBlue = this.redFrom[2];
+    double[] greenFromRed = this.greenFrom[0];
+    double[] greenFromGreen = this.greenFrom[1];
+    double[] greenFromBlue = this.greenFrom[2];
+    double[] blueFromRed = this.blueFrom[0];
+    double[] blueFromGreen = this.blueFrom[1];
+    double[] blueFromBlue = this.blueFrom[2];
+    for (int i = width * fromRow; i < width * toRow; i++) {
+      int rgb = src[i];
+      int red = (rgb >> 16) & 0xFF;
+      int green = (rgb >> 8) & 0xFF;
+      int blue = rgb & 0xFF;
+      out[i] = PackedImage.pack(
+          (int) (redFromRed[red] + redFromGreen[green] + redFromBlue[blue]),
+          (int) (greenFromRed[red] + greenFromGreen[green] + greenFromBlue[blue]),
+          (int) (blueFromRed[red] + blueFromGreen[green] + blueFromBlue[blue]));
+    }
+  }
+
+  /**
+   * transforms the rows from fromRow (inclusive) to toRow (exclusive) of a packed image by every
+   * one of the supplied transformations in turn, truncating and clamping after each of them.
+   *
+   * @param steps   the transformations, in the order they are applied
+   * @param src     the packed pixels of the image, row-major
+   * @param out     the array to write the transformed pixels to, row-major
+   * @param width   the width of the image
+   * @param fromRow the first row to transform
+   * @param toRow   the row after the last row to transform
+   */
+  static void processRows(List<ColorMatrix> steps, int[] src, int[] out, int width, int fromRow,
+      int toRow) {
+    ColorMatrix[] chain = steps.toArray(new ColorMatrix[0]);
+    for (int i = width * fromRow; i < width * toRow; i++) {
+      int rgb = src[i];
+      for (ColorMatrix step : chain) {
+        rgb = step.transform(rgb);
+      }
+      out[i] = rgb;
+    }
+  }
+
+  /**
+   * transforms one packed pixel.
+   *
+   * @param rgb the packed pixel
+   * @return the packed, clamped transformed pixel
+   */
+  int transform(int rgb) {
+    int red = (rgb >> 16) & 0xFF;
+    int green = (rgb >> 8) & 0xFF;
+    int blue = rgb & 0xFF;
+    return PackedImage.pack(
+        (int) (this.redFrom[0][red] + this.redFrom[1][green] + this.redFrom[2][blue]),
+        (int) (this.greenFrom[0][red] + this.greenFrom[1][green] + this.greenFrom[2][blue]),
+        (int) (this.blueFrom[0][red] + this.blueFrom[1][green] + this.blueFrom[2][blue]));
+  }
+}
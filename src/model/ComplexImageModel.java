@@ -1,12 +1,6 @@
 package model;
 
-import java.awt.Point;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Random;
-import java.util.Set;
 
 /**
  * A representation of a ComplexImageModel that extends ImageModel and implements the IComplexModel
@@ -39,7 +33,8 @@ public class ComplexImageModel extends ImageModel implements IComplexModel {
   }
 
   /**
-   * Returns a downscaled image of this model's image by a given width and height ratio.
+   * Returns a downscaled image of this model's image by a given width and height ratio, blending
+   * the nearest pixels of the original image as it always has.
    *
    * @param widthRatio  new width to original image width ratio
    * @param heightRatio new height to original image height ratio
@@ -49,6 +44,24 @@ public class ComplexImageModel extends ImageModel implements IComplexModel {
    */
   @Override
   public IImage downScale(double widthRatio, double heightRatio) {
+    return this.downScale(widthRatio, heightRatio, ResampleMode.BILINEAR);
+  }
+
+  /**
+   * Returns a downscaled image of this model's image by a given width and height ratio, computing
+   * the new pixels with the supplied resampling mode. The tables of which old pixels each new
+   * column and row reads are planned once for each pair of sizes and shared between images.
+   *
+   * @param widthRatio  new width to original image width ratio
+   * @param heightRatio new height to original image height ratio
+   * @param mode        how the new pixels are computed
+   * @return IImage of a downscaled version of the model's image by the given width and height
+   * @throws IllegalStateException    if the model image is null or created image would be empty
+   * @throws IllegalArgumentException if width or height ratio is not in range, or the mode is
+   *                                  null
+   */
+  @Override
+  public IImage downScale(double widthRatio, double heightRatio, ResampleMode mode) {
 
     if (image == null) {
       throw new IllegalStateException("Image provided is invalid");
@@ -66,120 +79,67 @@ public class ComplexImageModel extends ImageModel implements IComplexModel {
       throw new IllegalArgumentException("Height ratio not in range");
     }
 
-    List<Pixel> resultPixels = new ArrayList<>();
-
-    double resultWidth = Math.floor(imageWidth * widthRatio);
-    double resultHeight = Math.floor(imageHeight * heightRatio);
-
-    for (int newY = 0; newY < resultHeight; newY++) {
-      for (int newX = 0; newX < resultWidth; newX++) {
-
-        double oldX = (newX * imageWidth) / resultWidth;
-        double oldY = (newY * imageHeight) / resultHeight;
-
-        if (isDoubleInt(oldX) && isDoubleInt(oldY)) {
-
-          IPixel sourcePixel = image.getPixelAt((int) oldX, (int) oldY);
-
-          resultPixels
-              .add(new Pixel(sourcePixel.getRed(), sourcePixel.getGreen(), sourcePixel.getBlue()));
-
-        } else if (!isDoubleInt(oldX) && isDoubleInt(oldY)) {
-
-          resultPixels.add(
-              calcAverageTwoPixel(oldX, (int) Math.floor(oldX), (int) oldY, (int) Math.ceil(oldX),
-                  (int) oldY));
-
-        } else if (isDoubleInt(oldX) && !isDoubleInt(oldY)) {
-
-          resultPixels.add(calcAverageTwoPixel(oldY, (int) oldX, (int) Math.floor(oldY), (int) oldX,
-              (int) Math.ceil(oldY)));
-
-        } else {
-          resultPixels.add(
-              new Pixel(calcAverageFourPixelVal(oldX, oldY, 'R'),
-                  calcAverageFourPixelVal(oldX, oldY, 'G'),
-                  calcAverageFourPixelVal(oldX, oldY, 'B')));
-        }
-      }
+    if (mode == null) {
+      throw new IllegalArgumentException("Resample mode cannot be null");
     }
-    return new Image((int) resultWidth, (int) resultHeight, resultPixels);
-  }
 
-  /**
-   * Helper to determine if a given double is an integer.
-   *
-   * @param val double that is being queried
-   * @return true if the double is an integer and false if not
-   */
-  private boolean isDoubleInt(double val) {
-    return (val % 1) == 0;
-  }
+    int resultWidth = (int) Math.floor(imageWidth * widthRatio);
+    int resultHeight = (int) Math.floor(imageHeight * heightRatio);
 
-  /**
-   * Helper to return the channel value of a floating pixel by averaging the value of the same
-   * channel of two pixel according to the floating pixel's position on the 1D plane.
-   *
-   * @param val position of the floating pixel in the 1D plane
-   * @param a   value of the first pixel's channel
-   * @param b   value of the second pixel's channel
-   * @return floating pixel's supposed channel value according to the averaging formula
-   */
-  private int calcColorVal(double val, int a, int b) {
-    return (int) (b * (val - Math.floor(val)) + a * (Math.ceil(val) - val));
+    Resampler plan = Resampler.of(imageWidth, imageHeight, resultWidth, resultHeight, mode);
+    return new PackedImage(resultWidth, resultHeight, plan.resample(PackedImage.of(image)));
   }
 
   /**
-   * Helper to return a Pixel with average values according to its position in a 1D plane and the
-   * Pixels next to it.
+   * Returns a image that is the model's image with a mosaic filter with the given number of seeds
+   * applied.
    *
-   * @param val position of the floating pixel in the 1D plane
-   * @param x1  x-coordinate of the first pixel
-   * @param y1  y-coordinate of the first pixel
-   * @param x2  x-coordinate of the second pixel
-   * @param y2  y-coordinate of the second pixel
-   * @return
+   * @param seeds number of seeds the image will be broken into
+   * @return New IImage of this model's image with a mosaic effect applied
+   * @throws IllegalStateException    if the model image is null or model image is not of valid
+   *                                  dimensions
+   * @throws IllegalArgumentException if the provided seed number is invalid
    */
-  private Pixel calcAverageTwoPixel(double val, int x1, int y1, int x2, int y2) {
-    List<Character> colorChannels = new ArrayList<>(Arrays.asList('R', 'G', 'B'));
-    List<Integer> colorVals = new ArrayList<>();
-
-    for (Character c : colorChannels) {
-      colorVals.add(calcColorVal(val, calcPixel(x1, y1, c), calcPixel(x2, y2, c)));
+  public IImage applyMosaic(int seeds) {
+    this.checkMosaic(seeds);
+    if (seeds >= imageWidth * imageHeight) {
+      return image;
     }
-
-    return new Pixel(colorVals.get(0), colorVals.get(1), colorVals.get(2));
+    int[] labels = VoronoiGrid.random(imageWidth, imageHeight, seeds, new Random()).labels();
+    return this.mosaic(labels, seeds);
   }
 
   /**
-   * Helper to return a channel value by average values according a floating pixel's position in a
-   * 2D plane and the Pixels next to it.
+   * Returns a image that is the model's image with a mosaic filter with the given number of seeds
+   * applied, placing the seeds with a Random seeded with the given value. The same seeds on an
+   * image of the same size always give the same mosaic, and the tiles of recent seeded mosaics are
+   * kept, so applying one to several images of the same size only averages their colors again.
    *
-   * @param x x-coordinate of the floating pixel
-   * @param y y-coordinate of the floating pixel
-   * @param c character corresponding to the color channel
-   * @return averaged channel value according to the floating pixel's position in a 2D plane
+   * @param seeds      number of seeds the image will be broken into
+   * @param randomSeed seed of the Random that places the seeds
+   * @return New IImage of this model's image with a mosaic effect applied
+   * @throws IllegalStateException    if the model image is null or model image is not of valid
+   *                                  dimensions
+   * @throws IllegalArgumentException if the provided seed number is invalid
    */
-  private int calcAverageFourPixelVal(double x, double y, char c) {
-    int m = calcColorVal(x, calcPixel((int) Math.floor(x), (int) Math.floor(y), c),
-        calcPixel((int) Math.ceil(x), (int) Math.floor(y), c));
-    int n = calcColorVal(x, calcPixel((int) Math.floor(x), (int) Math.ceil(y), c),
-        calcPixel((int) Math.ceil(x), (int) Math.ceil(y), c));
-    return calcColorVal(y, m, n);
+  public IImage applyMosaic(int seeds, long randomSeed) {
+    this.checkMosaic(seeds);
+    if (seeds >= imageWidth * imageHeight) {
+      return image;
+    }
+    return this.mosaic(VoronoiGrid.labels(imageWidth, imageHeight, seeds, randomSeed), seeds);
   }
 
   /**
-   * Returns a image that is the model's image with a mosaic filter with the given number of seeds
-   * applied.
+   * Helper to check that a mosaic with the given number of seeds can be applied to this model's
+   * image.
    *
    * @param seeds number of seeds the image will be broken into
-   * @return New IImage of this model's image with a mosaic effect applied
    * @throws IllegalStateException    if the model image is null or model image is not of valid
    *                                  dimensions
    * @throws IllegalArgumentException if the provided seed number is invalid
    */
-  public IImage applyMosaic(int seeds) {
-
+  private void checkMosaic(int seeds) {
     if (image == null) {
       throw new IllegalStateException("Image provided is invalid");
     }
@@ -189,94 +149,48 @@ public class ComplexImageModel extends ImageModel implements IComplexModel {
     if (imageWidth < 1 || imageHeight < 1) {
       throw new IllegalStateException("Image provided is not of valid dimensions");
     }
-    if (seeds >= imageWidth * imageHeight) {
-      return image;
-    }
-
-    HashMap<Point, List<Point>> mapSeeds = new HashMap<Point, List<Point>>();
-    Random random = new Random();
-
-    //create Hashmap of random seeds (special points)
-    for (int seedNum = 0; seedNum < seeds; seedNum++) {
-      mapSeeds.put(new Point(random.nextInt(imageWidth + 1), random.nextInt(imageHeight + 1)),
-          new ArrayList<>());
-    }
+  }
 
-    //for each point find the closest seed and add that point to the value list of that seed
-    for (int y = 0; y < imageHeight; y++) {
-      for (int x = 0; x < imageWidth; x++) {
-        mapSeeds.get(getClosestSeed(x, y, mapSeeds.keySet())).add(new Point(x, y));
-      }
+  /**
+   * Helper to return this model's image as a mosaic with the given tiles. Every pixel takes the
+   * average color of all the pixels with the same label as its own.
+   *
+   * @param labels the seed each pixel belongs to, row by row
+   * @param seeds  number of seeds
+   * @return New IImage of the mosaic
+   */
+  private IImage mosaic(int[] labels, int seeds) {
+    int[] src = PackedImage.of(image).rgb;
+
+    //sum the rgb values of the pixels of each seed
+    long[] totalR = new long[seeds];
+    long[] totalG = new long[seeds];
+    long[] totalB = new long[seeds];
+    int[] numPoints = new int[seeds];
+    for (int i = 0; i < labels.length; i++) {
+      int seed = labels[i];
+      int rgb = src[i];
+      totalR[seed] += PackedImage.red(rgb);
+      totalG[seed] += PackedImage.green(rgb);
+      totalB[seed] += PackedImage.blue(rgb);
+      numPoints[seed]++;
     }
 
-    HashMap<Integer, Pixel> resultMap = new HashMap<Integer, Pixel>();
-
-    //for each seed
-    for (List<Point> points : mapSeeds.values()) {
-      if (points.size() == 0) {
-        continue;
-      }
-      int numPoints = points.size();
-      int totalR = 0;
-      int totalG = 0;
-      int totalB = 0;
-
-      //for each point corresponding to this seed
-      //sum the rgb values
-      for (Point point : points) {
-        Pixel pixel = image.getPixelAt(point.x, point.y);
-        totalR += pixel.getRed();
-        totalG += pixel.getGreen();
-        totalB += pixel.getBlue();
-      }
-
-      //finds the average rgb values
-      totalR = totalR / numPoints;
-      totalG = totalG / numPoints;
-      totalB = totalB / numPoints;
-
-      for (Point p : points) {
-        resultMap.put(p.x + (imageWidth * p.y), new Pixel(totalR, totalG, totalB));
+    //finds the average rgb values
+    int[] average = new int[seeds];
+    for (int seed = 0; seed < seeds; seed++) {
+      if (numPoints[seed] > 0) {
+        average[seed] = PackedImage.pack((int) (totalR[seed] / numPoints[seed]),
+            (int) (totalG[seed] / numPoints[seed]), (int) (totalB[seed] / numPoints[seed]));
       }
     }
 
-    List<Pixel> resultPixels = new ArrayList<Pixel>();
-
-    for (int y = 0; y < imageHeight; y++) {
-      for (int x = 0; x < imageWidth; x++) {
-        resultPixels.add(resultMap.get(x + (imageWidth * y)));
-      }
+    int[] resultPixels = new int[labels.length];
+    for (int i = 0; i < labels.length; i++) {
+      resultPixels[i] = average[labels[i]];
     }
 
     //returns the final image
-    return new Image(imageWidth, imageHeight, resultPixels);
-  }
-
-  /**
-   * Helper to return a Point corresponding to the closest seed to a given coordinate.
-   *
-   * @param x          x-coordinate in question
-   * @param y          y-coordinate in question
-   * @param seedPoints Set of Points corresponding to all the seeds of the new image
-   * @return Point of the closest seed
-   */
-  private Point getClosestSeed(int x, int y, Set<Point> seedPoints) {
-
-    double minDist = Double.MAX_VALUE;
-
-    Point closestSeed = null;
-
-    for (Point p : seedPoints) {
-
-      double distance = Math.sqrt(Math.pow(p.getX() - x, 2) + Math.pow(p.getY() - y, 2));
-
-      if (distance == 0) {
-        return p;
-      } else if (distance < minDist) {
-        minDist = distance;
-        closestSeed = p;
-      }
-    }
-    return closestSeed;
+    return new PackedImage(imageWidth, imageHeight, resultPixels);
   }
 }
\ No newline at end of file
@@ -46,26 +46,33 @@ public class ComplexMultiLayerModel extends SimpleMultiLayerModel implements
   }
 
   /**
-   * returns the current layer of this multi layer image model as a ComplexImageModel.
+   * Returns a downscaled image of this model's current image by the provided ratios.
    *
-   * @return the IModel of the current layer of this multi layer image.
+   * @param widthRatio  the ratio of the new width to the original image width from 0.0 - 1.0
+   * @param heightRatio the ratio of the new height to the original image height 0.0 - 1.0
+   * @return downscaled image by the given ratios
+   * @throws IllegalStateException    if the current model image is null, created image would be
+   *                                  empty, or current model does not support downscaling
+   * @throws IllegalArgumentException if width or height ratio is not in range
    */
-  @Override
-  public IModel getCurrent() {
-    return new ComplexImageModel(current.getImage());
+  public IImage downScale(double widthRatio, double heightRatio)
+      throws IllegalStateException, IllegalArgumentException {
+    return this.downScale(widthRatio, heightRatio, ResampleMode.BILINEAR);
   }
 
   /**
-   * Returns a downscaled image of this model's current image by the provided ratios.
+   * Returns a downscaled image of this model's current image by the provided ratios, computing the
+   * new pixels with the supplied resampling mode.
    *
    * @param widthRatio  the ratio of the new width to the original image width from 0.0 - 1.0
    * @param heightRatio the ratio of the new height to the original image height 0.0 - 1.0
+   * @param mode        how the new pixels are computed
    * @return downscaled image by the given ratios
    * @throws IllegalStateException    if the current model image is null, created image would be
    *                                  empty, or current model does not support downscaling
-   * @throws IllegalArgumentException if width or height ratio is not in range
+   * @throws IllegalArgumentException if width or height ratio is not in range, or the mode is null
    */
-  public IImage downScale(double widthRatio, double heightRatio)
+  public IImage downScale(double widthRatio, double heightRatio, ResampleMode mode)
       throws IllegalStateException, IllegalArgumentException {
 
     if (getCurrent().getImage() == null) {
@@ -85,8 +92,20 @@ public class ComplexMultiLayerModel extends SimpleMultiLayerModel implements
       throw new IllegalArgumentException("Height ratio not in range");
     }
 
+    if (mode == null) {
+      throw new IllegalArgumentException("Resample mode cannot be null");
+    }
+
     if (getCurrent() instanceof IComplexModel) {
-      return ((IComplexModel) getCurrent()).downScale(widthRatio, heightRatio);
+      IComplexModel layer = (IComplexModel) getCurrent();
+      if (this.lazy) {
+        IImage source = layer.getImage();
+        return LazyImage.derive(source, "downScale " + widthRatio + " " + heightRatio + " " + mode,
+            (int) Math.floor(source.getWidth() * widthRatio),
+            (int) Math.floor(source.getHeight() * heightRatio),
+            () -> layer.downScale(widthRatio, heightRatio, mode));
+      }
+      return layer.downScale(widthRatio, heightRatio, mode);
     } else {
       throw new IllegalStateException("This image does not support down sizing");
     }
@@ -103,6 +122,39 @@ public class ComplexMultiLayerModel extends SimpleMultiLayerModel implements
    * @throws IllegalArgumentException if the provided seed number is invalid
    */
   public IImage applyMosaic(int seeds) throws IllegalStateException, IllegalArgumentException {
+    return this.mosaic(seeds, null);
+  }
+
+  /**
+   * Returns an image of the this model's current image with a mosaic filter with the given number
+   * of seeds applied, placing the seeds with a Random seeded with the given value. The tiles of
+   * recent seeded mosaics are kept, so the same mosaic on every layer finds the tiles once.
+   *
+   * @param seeds      number of seeds in the new image
+   * @param randomSeed seed of the Random that places the seeds
+   * @return new image with a mosaic filter with the given seeds applied
+   * @throws IllegalStateException    if provided image is null, current image is not of valid
+   *                                  dimensions, or the current model does not support downscaling
+   * @throws IllegalArgumentException if the provided seed number is invalid
+   */
+  public IImage applyMosaic(int seeds, long randomSeed)
+      throws IllegalStateException, IllegalArgumentException {
+    return this.mosaic(seeds, randomSeed);
+  }
+
+  /**
+   * Helper to apply a mosaic to this model's current image, with seeds placed at random or from
+   * the given seed.
+   *
+   * @param seeds      number of seeds in the new image
+   * @param randomSeed seed of the Random that places the seeds, or null to place them at random
+   * @return new image with a mosaic filter with the given seeds applied
+   * @throws IllegalStateException    if provided image is null, current image is not of valid
+   *                                  dimensions, or the current model does not support downscaling
+   * @throws IllegalArgumentException if the provided seed number is invalid
+   */
+  private IImage mosaic(int seeds, Long randomSeed)
+      throws IllegalStateException, IllegalArgumentException {
 
     if (getCurrent().getImage() == null) {
       throw new IllegalStateException("Image provided is invalid");
@@ -115,7 +167,17 @@ public class ComplexMultiLayerModel extends SimpleMultiLayerModel implements
     }
 
     if (getCurrent() instanceof IComplexModel) {
-      return ((IComplexModel) getCurrent()).applyMosaic(seeds);
+      IComplexModel layer = (IComplexModel) getCurrent();
+      if (randomSeed == null) {
+        // mosaics seeded at random are never shared
+        return this.lazy ? this.defer(null, () -> layer.applyMosaic(seeds))
+            : layer.applyMosaic(seeds);
+      }
+      if (this.lazy) {
+        return this.defer("mosaic " + seeds + " " + randomSeed,
+            () -> layer.applyMosaic(seeds, randomSeed));
+      }
+      return layer.applyMosaic(seeds, randomSeed);
     } else {
       throw new IllegalStateException("This image does not support applying mosaic filter");
     }
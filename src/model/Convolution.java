@@ -0,0 +1,199 @@
+package model;
+
+/**
+ * A convolution of one packed image by one filter kernel. The kernel is read once into flat
+ * arrays of weights and pixel offsets, the interior of the image (where the whole kernel fits) is
+ * filtered without any bounds checks, and only the border pixels go through the edge mode.
+ *
+ * <p>Kernels that are only ever filtered here (see FilterEngine.isDirectOnly), such as every 3x3
+ * kernel and the 5x5 sharpen, whether built in or supplied, accumulate every tap exactly the way
+ * ImageModel always has: the running total of each channel is an int, and each weighted tap is
+ * added to it and truncated in turn. Every other kernel may be filtered by this,
+ * SeparableConvolution or FftConvolution, whichever is cheapest, so it is rounded the way all three
+ * round: each channel is summed as a double and truncated once per pixel, after adding
+ * SeparableConvolution.ROUNDING_SLACK. Such a kernel then gives the same pixels whichever way it is
+ * filtered.
+ *
+ * <p>Where InteriorRows has a vector implementation, runs of interior pixels are handed to it and
+ * filtered several at a time, with the same arithmetic and so the same results.
+ */
+final class Convolution {
+
+  private static final InteriorRows VECTOR = InteriorRows.VECTOR;
+
+  private final int[] src;
+  private final int width;
+  private final int height;
+  private final EdgeMode edgeMode;
+
+  private final int halfX;
+  private final int halfY;
+  private final int[] tapX;
+  private final int[] tapY;
+  private final int[] tapOffsets;
+  private final double[] weights;
+  private final boolean truncateTaps;
+
+  /**
+   * Constructor for a convolution of the supplied image by the supplied kernel.
+   *
+   * @param image    the image to filter
+   * @param kernel   the kernel to filter the image by, with odd dimensions
+   * @param edgeMode how to treat taps that fall outside of the image
+   */
+  Convolution(PackedImage image, IKernel kernel, EdgeMode edgeMode) {
+    this.src = image.rgb;
+    this.width = image.getWidth();
+    this.height = image.getHeight();
+    this.edgeMode = edgeMode;
+
+    double[][] kernelArray = kernel.getKernelArray();
+    int length = kernel.getLength();
+    int kernelHeight = kernel.getHeight();
+    this.halfX = length / 2;
+    this.halfY = kernelHeight / 2;
+    this.tapX = new int[length * kernelHeight];
+    this.tapY = new int[length * kernelHeight];
+    this.tapOffsets = new int[length * kernelHeight];
+    this.weights = new double[length * kernelHeight];
+    this.truncateTaps = FilterEngine.isDirectOnly(kernel);
+
+    // taps are stored in the order ImageModel has always visited them: row by row, left to right
+    int tap = 0;
+    for (int ky = 0; ky < kernelHeight; ky++) {
+      for (int kx = 0; kx < length; kx++) {
+        this.tapX[tap] = kx - this.halfX;
+        this.tapY[tap] = ky - this.halfY;
+        this.tapOffsets[tap] = this.tapX[tap] + this.width * this.tapY[tap];
+        this.weights[tap] = kernelArray[kx][ky];
+        tap++;
+      }
+    }
+  }
+
+  /**
+   * filters the rows from fromRow (inclusive) to toRow (exclusive) into the supplied array.
+   *
+   * @param out     the packed pixels of the filtered image, row-major
+   * @param fromRow the first row to filter
+   * @param toRow   the row after the last row to filter
+   */
+  void filterRows(int[] out, int fromRow, int toRow) {
+    int interiorLeft = Math.min(this.halfX, this.width);
+    int interiorRight = Math.max(interiorLeft, this.width - this.halfX);
+    for (int y = fromRow; y < toRow; y++) {
+      if (y < this.halfY || y >= this.height - this.halfY) {
+        for (int x = 0; x < this.width; x++) {
+          out[x + this.width * y] = this.borderPixel(x, y);
+        }
+        continue;
+      }
+      for (int x = 0; x < interiorLeft; x++) {
+        out[x + this.width * y] = this.borderPixel(x, y);
+      }
+      int from = interiorLeft;
+      if (VECTOR != null) {
+        from = VECTOR.filter(this.src, out, interiorLeft + this.width * y,
+            interiorRight + this.width * y, this.tapOffsets, this.weights, this.truncateTaps)
+            - this.width * y;
+      }
+      for (int x = from; x < interiorRight; x++) {
+        out[x + this.width * y] = this.interiorPixel(x + this.width * y);
+      }
+      for (int x = interiorRight; x < this.width; x++) {
+        out[x + this.width * y] = this.borderPixel(x, y);
+      }
+    }
+  }
+
+  /**
+   * filters a pixel whose every tap lies inside of the image.
+   *
+   * @param index the index of the pixel in the packed array
+   * @return the packed filtered pixel
+   */
+  private int interiorPixel(int index) {
+    if (!this.truncateTaps) {
+      double sumR = 0;
+      double sumG = 0;
+      double sumB = 0;
+      for (int tap = 0; tap < this.weights.length; tap++) {
+        int rgb = this.src[index + this.tapOffsets[tap]];
+        double weight = this.weights[tap];
+        sumR += weight * ((rgb >> 16) & 0xFF);
+        sumG += weight * ((rgb >> 8) & 0xFF);
+        sumB += weight * (rgb & 0xFF);
+      }
+      return truncate(sumR, sumG, sumB);
+    }
+    int resultR = 0;
+    int resultG = 0;
+    int resultB = 0;
+    for (int tap = 0; tap < this.weights.length; tap++) {
+      int rgb = this.src[index + this.tapOffsets[tap]];
+      double weight = this.weights[tap];
+      resultR += weight * ((rgb >> 16) & 0xFF);
+      resultG += weight * ((rgb >> 8) & 0xFF);
+      resultB += weight * (rgb & 0xFF);
+    }
+    return PackedImage.pack(resultR, resultG, resultB);
+  }
+
+  /**
+   * filters a pixel near the border, resolving every tap through the edge mode.
+   *
+   * @param x the column of the pixel
+   * @param y the row of the pixel
+   * @return the packed filtered pixel
+   */
+  private int borderPixel(int x, int y) {
+    if (!this.truncateTaps) {
+      double sumR = 0;
+      double sumG = 0;
+      double sumB = 0;
+      for (int tap = 0; tap < this.weights.length; tap++) {
+        int sourceX = this.edgeMode.resolve(x + this.tapX[tap], this.width);
+        int sourceY = this.edgeMode.resolve(y + this.tapY[tap], this.height);
+        if (sourceX >= 0 && sourceY >= 0) {
+          int rgb = this.src[sourceX + this.width * sourceY];
+          double weight = this.weights[tap];
+          sumR += weight * ((rgb >> 16) & 0xFF);
+          sumG += weight * ((rgb >> 8) & 0xFF);
+          sumB += weight * (rgb & 0xFF);
+        }
+      }
+      return truncate(sumR, sumG, sumB);
+    }
+    int resultR = 0;
+    int resultG = 0;
+    int resultB = 0;
+    for (int tap = 0; tap < this.weights.length; tap++) {
+      int sourceX = this.edgeMode.resolve(x + this.tapX[tap], this.width);
+      int sourceY = this.edgeMode.resolve(y + this.tapY[tap], this.height);
+      if (sourceX < 0 || sourceY < 0) {
+        // a black tap adds nothing to the running totals
+        continue;
+      }
+      int rgb = this.src[sourceX + this.width * sourceY];
+      double weight = this.weights[tap];
+      resultR += weight * ((rgb >> 16) & 0xFF);
+      resultG += weight * ((rgb >> 8) & 0xFF);
+      resultB += weight * (rgb & 0xFF);
+    }
+    return PackedImage.pack(resultR, resultG, resultB);
+  }
+
+  /**
+   * truncates the channel sums of a pixel the way every plan for large kernels does.
+   *
+   * @param red   the sum of the red channel
+   * @param green the sum of the green channel
+   * @param blue  the sum of the blue channel
+   * @return the packed pixel
+   */
+  private static int truncate(double red, double green, double blue) {
+    return PackedImage.pack((int) (red + SeparableConvolution.ROUNDING_SLACK),
+        (int) (green + SeparableConvolution.ROUNDING_SLACK),
+        (int) (blue + SeparableConvolution.ROUNDING_SLACK));
+  }
+}
@@ -0,0 +1,58 @@
+package model;
+
+/**
+ * The ways a filter kernel can treat the pixels it reaches past the border of an image.
+ */
+public enum EdgeMode {
+
+  /**
+   * Pixels outside of the image are black, so they add nothing to a filtered pixel. This is the
+   * default edge mode for filtering.
+   */
+  ZERO,
+
+  /**
+   * Pixels outside of the image take the color of the nearest pixel on the border.
+   */
+  CLAMP,
+
+  /**
+   * The image is reflected at its border without repeating the border pixel, so the pixel one
+   * step outside of the image is the pixel one step inside of it.
+   */
+  MIRROR,
+
+  /**
+   * The image repeats itself, so stepping off one side of the image continues on the other side.
+   */
+  WRAP;
+
+  /**
+   * maps a coordinate that may lie outside of the image onto the coordinate of the pixel this edge
+   * mode reads instead.
+   *
+   * @param index the coordinate, possibly outside of the image
+   * @param size  the width or height of the image along the coordinate's axis
+   * @return the coordinate of the pixel to read, or -1 if no pixel should be read
+   */
+  int resolve(int index, int size) {
+    if (index >= 0 && index < size) {
+      return index;
+    }
+    switch (this) {
+      case CLAMP:
+        return index < 0 ? 0 : size - 1;
+      case MIRROR:
+        if (size == 1) {
+          return 0;
+        }
+        int period = 2 * (size - 1);
+        int folded = Math.floorMod(index, period);
+        return folded < size ? folded : period - folded;
+      case WRAP:
+        return Math.floorMod(index, size);
+      default:
+        return -1;
+    }
+  }
+}
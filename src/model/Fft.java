@@ -0,0 +1,127 @@
+package model;
+
+/**
+ * An in-place radix-2 fast Fourier transform of square arrays of complex numbers, stored as
+ * separate row-major arrays of real and imaginary parts. The bit reversal permutation and the
+ * twiddle factors are computed once for each transform size.
+ */
+final class Fft {
+
+  private final int size;
+  private final int[] reversed;
+  private final double[] cos;
+  private final double[] sin;
+
+  /**
+   * Constructor for a transform of square arrays of the supplied size.
+   *
+   * @param size the width and height of the arrays to transform, a power of two
+   * @throws IllegalArgumentException if the size is not a power of two
+   */
+  Fft(int size) throws IllegalArgumentException {
+    if (size < 1 || Integer.bitCount(size) != 1) {
+      throw new IllegalArgumentException("transform size must be a power of two");
+    }
+    this.size = size;
+    this.reversed = new int[size];
+    int bits = Integer.numberOfTrailingZeros(size);
+    for (int i = 0; i < size; i++) {
+      this.reversed[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+    }
+    this.cos = new double[size / 2];
+    this.sin = new double[size / 2];
+    for (int i = 0; i < size / 2; i++) {
+      this.cos[i] = Math.cos(2 * Math.PI * i / size);
+      this.sin[i] = Math.sin(2 * Math.PI * i / size);
+    }
+  }
+
+  /**
+   * getter method for the width and height of the arrays this transform works on.
+   *
+   * @return the size of the transform
+   */
+  int size() {
+    return this.size;
+  }
+
+  /**
+   * transforms a square array in place, row by row and then column by column. The inverse
+   * transform is scaled, so that it undoes the forward transform exactly.
+   *
+   * @param re      the real parts, row-major
+   * @param im      the imaginary parts, row-major
+   * @param inverse whether to apply the inverse transform
+   */
+  void transform2d(double[] re, double[] im, boolean inverse) {
+    int n = this.size;
+    double[] lineRe = new double[n];
+    double[] lineIm = new double[n];
+    for (int row = 0; row < n; row++) {
+      System.arraycopy(re, row * n, lineRe, 0, n);
+      System.arraycopy(im, row * n, lineIm, 0, n);
+      this.transform(lineRe, lineIm, inverse);
+      System.arraycopy(lineRe, 0, re, row * n, n);
+      System.arraycopy(lineIm, 0, im, row * n, n);
+    }
+    for (int column = 0; column < n; column++) {
+      for (int i = 0; i < n; i++) {
+        lineRe[i] = re[column + n * i];
+        lineIm[i] = im[column + n * i];
+      }
+      this.transform(lineRe, lineIm, inverse);
+      for (int i = 0; i < n; i++) {
+        re[column + n * i] = lineRe[i];
+        im[column + n * i] = lineIm[i];
+      }
+    }
+    if (inverse) {
+      double scale = 1.0 / ((double) n * n);
+      for (int i = 0; i < re.length; i++) {
+        re[i] *= scale;
+        im[i] *= scale;
+      }
+    }
+  }
+
+  /**
+   * transforms one line of complex numbers in place, without scaling.
+   *
+   * @param re      the real parts
+   * @param im      the imaginary parts
+   * @param inverse whether to apply the inverse transform
+   */
+  private void transform(double[] re, double[] im, boolean inverse) {
+    int n = this.size;
+    for (int i = 0; i < n; i++) {
+      int j = this.reversed[i];
+      if (j > i) {
+        double swap = re[i];
+        re[i] = re[j];
+        re[j] = swap;
+        swap = im[i];
+        im[i] = im[j];
+        im[j] = swap;
+      }
+    }
+    double sign = inverse ? 1 : -1;
+    for (int length = 2; length <= n; length <<= 1) {
+      int half = length / 2;
+      int step = n / length;
+      for (int start = 0; start < n; start += length) {
+        for (int k = 0; k < half; k++) {
+          double wr = this.cos[k * step];
+          double wi = sign * this.sin[k * step];
+          int even = start + k;
+          int odd = even + half;
+          double oddRe = re[odd] * wr - im[odd] * wi;
+          double oddIm = re[odd] * wi + im[odd] * wr;
+          re[odd] = re[even] - oddRe;
+          im[odd] = im[even] - oddIm;
+          re[even] += oddRe;
+          im[even] += oddIm;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,234 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * A convolution of one packed image by a large kernel, computed in the frequency domain. The
+ * image is filtered in square tiles: each tile of output is read from the image together with a
+ * border of half a kernel on every side (resolved through the edge mode), transformed, multiplied
+ * by the transformed kernel and transformed back, and only the part of the result that did not
+ * wrap around is kept (the overlap-save form of tiled convolution). Memory therefore stays at a
+ * few tiles per thread however large the image is. Work is split between threads by whole tiles,
+ * so no tile is ever transformed for fewer rows than it covers.
+ *
+ * <p>Red and green are transformed together as the real and imaginary parts of one complex tile,
+ * and blue on its own, so each tile takes two forward and two inverse transforms.
+ *
+ * <p>Like SeparableConvolution, each channel is summed in doubles and truncated once per pixel.
+ * Floating point error in the transforms is far below one unit of a channel, so every pixel
+ * matches the exactly summed kernel within one unit; pixels only differ where the exact sum lies
+ * within that error of a whole number.
+ */
+final class FftConvolution {
+
+  /**
+   * the smallest kernel for which a frequency domain plan is considered.
+   */
+  static final int MIN_SIZE = 11;
+
+  private static final int MAX_TRANSFORM_SIZE = 512;
+  // the cost of one butterfly of a transform, relative to one tap of a direct convolution
+  private static final double BUTTERFLY_COST = 2.0;
+
+  private final int[] src;
+  private final int width;
+  private final int height;
+  private final EdgeMode edgeMode;
+  private final int half;
+  private final Fft fft;
+  private final int tile;
+  private final double[] kernelRe;
+  private final double[] kernelIm;
+
+  /**
+   * Constructor for a frequency domain convolution of the supplied image by the supplied kernel,
+   * using transforms of the supplied size.
+   *
+   * @param image         the image to filter
+   * @param kernel        the square kernel of odd size to filter the image by
+   * @param edgeMode      how to treat taps that fall outside of the image
+   * @param transformSize the size of the transforms, a power of two larger than the kernel
+   */
+  FftConvolution(PackedImage image, IKernel kernel, EdgeMode edgeMode, int transformSize) {
+    this.src = image.rgb;
+    this.width = image.getWidth();
+    this.height = image.getHeight();
+    this.edgeMode = edgeMode;
+    int size = kernel.getLength();
+    this.half = size / 2;
+    this.fft = new Fft(transformSize);
+    this.tile = transformSize - size + 1;
+
+    // the kernel is stored reflected, so that convolving by it correlates by the kernel the way
+    // ImageModel filters: the output at p sums kernel[kx][ky] * input at p + (kx, ky) - half
+    int n = transformSize;
+    this.kernelRe = new double[n * n];
+    this.kernelIm = new double[n * n];
+    double[][] values = kernel.getKernelArray();
+    for (int kx = 0; kx < size; kx++) {
+      for (int ky = 0; ky < size; ky++) {
+        this.kernelRe[(n - kx) % n + n * ((n - ky) % n)] = values[kx][ky];
+      }
+    }
+    this.fft.transform2d(this.kernelRe, this.kernelIm, false);
+  }
+
+  /**
+   * estimates the cost per output pixel of filtering an image of the supplied size by a kernel of
+   * the supplied size with transforms of the supplied size, in the same units as one tap of a
+   * direct convolution. Tiles at the right and bottom of the image that hang over its edge cost as
+   * much as whole ones, so their waste is charged to the pixels of the image.
+   *
+   * @param kernelSize    the size of the kernel
+   * @param transformSize the size of the transforms
+   * @param width         the width of the image
+   * @param height        the height of the image
+   * @return the estimated cost per pixel
+   */
+  static double costPerPixel(int kernelSize, int transformSize, int width, int height) {
+    int tile = transformSize - kernelSize + 1;
+    double butterflies = (double) transformSize * transformSize
+        * Integer.numberOfTrailingZeros(transformSize);
+    // two forward and two inverse transforms, plus the products of the spectra
+    double perTile = 4 * butterflies * BUTTERFLY_COST + 2.0 * transformSize * transformSize;
+    double tiles = (double) ((width + tile - 1) / tile) * ((height + tile - 1) / tile);
+    return perTile * tiles / ((double) width * height);
+  }
+
+  /**
+   * chooses the cheapest transform size for filtering an image of the supplied size by a kernel of
+   * the supplied size.
+   *
+   * @param kernelSize the size of the kernel
+   * @param width      the width of the image
+   * @param height     the height of the image
+   * @return the cheapest transform size, or 0 if no transform size fits the kernel
+   */
+  static int bestTransformSize(int kernelSize, int width, int height) {
+    // there is no point in tiles much larger than the image itself
+    int largest = Integer.highestOneBit(Math.max(width, height) + kernelSize - 1) * 2;
+    largest = Math.min(MAX_TRANSFORM_SIZE, largest);
+    int best = 0;
+    for (int size = Integer.highestOneBit(kernelSize) * 2; size <= largest; size *= 2) {
+      if (best == 0 || costPerPixel(kernelSize, size, width, height)
+          < costPerPixel(kernelSize, best, width, height)) {
+        best = size;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * gets the number of tiles the image is filtered in, numbered row by row from the top left.
+   *
+   * @return the number of tiles
+   */
+  int tileCount() {
+    return this.tilesAcross() * ((this.height + this.tile - 1) / this.tile);
+  }
+
+  /**
+   * gets the number of output pixels in each whole tile.
+   *
+   * @return the area of a tile
+   */
+  int tileArea() {
+    return this.tile * this.tile;
+  }
+
+  /**
+   * gets the number of tiles across the image.
+   *
+   * @return the number of tiles in each row of tiles
+   */
+  private int tilesAcross() {
+    return (this.width + this.tile - 1) / this.tile;
+  }
+
+  /**
+   * filters the tiles from fromTile (inclusive) to toTile (exclusive) into the supplied array.
+   *
+   * @param out      the packed pixels of the filtered image, row-major
+   * @param fromTile the first tile to filter
+   * @param toTile   the tile after the last tile to filter
+   */
+  void filterTiles(int[] out, int fromTile, int toTile) {
+    int n = this.fft.size();
+    double[] redGreenRe = new double[n * n];
+    double[] redGreenIm = new double[n * n];
+    double[] blueRe = new double[n * n];
+    double[] blueIm = new double[n * n];
+    for (int t = fromTile; t < toTile; t++) {
+      int tileX = (t % this.tilesAcross()) * this.tile;
+      int tileY = (t / this.tilesAcross()) * this.tile;
+      int tileWidth = Math.min(this.tile, this.width - tileX);
+      int tileHeight = Math.min(this.tile, this.height - tileY);
+      this.readTile(tileX - this.half, tileY - this.half, redGreenRe, redGreenIm, blueRe, blueIm);
+      this.fft.transform2d(redGreenRe, redGreenIm, false);
+      this.fft.transform2d(blueRe, blueIm, false);
+      this.multiplyByKernel(redGreenRe, redGreenIm);
+      this.multiplyByKernel(blueRe, blueIm);
+      this.fft.transform2d(redGreenRe, redGreenIm, true);
+      this.fft.transform2d(blueRe, blueIm, true);
+      for (int y = 0; y < tileHeight; y++) {
+        for (int x = 0; x < tileWidth; x++) {
+          int i = x + n * y;
+          out[tileX + x + this.width * (tileY + y)] = PackedImage.pack(
+              (int) (redGreenRe[i] + SeparableConvolution.ROUNDING_SLACK),
+              (int) (redGreenIm[i] + SeparableConvolution.ROUNDING_SLACK),
+              (int) (blueRe[i] + SeparableConvolution.ROUNDING_SLACK));
+        }
+      }
+    }
+  }
+
+  /**
+   * reads the square block of the source image with the supplied top left corner into the real
+   * and imaginary parts of the two complex tiles, resolving pixels outside of the image through
+   * the edge mode.
+   *
+   * @param left       the column of the source image at the left of the block
+   * @param top        the row of the source image at the top of the block
+   * @param redGreenRe the array to read the red values into
+   * @param redGreenIm the array to read the green values into
+   * @param blueRe     the array to read the blue values into
+   * @param blueIm     the imaginary parts of the blue tile, cleared
+   */
+  private void readTile(int left, int top, double[] redGreenRe, double[] redGreenIm,
+      double[] blueRe, double[] blueIm) {
+    int n = this.fft.size();
+    Arrays.fill(blueIm, 0);
+    for (int y = 0; y < n; y++) {
+      int sourceY = this.edgeMode.resolve(top + y, this.height);
+      for (int x = 0; x < n; x++) {
+        int sourceX = sourceY < 0 ? -1 : this.edgeMode.resolve(left + x, this.width);
+        int i = x + n * y;
+        if (sourceX < 0) {
+          redGreenRe[i] = 0;
+          redGreenIm[i] = 0;
+          blueRe[i] = 0;
+          continue;
+        }
+        int rgb = this.src[sourceX + this.width * sourceY];
+        redGreenRe[i] = (rgb >> 16) & 0xFF;
+        redGreenIm[i] = (rgb >> 8) & 0xFF;
+        blueRe[i] = rgb & 0xFF;
+      }
+    }
+  }
+
+  /**
+   * multiplies a transformed tile by the transformed kernel, element by element.
+   *
+   * @param re the real parts of the tile
+   * @param im the imaginary parts of the tile
+   */
+  private void multiplyByKernel(double[] re, double[] im) {
+    for (int i = 0; i < re.length; i++) {
+      double productRe = re[i] * this.kernelRe[i] - im[i] * this.kernelIm[i];
+      double productIm = re[i] * this.kernelIm[i] + im[i] * this.kernelRe[i];
+      re[i] = productRe;
+      im[i] = productIm;
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package model;
+
+/**
+ * Chooses how a filter kernel is applied to a packed image, by estimating the cost per pixel of
+ * each plan that fits the kernel and taking the cheapest: a direct convolution, horizontal and
+ * vertical passes for kernels that decompose into few enough separable terms, or a tiled frequency
+ * domain convolution for large kernels that do not. Running blurs, whose cost does not depend on
+ * their size, are always applied through their own passes. Whichever plan is chosen, the rows of the
+ * output are filtered in bands through RowBands, so large images are spread across the pool's
+ * threads; the frequency domain plan shares out whole tiles instead of rows.
+ */
+final class FilterEngine {
+
+  private FilterEngine() {
+  }
+
+  /**
+   * gets how far from each output pixel the filter of the supplied kernel reads the image, so that
+   * a part of an image filtered together with that many pixels around it comes out the same as in
+   * the filtered whole image. The recursive Gaussian blur reaches further, but only faintly.
+   *
+   * @param kernel the kernel to filter by
+   * @return the reach of the kernel, in pixels
+   */
+  static int reach(IKernel kernel) {
+    int reach = kernel.getLength() / 2;
+    if (kernel instanceof RunningBlurFilter) {
+      reach = Math.max(reach, ((RunningBlurFilter) kernel).padding());
+    }
+    return reach;
+  }
+
+  /**
+   * whether the supplied kernel is only ever filtered by a direct convolution, whatever the size
+   * of the image: it is too small to be separated or transformed, or it is smaller than
+   * FftConvolution.MIN_SIZE and decomposes into too many terms for separable passes to be cheaper.
+   * This depends only on the values of the kernel.
+   *
+   * @param kernel the square kernel of odd size to filter by
+   * @return true if no plan but the direct one can take the kernel
+   */
+  static boolean isDirectOnly(IKernel kernel) {
+    int size = Math.max(kernel.getLength(), kernel.getHeight());
+    if (size < KernelDecomposition.MIN_SEPARABLE_SIZE) {
+      return true;
+    }
+    return size < FftConvolution.MIN_SIZE && !KernelDecomposition.of(kernel).isWorthSeparating();
+  }
+
+  /**
+   * chooses how the supplied kernel is applied to an image of the supplied size, by taking the plan
+   * with the lowest estimated cost per pixel.
+   *
+   * @param kernel the square kernel of odd size to filter by
+   * @param width  the width of the image
+   * @param height the height of the image
+   * @return the cheapest plan
+   */
+  static FilterPlan plan(IKernel kernel, int width, int height) {
+    if (kernel instanceof RunningBlurFilter) {
+      return FilterPlan.RUNNING_BLUR;
+    }
+    int size = kernel.getLength();
+    double directCost = (double) size * size;
+    double fftCost = Double.MAX_VALUE;
+    if (size >= FftConvolution.MIN_SIZE) {
+      int transformSize = FftConvolution.bestTransformSize(size, width, height);
+      if (transformSize > 0) {
+        fftCost = FftConvolution.costPerPixel(size, transformSize, width, height);
+      }
+    }
+    double separableCost = Double.MAX_VALUE;
+    // decomposing costs the cube of the size, so it is skipped when even a single separable term
+    // would cost more than the other plans
+    if (size >= KernelDecomposition.MIN_SEPARABLE_SIZE
+        && 2.0 * size < Math.min(directCost, fftCost)) {
+      KernelDecomposition decomposition = KernelDecomposition.of(kernel);
+      if (decomposition.isWorthSeparating()) {
+        separableCost = 2.0 * decomposition.rank() * size;
+      }
+    }
+
+    if (fftCost < directCost && fftCost < separableCost) {
+      return FilterPlan.FREQUENCY_DOMAIN;
+    } else if (separableCost < directCost) {
+      return FilterPlan.SEPARABLE;
+    }
+    return FilterPlan.DIRECT;
+  }
+
+  /**
+   * filters the supplied image by the supplied kernel.
+   *
+   * @param image    the image to filter
+   * @param kernel   the square kernel of odd size to filter by
+   * @param edgeMode how to treat pixels past the border of the image
+   * @return the packed pixels of the filtered image
+   */
+  static int[] filter(PackedImage image, IKernel kernel, EdgeMode edgeMode) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[] out;
+    switch (plan(kernel, width, height)) {
+      case RUNNING_BLUR:
+        return RunningBlur.filter(image, (RunningBlurFilter) kernel, edgeMode);
+      case FREQUENCY_DOMAIN:
+        out = new int[width * height];
+        FftConvolution fft = new FftConvolution(image, kernel, edgeMode,
+            FftConvolution.bestTransformSize(kernel.getLength(), width, height));
+        // tiles rather than rows are shared out, so no band transforms a tile it only partly uses
+        RowBands.run(fft.tileArea(), fft.tileCount(),
+            (fromTile, toTile) -> fft.filterTiles(out, fromTile, toTile));
+        return out;
+      case SEPARABLE:
+        out = new int[width * height];
+        SeparableConvolution separable = new SeparableConvolution(image,
+            KernelDecomposition.of(kernel), edgeMode);
+        RowBands.run(width, height, (fromRow, toRow) -> separable.filterRows(out, fromRow, toRow));
+        return out;
+      default:
+        out = new int[width * height];
+        Convolution convolution = new Convolution(image, kernel, edgeMode);
+        RowBands.run(width, height, (fromRow, toRow) -> convolution.filterRows(out, fromRow, toRow));
+        return out;
+    }
+  }
+}
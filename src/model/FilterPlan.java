@@ -0,0 +1,49 @@
+package model;
+
+/**
+ * The ways a filter kernel can be applied to an image. Which one is used depends on the kernel and
+ * on the size of the image, and does not change the filtered image by more than one level in any
+ * channel.
+ */
+public enum FilterPlan {
+
+  /**
+   * Every output pixel is the sum of the kernel's taps over the pixels around it.
+   */
+  DIRECT,
+
+  /**
+   * The kernel is split into a few separable terms, each applied as a horizontal and a vertical
+   * pass.
+   */
+  SEPARABLE,
+
+  /**
+   * The image is filtered in tiles by multiplying their spectra with the kernel's spectrum.
+   */
+  FREQUENCY_DOMAIN,
+
+  /**
+   * The kernel is a running blur, applied through its own passes whatever its size.
+   */
+  RUNNING_BLUR;
+
+  /**
+   * gets the plan a filter by the supplied kernel would use on an image of the supplied size.
+   *
+   * @param kernel the kernel to filter by
+   * @param width  the width of the image
+   * @param height the height of the image
+   * @return the plan the filter would use
+   * @throws IllegalArgumentException if the kernel is null or the size is not positive
+   */
+  public static FilterPlan of(IKernel kernel, int width, int height) {
+    if (kernel == null) {
+      throw new IllegalArgumentException("Kernel cannot be null");
+    }
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Image size must be positive");
+    }
+    return FilterEngine.plan(kernel, width, height);
+  }
+}
@@ -18,6 +18,20 @@ public interface IComplexModel extends IModel {
   IImage downScale(double xRatio, double yRatio)
       throws IllegalStateException, IllegalArgumentException;
 
+  /**
+   * Returns a downscaled image by the provided width and height ratios, computing the new pixels
+   * with the supplied resampling mode.
+   *
+   * @param xRatio the ratio of the new width to the original image width from 0.0 - 1.0
+   * @param yRatio the ratio of the new height to the original image height 0.0 - 1.0
+   * @param mode   how the new pixels are computed
+   * @return downscaled image by the given ratios
+   * @throws IllegalStateException    if the model image is null or created image would be empty
+   * @throws IllegalArgumentException if width or height ratio is not in range, or the mode is null
+   */
+  IImage downScale(double xRatio, double yRatio, ResampleMode mode)
+      throws IllegalStateException, IllegalArgumentException;
+
   /**
    * Returns an image with a mosaic filter and the given number of seeds applied.
    *
@@ -28,4 +42,19 @@ public interface IComplexModel extends IModel {
    * @throws IllegalArgumentException if the provided seed number is invalid
    */
   IImage applyMosaic(int seeds) throws IllegalStateException, IllegalArgumentException;
+
+  /**
+   * Returns an image with a mosaic filter and the given number of seeds applied, placing the seeds
+   * with a Random seeded with the given value, so that the same seeds on an image of the same size
+   * always give the same mosaic.
+   *
+   * @param seeds      number of seeds in the new image
+   * @param randomSeed seed of the Random that places the seeds
+   * @return new image with a mosaic filter with the given seeds applied
+   * @throws IllegalStateException    if the model image is null or model image is not of valid
+   *                                  dimensions
+   * @throws IllegalArgumentException if the provided seed number is invalid
+   */
+  IImage applyMosaic(int seeds, long randomSeed)
+      throws IllegalStateException, IllegalArgumentException;
 }
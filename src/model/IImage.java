@@ -14,6 +14,16 @@ public interface IImage {
    */
   Pixel getPixelAt(int column, int row);
 
+  /**
+   * Method that returns the color of the pixel at the specified coordinates packed into a single
+   * RGB integer (0xRRGGBB), without creating a Pixel.
+   *
+   * @param column the column of the pixel.
+   * @param row the row of the pixel.
+   * @return the packed RGB value of the pixel at the specified coordinates in the image.
+   */
+  int getRGBAt(int column, int row);
+
   /**
    * Getter method for the width of any implementation of an model.IImage.
    *
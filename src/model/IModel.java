@@ -45,6 +45,35 @@ public interface IModel {
    */
   IImage applyFilter(IKernel kernel) throws IllegalArgumentException;
 
+  /**
+   * method that applies an model.Image Filter to the any implementation of an model.IModel,
+   * reading pixels past the border of the image according to the supplied edge mode.
+   *
+   * @param kernel   the kernel to be used to filter the image
+   * @param edgeMode how pixels past the border of the image are read
+   * @return the image with the kernel filter applied.
+   * @throws IllegalStateException    if the supplied kernel is null
+   * @throws IllegalArgumentException if the kernel even in size, or not square, or the edge mode
+   *                                  is null.
+   */
+  IImage applyFilter(IKernel kernel, EdgeMode edgeMode) throws IllegalArgumentException;
+
+  /**
+   * method that applies an model.Image Filter to a region of the image of any implementation of an
+   * model.IModel. Pixels outside of the region are left as they are, and filtered pixels read
+   * their neighbours outside of the region as usual.
+   *
+   * @param kernel   the kernel to be used to filter the image
+   * @param edgeMode how pixels past the border of the image are read
+   * @param region   the part of the image to filter
+   * @return the image with the kernel filter applied to the region.
+   * @throws IllegalStateException    if the supplied kernel is null
+   * @throws IllegalArgumentException if the kernel even in size, or not square, or the edge mode
+   *                                  or region is null.
+   */
+  IImage applyFilter(IKernel kernel, EdgeMode edgeMode, Region region)
+      throws IllegalArgumentException;
+
   /**
    * method that applies an model.Image Color Processor to the any implementation of an
    * model.IModel.
@@ -56,6 +85,48 @@ public interface IModel {
    */
   IImage applyColorProcessing(IKernel kernel) throws IllegalArgumentException;
 
+  /**
+   * method that applies a chain of model.Image Color Processors to the any implementation of an
+   * model.IModel in a single pass, without building an image for each step.
+   *
+   * @param kernels the kernels to be used to process the image, in the order they apply
+   * @param exact   whether to truncate and clamp colors after every step, exactly as applying each
+   *                kernel on its own would, rather than applying the product of the kernels
+   * @return the image with the chain of kernels applied.
+   * @throws IllegalStateException    if any supplied kernel is null
+   * @throws IllegalArgumentException if the list is null or empty, or a kernel is not a 3x3 square.
+   */
+  IImage applyColorProcessing(List<IKernel> kernels, boolean exact)
+      throws IllegalArgumentException;
+
+  /**
+   * method that applies a chain of model.Image Color Processors to a region of the image of any
+   * implementation of an model.IModel, leaving pixels outside of the region as they are.
+   *
+   * @param kernels the kernels to be used to process the image, in the order they apply
+   * @param exact   whether to truncate and clamp colors after every step, exactly as applying each
+   *                kernel on its own would, rather than applying the product of the kernels
+   * @param region  the part of the image to process
+   * @return the image with the chain of kernels applied to the region.
+   * @throws IllegalStateException    if any supplied kernel is null
+   * @throws IllegalArgumentException if the list is null or empty, a kernel is not a 3x3 square,
+   *                                  or the region is null.
+   */
+  IImage applyColorProcessing(List<IKernel> kernels, boolean exact, Region region)
+      throws IllegalArgumentException;
+
+  /**
+   * method that returns the image of any implementation of an model.IModel scaled down, keeping
+   * its proportions, to fit within the supplied size, for display and thumbnails. Images that
+   * already fit are returned as they are.
+   *
+   * @param maxWidth  the largest width of the preview
+   * @param maxHeight the largest height of the preview
+   * @return the preview of the image
+   * @throws IllegalArgumentException if either size is less than 1.
+   */
+  IImage preview(int maxWidth, int maxHeight) throws IllegalArgumentException;
+
   /**
    * getter method returning the model.IImage of any model.IModel implementation.
    *
@@ -49,6 +49,19 @@ public class Image implements IImage {
     return pixelArray[column][row];
   }
 
+  /**
+   * gets the packed RGB value of the pixel at the supplied column and row (x and y values).
+   *
+   * @param column the column of the specified pixel
+   * @param row    the row of the specified pixel
+   * @return the packed RGB value of the specified pixel
+   */
+  @Override
+  public int getRGBAt(int column, int row) {
+    Pixel p = pixelArray[column][row];
+    return (p.getRed() << 16) | (p.getGreen() << 8) | p.getBlue();
+  }
+
   /**
    * getter method for an image returning the image's width value.
    *
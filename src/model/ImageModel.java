@@ -2,6 +2,7 @@ package model;
 
 import java.awt.Color;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -11,6 +12,8 @@ import java.util.List;
 public class ImageModel implements IModel {
 
   final IImage image;
+  // the halvings of the image, built when a preview first needs them
+  private ImagePyramid pyramid;
 
   /**
    * Constructor for an model.Image model that takes in a supplied image.
@@ -22,7 +25,13 @@ public class ImageModel implements IModel {
     if (image == null) {
       throw new IllegalStateException("Image cannot be null");
     }
-    this.image = image;
+    if (image instanceof LazyImage || image instanceof PatchedImage) {
+      // a lazy image is kept as it is, so its pixels are only computed when they are needed, and
+      // a patched image keeps sharing its untouched pixels
+      this.image = image;
+    } else {
+      this.image = PackedImage.of(image);
+    }
   }
 
   /**
@@ -62,24 +71,28 @@ public class ImageModel implements IModel {
       throw new IllegalArgumentException("Number Of Tiles Supplied Will Not Form A Square Board");
     }
 
-    List<Pixel> resultPixels = new ArrayList<>();
-
     int intSideTiles = (int) Math.floor(tilesSqrt);
+    int side = tileSize * intSideTiles;
+    int rgb1 = PackedImage.pack(c1.getRed(), c1.getGreen(), c1.getBlue());
+    int rgb2 = PackedImage.pack(c2.getRed(), c2.getGreen(), c2.getBlue());
+
+    int[] resultPixels = new int[side * side];
+    int index = 0;
 
     for (int i = 0; i < intSideTiles; i++) {
       for (int l = 0; l < tileSize; l++) {
         for (int j = 0; j < intSideTiles; j++) {
           for (int k = 0; k < tileSize; k++) {
             if ((i + j) % 2 == 0) {
-              resultPixels.add(new Pixel(c1.getRed(), c1.getGreen(), c1.getBlue()));
+              resultPixels[index++] = rgb1;
             } else {
-              resultPixels.add(new Pixel(c2.getRed(), c2.getGreen(), c2.getBlue()));
+              resultPixels[index++] = rgb2;
             }
           }
         }
       }
     }
-    return new Image(tileSize * intSideTiles, tileSize * intSideTiles, resultPixels);
+    return new PackedImage(side, side, resultPixels);
   }
 
   /**
@@ -103,21 +116,24 @@ public class ImageModel implements IModel {
       throw new IllegalArgumentException("Invalid Width or Row Height");
     }
 
-    List<Pixel> resultPixels = new ArrayList<>();
+    int[] resultPixels = new int[width * rowHeight * colors.size()];
+    int index = 0;
 
     for (Color c : colors) {
+      int rgb = PackedImage.pack(c.getRed(), c.getGreen(), c.getBlue());
       for (int i = 0; i < rowHeight; i++) {
         for (int j = 0; j < width; j++) {
-          resultPixels.add(new Pixel(c.getRed(), c.getGreen(), c.getBlue()));
+          resultPixels[index++] = rgb;
         }
       }
     }
-    return new Image(width, rowHeight * colors.size(), resultPixels);
+    return new PackedImage(width, rowHeight * colors.size(), resultPixels);
   }
 
   /**
    * This method creates and returns a filtered copy of the supplied image with each pixel's color
-   * values modified according to the supplied kernel.
+   * values modified according to the supplied kernel. Pixels past the border of the image are
+   * treated as black.
    *
    * @param kernel the kernel to be used to modify the supplied image
    * @return a new image with the filter applied
@@ -126,60 +142,121 @@ public class ImageModel implements IModel {
    */
   @Override
   public IImage applyFilter(IKernel kernel) throws IllegalArgumentException {
-    if (kernel == null) {
-      throw new IllegalStateException("kernel cannot be null");
-    }
+    return this.applyFilter(kernel, EdgeMode.ZERO);
+  }
+
+  /**
+   * This method creates and returns a filtered copy of the supplied image with each pixel's color
+   * values modified according to the supplied kernel, treating pixels past the border of the image
+   * according to the supplied edge mode.
+   *
+   * @param kernel   the kernel to be used to modify the supplied image
+   * @param edgeMode how pixels past the border of the image are read
+   * @return a new image with the filter applied
+   * @throws IllegalStateException    if the supplied kernel is null
+   * @throws IllegalArgumentException if the kernel even in size, or not square, or the edge mode
+   *                                  is null.
+   */
+  @Override
+  public IImage applyFilter(IKernel kernel, EdgeMode edgeMode) throws IllegalArgumentException {
+    checkFilterKernel(kernel, edgeMode);
 
     if (this.image == null) {
       throw new IllegalStateException("model.Image cannot be null");
     }
 
-    if (kernel.getLength() % 2 == 0) {
-      throw new IllegalArgumentException("Kernel must have odd dimensions for filtering");
-    }
+    PackedImage packed = PackedImage.of(this.image);
+    int[] resultPixels = FilterEngine.filter(packed, kernel, edgeMode);
+    return new PackedImage(packed.getWidth(), packed.getHeight(), resultPixels);
+  }
 
-    if (kernel.getLength() != kernel.getHeight()) {
-      throw new IllegalArgumentException("Kernel must be square");
+  /**
+   * This method creates and returns a copy of the supplied image with the supplied kernel applied
+   * to the pixels of a region. Only the region's rectangle, and the pixels around it that the
+   * kernel reads, are filtered; the result shares every pixel outside of the rectangle with this
+   * model's image.
+   *
+   * @param kernel   the kernel to be used to modify the supplied image
+   * @param edgeMode how pixels past the border of the image are read
+   * @param region   the part of the image to filter
+   * @return a new image with the filter applied to the region
+   * @throws IllegalStateException    if the supplied kernel is null
+   * @throws IllegalArgumentException if the kernel even in size, or not square, or the edge mode
+   *                                  or region is null.
+   */
+  @Override
+  public IImage applyFilter(IKernel kernel, EdgeMode edgeMode, Region region)
+      throws IllegalArgumentException {
+    checkFilterKernel(kernel, edgeMode);
+    if (region == null) {
+      throw new IllegalArgumentException("Region cannot be null");
+    }
+    int width = this.image.getWidth();
+    int height = this.image.getHeight();
+    int left = Math.max(0, region.getX());
+    int top = Math.max(0, region.getY());
+    // the far edges are found in long, so a region reaching to Integer.MAX_VALUE runs to the border
+    int boxWidth = (int) Math.min(width, (long) region.getX() + region.getWidth()) - left;
+    int boxHeight = (int) Math.min(height, (long) region.getY() + region.getHeight()) - top;
+    if (boxWidth <= 0 || boxHeight <= 0) {
+      return this.image;
     }
 
-    List<Pixel> resultPixels = new ArrayList<>();
-
-    for (int j = 0; j < this.image.getHeight(); j++) {
-      for (int i = 0; i < this.image.getWidth(); i++) {
-        resultPixels.add(applyFilterToPixel(i, j, kernel));
+    // the rectangle is filtered together with the pixels the kernel reads around it, read through
+    // the edge mode where they fall past the border of the image
+    int reach = FilterEngine.reach(kernel);
+    int cropWidth = boxWidth + 2 * reach;
+    int cropHeight = boxHeight + 2 * reach;
+    int[] crop = new int[cropWidth * cropHeight];
+    for (int j = 0; j < cropHeight; j++) {
+      int row = edgeMode.resolve(top - reach + j, height);
+      for (int i = 0; row >= 0 && i < cropWidth; i++) {
+        int column = edgeMode.resolve(left - reach + i, width);
+        if (column >= 0) {
+          crop[i + cropWidth * j] = this.image.getRGBAt(column, row);
+        }
+      }
+    }
+    int[] filtered = FilterEngine.filter(new PackedImage(cropWidth, cropHeight, crop), kernel,
+        edgeMode);
+
+    int[] patch = new int[boxWidth * boxHeight];
+    for (int j = 0; j < boxHeight; j++) {
+      for (int i = 0; i < boxWidth; i++) {
+        patch[i + boxWidth * j] = region.contains(left + i, top + j)
+            ? filtered[i + reach + cropWidth * (j + reach)]
+            : this.image.getRGBAt(left + i, top + j);
       }
     }
-    return new Image(this.image.getWidth(), this.image.getHeight(), resultPixels);
+    return PatchedImage.of(this.image, left, top, boxWidth, boxHeight, patch);
   }
 
   /**
-   * returns a new pixel with the modified color values according to the supplied kernel's values.
+   * checks that the supplied kernel and edge mode can be used to filter an image.
    *
-   * @param x      the width of the supplied image
-   * @param y      the height of the supplied image
-   * @param kernel the supplied kernel to be applied to each pixel
-   * @return a new pixel with modified color values as specified by the filter kernel
+   * @param kernel   the kernel to check
+   * @param edgeMode the edge mode to check
+   * @throws IllegalStateException    if the kernel is null
+   * @throws IllegalArgumentException if the kernel is even in size or not square, or the edge mode
+   *                                  is null
    */
-  private Pixel applyFilterToPixel(int x, int y, IKernel kernel) {
-    int resultR = 0;
-    int resultG = 0;
-    int resultB = 0;
-
-    int kernelX = 0;
-    int kernelY = 0;
-
-    for (int indexY = y - kernel.getHeight() / 2; indexY <= y + kernel.getHeight() / 2; indexY++) {
-      for (int indexX = x - kernel.getLength() / 2; indexX <= x + kernel.getLength() / 2;
-          indexX++) {
-        resultR += kernel.getInKernel(kernelX, kernelY) * calcPixel(indexX, indexY, 'R');
-        resultG += kernel.getInKernel(kernelX, kernelY) * calcPixel(indexX, indexY, 'G');
-        resultB += kernel.getInKernel(kernelX, kernelY) * calcPixel(indexX, indexY, 'B');
-        kernelX++;
-      }
-      kernelY++;
-      kernelX = 0;
+  static void checkFilterKernel(IKernel kernel, EdgeMode edgeMode)
+      throws IllegalArgumentException {
+    if (kernel == null) {
+      throw new IllegalStateException("kernel cannot be null");
+    }
+
+    if (edgeMode == null) {
+      throw new IllegalArgumentException("edge mode cannot be null");
+    }
+
+    if (kernel.getLength() % 2 == 0) {
+      throw new IllegalArgumentException("Kernel must have odd dimensions for filtering");
+    }
+
+    if (kernel.getLength() != kernel.getHeight()) {
+      throw new IllegalArgumentException("Kernel must be square");
     }
-    return new Pixel(resultR, resultG, resultB);
   }
 
   /**
@@ -193,99 +270,186 @@ public class ImageModel implements IModel {
    */
   @Override
   public IImage applyColorProcessing(IKernel kernel) throws IllegalArgumentException {
-    if (kernel == null) {
-      throw new IllegalStateException("Kernel cannot be null");
+    checkColorKernel(kernel);
+    if (this.image == null) {
+      throw new IllegalStateException("model.Image cannot be null");
     }
+    return this.applyColorProcessing(Collections.singletonList(kernel), true);
+  }
 
+  /**
+   * This method creates and returns a copy of the supplied image with a chain of color processing
+   * kernels applied in a single pass over its pixels, without building an image for each step.
+   *
+   * @param kernels the kernels to be used to modify the supplied image, in the order they apply
+   * @param exact   whether to truncate and clamp after every step, exactly as applying each kernel
+   *                on its own would, rather than applying the product of the kernels
+   * @return a new image with the chain of kernels applied
+   * @throws IllegalStateException    if any supplied kernel is null
+   * @throws IllegalArgumentException if the list is null or empty, or a kernel is not a 3x3 square.
+   */
+  @Override
+  public IImage applyColorProcessing(List<IKernel> kernels, boolean exact)
+      throws IllegalArgumentException {
+    checkColorKernels(kernels);
     if (this.image == null) {
       throw new IllegalStateException("model.Image cannot be null");
     }
 
+    int width = this.image.getWidth();
+    int height = this.image.getHeight();
+    int[] resultPixels = new int[width * height];
+    int[] source = PackedImage.of(this.image).rgb;
+
+    if (kernels.size() == 1 || !exact) {
+      ColorMatrix matrix = kernels.size() == 1
+          ? ColorMatrix.of(kernels.get(0)) : ColorMatrix.product(kernels);
+      RowBands.run(width, height,
+          (fromRow, toRow) -> matrix.processRows(source, resultPixels, width, fromRow, toRow));
+    } else {
+      List<ColorMatrix> steps = new ArrayList<>();
+      for (IKernel kernel : kernels) {
+        steps.add(ColorMatrix.of(kernel));
+      }
+      RowBands.run(width, height, (fromRow, toRow) ->
+          ColorMatrix.processRows(steps, source, resultPixels, width, fromRow, toRow));
+    }
+    return new PackedImage(width, height, resultPixels);
+  }
+
+  /**
+   * This method creates and returns a copy of the supplied image with a chain of color processing
+   * kernels applied to the pixels of a region. Only the region's rectangle is processed; the result
+   * shares every pixel outside of it with this model's image.
+   *
+   * @param kernels the kernels to be used to modify the supplied image, in the order they apply
+   * @param exact   whether to truncate and clamp after every step, exactly as applying each kernel
+   *                on its own would, rather than applying the product of the kernels
+   * @param region  the part of the image to process
+   * @return a new image with the chain of kernels applied to the region
+   * @throws IllegalStateException    if any supplied kernel is null
+   * @throws IllegalArgumentException if the list is null or empty, a kernel is not a 3x3 square,
+   *                                  or the region is null.
+   */
+  @Override
+  public IImage applyColorProcessing(List<IKernel> kernels, boolean exact, Region region)
+      throws IllegalArgumentException {
+    checkColorKernels(kernels);
+    if (region == null) {
+      throw new IllegalArgumentException("Region cannot be null");
+    }
+    int left = Math.max(0, region.getX());
+    int top = Math.max(0, region.getY());
+    int boxWidth = (int) Math.min(this.image.getWidth(), (long) region.getX() + region.getWidth())
+        - left;
+    int boxHeight = (int) Math.min(this.image.getHeight(),
+        (long) region.getY() + region.getHeight()) - top;
+    if (boxWidth <= 0 || boxHeight <= 0) {
+      return this.image;
+    }
+
+    int[] box = new int[boxWidth * boxHeight];
+    for (int j = 0; j < boxHeight; j++) {
+      for (int i = 0; i < boxWidth; i++) {
+        box[i + boxWidth * j] = this.image.getRGBAt(left + i, top + j);
+      }
+    }
+    int[] processed = PackedImage.of(new ImageModel(new PackedImage(boxWidth, boxHeight, box))
+        .applyColorProcessing(kernels, exact)).rgb;
+    for (int j = 0; j < boxHeight; j++) {
+      for (int i = 0; i < boxWidth; i++) {
+        if (!region.contains(left + i, top + j)) {
+          processed[i + boxWidth * j] = box[i + boxWidth * j];
+        }
+      }
+    }
+    return PatchedImage.of(this.image, left, top, boxWidth, boxHeight, processed);
+  }
+
+  /**
+   * checks that the supplied chain of kernels can be used to process the colors of an image.
+   *
+   * @param kernels the kernels to check
+   * @throws IllegalStateException    if any kernel is null
+   * @throws IllegalArgumentException if the list is null or empty, or a kernel is not a 3x3 square
+   */
+  static void checkColorKernels(List<IKernel> kernels) throws IllegalArgumentException {
+    if (kernels == null || kernels.isEmpty()) {
+      throw new IllegalArgumentException("At least one kernel must be supplied");
+    }
+    for (IKernel kernel : kernels) {
+      checkColorKernel(kernel);
+    }
+  }
+
+  /**
+   * checks that the supplied kernel can be used to process the colors of an image.
+   *
+   * @param kernel the kernel to check
+   * @throws IllegalStateException    if the kernel is null
+   * @throws IllegalArgumentException if the kernel is not a 3x3 square
+   */
+  static void checkColorKernel(IKernel kernel) throws IllegalArgumentException {
+    if (kernel == null) {
+      throw new IllegalStateException("Kernel cannot be null");
+    }
+
     if (kernel.getLength() != 3) {
       throw new IllegalArgumentException("Color Transformation Kernels must be 3 x 3");
     }
     if (kernel.getLength() != kernel.getHeight()) {
       throw new IllegalArgumentException("Kernel must be square");
     }
-
-    List<Pixel> resultPixels = new ArrayList<>();
-
-    for (int j = 0; j < this.image.getHeight(); j++) {
-      for (int i = 0; i < this.image.getWidth(); i++) {
-        resultPixels.add(applyProcessingToPixel(i, j, kernel));
-      }
-    }
-    return new Image(this.image.getWidth(), this.image.getHeight(), resultPixels);
   }
 
   /**
-   * returns a new pixel with the modified color values according to the supplied kernel's values.
+   * returns this model's image scaled down, keeping its proportions, to fit within the supplied
+   * size. The preview is averaged from the smallest halving of the image that is still large
+   * enough, and the halvings are kept for later previews, so previews of a large image after the
+   * first one cost about as much as the preview itself.
    *
-   * @param x      the width of the supplied image
-   * @param y      the height of the supplied image
-   * @param kernel the supplied kernel to be applied to each pixel
-   * @return a new pixel with modified color values as specified by the filter kernel
+   * @param maxWidth  the largest width of the preview
+   * @param maxHeight the largest height of the preview
+   * @return the preview of the image
+   * @throws IllegalArgumentException if either size is less than 1.
    */
-  private Pixel applyProcessingToPixel(int x, int y, IKernel kernel) {
-    int initRed = calcPixel(x, y, 'R');
-    int initGreen = calcPixel(x, y, 'G');
-    int initBlue = calcPixel(x, y, 'B');
-    int resultR = (int) ((kernel.getInKernel(0, 0) * initRed)
-        + (kernel.getInKernel(1, 0) * initGreen)
-        + (kernel.getInKernel(2, 0) * initBlue));
-    int resultG = (int) ((kernel.getInKernel(0, 1) * initRed)
-        + (kernel.getInKernel(1, 1) * initGreen)
-        + (kernel.getInKernel(2, 1) * initBlue));
-    int resultB = (int) ((kernel.getInKernel(0, 2) * initRed)
-        + (kernel.getInKernel(1, 2) * initGreen)
-        + (kernel.getInKernel(2, 2) * initBlue));
-
-    return new Pixel(resultR, resultG, resultB);
+  @Override
+  public IImage preview(int maxWidth, int maxHeight) throws IllegalArgumentException {
+    if (maxWidth < 1 || maxHeight < 1) {
+      throw new IllegalArgumentException("Preview must be at least one pixel wide and high");
+    }
+    int width = this.image.getWidth();
+    int height = this.image.getHeight();
+    if (width <= maxWidth && height <= maxHeight) {
+      return this.image;
+    }
+    double scale = Math.min((double) maxWidth / width, (double) maxHeight / height);
+    return this.pyramid().scale(Math.max(1, (int) Math.floor(width * scale)),
+        Math.max(1, (int) Math.floor(height * scale)));
   }
 
   /**
-   * gets the specified color value of the pixel at the provided coordinates in the supplied image.
+   * gets the pyramid of halvings of this model's image, creating it the first time. The image of
+   * a model never changes, so neither does its pyramid; changing a layer replaces its model.
    *
-   * @param x the x coordinate of the pixel.
-   * @param y the y coordinate of the pixel.
-   * @param c the letter designating the color to get from the pixel.
-   * @return the int value of the specified color of the specified pixel
+   * @return the pyramid of this model's image
    */
-  int calcPixel(int x, int y, char c) {
-    try {
-      switch (c) {
-        case 'R':
-          return this.image.getPixelAt(x, y).getRed();
-        case 'G':
-          return this.image.getPixelAt(x, y).getGreen();
-        case 'B':
-          return this.image.getPixelAt(x, y).getBlue();
-        default:
-          return 0;
-      }
-    } catch (IndexOutOfBoundsException e) {
-      return 0;
+  synchronized ImagePyramid pyramid() {
+    if (this.pyramid == null) {
+      this.pyramid = new ImagePyramid(this.image);
     }
+    return this.pyramid;
   }
 
   /**
-   * getter method for the image in this image model.
+   * getter method for the image in this image model. Images are immutable, so the model's image is
+   * shared with the caller rather than copied; operations that change pixels always build a new
+   * image.
    *
    * @return this model's image
    */
-  // CORRECTION: flipped the for loops for i and j to properly index image copy creation.
   @Override
   public IImage getImage() {
-    ArrayList<Pixel> resultArray = new ArrayList<>();
-    for (int j = 0; j < this.image.getPixels()[0].length; j++) {
-      for (int i = 0; i < this.image.getPixels().length; i++) {
-        int redVal = this.image.getPixelAt(i, j).getRed();
-        int greenVal = this.image.getPixelAt(i, j).getGreen();
-        int blueVal = this.image.getPixelAt(i, j).getBlue();
-        resultArray.add(
-            new Pixel(redVal, greenVal, blueVal));
-      }
-    }
-    return new Image(this.image.getWidth(), this.image.getHeight(), resultArray);
+    return this.image;
   }
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The successive halvings of an image, built the first time they are needed and kept: level 0 is
+ * the image itself, and every further level averages the pixels of the level before it in two by
+ * two blocks, down to a single pixel. A small version of a large image can then be computed from
+ * the smallest level that is still at least as large, reading a fraction of the pixels of the full
+ * image. Images are never changed in place, so a pyramid stays valid for as long as its image.
+ */
+final class ImagePyramid {
+
+  private final List<PackedImage> levels = new ArrayList<>();
+  private final IImage image;
+
+  /**
+   * Constructor for the pyramid of the supplied image. No level is built until it is asked for.
+   *
+   * @param image the image at the base of the pyramid
+   */
+  ImagePyramid(IImage image) {
+    this.image = image;
+  }
+
+  /**
+   * gets the supplied level of this pyramid, building it and the levels above it if they have not
+   * been built yet.
+   *
+   * @param level the level to get, 0 being the image itself
+   * @return the image of the level
+   * @throws IllegalArgumentException if the level is negative or past the single pixel level
+   */
+  synchronized PackedImage level(int level) throws IllegalArgumentException {
+    if (level < 0 || level >= this.levelCount()) {
+      throw new IllegalArgumentException("No such level");
+    }
+    if (this.levels.isEmpty()) {
+      this.levels.add(PackedImage.of(this.image));
+    }
+    while (this.levels.size() <= level) {
+      PackedImage above = this.levels.get(this.levels.size() - 1);
+      int width = Math.max(1, above.getWidth() / 2);
+      int height = Math.max(1, above.getHeight() / 2);
+      Resampler halve = Resampler.of(above.getWidth(), above.getHeight(), width, height,
+          ResampleMode.AREA);
+      this.levels.add(new PackedImage(width, height, halve.resample(above)));
+    }
+    return this.levels.get(level);
+  }
+
+  /**
+   * gets the number of levels of this pyramid, from the image itself down to a single pixel.
+   *
+   * @return the number of levels
+   */
+  int levelCount() {
+    int width = this.image.getWidth();
+    int height = this.image.getHeight();
+    int count = 1;
+    while (width > 1 || height > 1) {
+      width = Math.max(1, width / 2);
+      height = Math.max(1, height / 2);
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * gets the smallest level of this pyramid that is at least the supplied size in both directions.
+   *
+   * @param width  the smallest width wanted
+   * @param height the smallest height wanted
+   * @return the number of the level
+   */
+  int levelFor(int width, int height) {
+    int levelWidth = this.image.getWidth();
+    int levelHeight = this.image.getHeight();
+    int level = 0;
+    while (levelWidth / 2 >= width && levelHeight / 2 >= height && level + 1 < this.levelCount()) {
+      levelWidth /= 2;
+      levelHeight /= 2;
+      level++;
+    }
+    return level;
+  }
+
+  /**
+   * gets the image of this pyramid scaled down to the supplied size by averaging areas, computed
+   * from the smallest level that is at least twice that size, so that every new pixel still
+   * averages several pixels of the level and the softened edges of the level's pixels matter
+   * little.
+   *
+   * @param width  the width of the scaled image, from 1 to the width of the image
+   * @param height the height of the scaled image, from 1 to the height of the image
+   * @return the scaled image
+   */
+  PackedImage scale(int width, int height) {
+    PackedImage level = this.level(this.levelFor(2 * width, 2 * height));
+    if (level.getWidth() == width && level.getHeight() == height) {
+      return level;
+    }
+    Resampler plan = Resampler.of(level.getWidth(), level.getHeight(), width, height,
+        ResampleMode.AREA);
+    return new PackedImage(width, height, plan.resample(level));
+  }
+}
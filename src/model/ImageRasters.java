@@ -0,0 +1,115 @@
+package model;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+
+/**
+ * Moves pixels between IImages and BufferedImages a whole raster at a time, rather than a pixel at
+ * a time through getRGB and setRGB. Images read by ImageIO are copied straight out of their data
+ * buffers when they are packed RGB, three byte BGR or one byte grey, which are what JPEG and most
+ * PNG files decode to, and through one bulk getRGB call otherwise. Every path gives exactly the
+ * colors getRGB gives.
+ */
+public final class ImageRasters {
+
+  private ImageRasters() {
+  }
+
+  /**
+   * copies the pixels of the supplied BufferedImage into a new IImage, dropping any transparency.
+   *
+   * @param img the image to copy
+   * @return an IImage with the same colors
+   * @throws IllegalArgumentException if the image is null
+   */
+  public static IImage fromBufferedImage(BufferedImage img) throws IllegalArgumentException {
+    if (img == null) {
+      throw new IllegalArgumentException("image cannot be null");
+    }
+    int width = img.getWidth();
+    int height = img.getHeight();
+    int[] pixels = new int[width * height];
+    Raster raster = img.getRaster();
+    DataBuffer data = raster.getDataBuffer();
+    boolean whole = raster.getParent() == null && raster.getSampleModelTranslateX() == 0
+        && raster.getSampleModelTranslateY() == 0 && data.getNumBanks() == 1;
+
+    if (whole && (img.getType() == BufferedImage.TYPE_INT_RGB
+        || img.getType() == BufferedImage.TYPE_INT_ARGB)
+        && raster.getSampleModel() instanceof SinglePixelPackedSampleModel) {
+      int[] src = ((DataBufferInt) data).getData();
+      int stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+      int offset = data.getOffset();
+      for (int y = 0; y < height; y++) {
+        int from = offset + stride * y;
+        for (int x = 0; x < width; x++) {
+          pixels[x + width * y] = src[from + x] & 0xFFFFFF;
+        }
+      }
+    } else if (whole && img.getType() == BufferedImage.TYPE_3BYTE_BGR
+        && raster.getSampleModel() instanceof ComponentSampleModel) {
+      byte[] src = ((DataBufferByte) data).getData();
+      ComponentSampleModel model = (ComponentSampleModel) raster.getSampleModel();
+      int[] bands = model.getBandOffsets();
+      int stride = model.getScanlineStride();
+      int pixelStride = model.getPixelStride();
+      for (int y = 0; y < height; y++) {
+        int from = data.getOffset() + stride * y;
+        for (int x = 0; x < width; x++) {
+          int i = from + pixelStride * x;
+          pixels[x + width * y] = (src[i + bands[0]] & 0xFF) << 16
+              | (src[i + bands[1]] & 0xFF) << 8 | (src[i + bands[2]] & 0xFF);
+        }
+      }
+    } else if (whole && img.getType() == BufferedImage.TYPE_BYTE_GRAY
+        && raster.getSampleModel() instanceof ComponentSampleModel) {
+      byte[] src = ((DataBufferByte) data).getData();
+      ComponentSampleModel model = (ComponentSampleModel) raster.getSampleModel();
+      int stride = model.getScanlineStride();
+      int pixelStride = model.getPixelStride();
+      // grey levels go through the color model's conversion to sRGB, as getRGB would do
+      ColorModel colors = img.getColorModel();
+      int[] levels = new int[256];
+      for (int level = 0; level < 256; level++) {
+        levels[level] = colors.getRGB(new byte[]{(byte) level}) & 0xFFFFFF;
+      }
+      for (int y = 0; y < height; y++) {
+        int from = data.getOffset() + stride * y;
+        for (int x = 0; x < width; x++) {
+          pixels[x + width * y] = levels[src[from + pixelStride * x] & 0xFF];
+        }
+      }
+    } else {
+      img.getRGB(0, 0, width, height, pixels, 0, width);
+      for (int i = 0; i < pixels.length; i++) {
+        pixels[i] &= 0xFFFFFF;
+      }
+    }
+    return new PackedImage(width, height, pixels);
+  }
+
+  /**
+   * copies the pixels of the supplied IImage into a new BufferedImage of packed RGB values, all at
+   * once.
+   *
+   * @param image the image to copy
+   * @return a BufferedImage of TYPE_INT_RGB with the same colors
+   * @throws IllegalArgumentException if the image is null
+   */
+  public static BufferedImage toBufferedImage(IImage image) throws IllegalArgumentException {
+    if (image == null) {
+      throw new IllegalArgumentException("image cannot be null");
+    }
+    int width = image.getWidth();
+    int height = image.getHeight();
+    BufferedImage bi = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    bi.getRaster().setDataElements(0, 0, width, height, PackedImage.of(image).rgb);
+    return bi;
+  }
+}
@@ -0,0 +1,51 @@
+package model;
+
+/**
+ * Filters runs of interior pixels of a direct convolution several pixels at a time, with exactly
+ * the arithmetic Convolution uses for one pixel, so the filtered pixels are the same either way.
+ *
+ * <p>The one implementation, VectorInteriorRows, is written against the incubating
+ * jdk.incubator.vector module, so it lives apart from the rest of the model in src-vector and is
+ * compiled and run with that module added (see the README). It is looked up by name when the
+ * model is first used; where it was not compiled, the module was not added, or the processor has
+ * no SIMD lanes for doubles, there is no implementation and Convolution filters one pixel at a
+ * time.
+ */
+interface InteriorRows {
+
+  /**
+   * the implementation to use, or null if there is none.
+   */
+  InteriorRows VECTOR = load();
+
+  /**
+   * filters the interior pixels from index from (inclusive) towards index to (exclusive), all in
+   * one row, as many at a time as the vector lanes allow.
+   *
+   * @param src          the packed pixels of the image
+   * @param out          the packed pixels of the filtered image
+   * @param from         the index of the first pixel to filter
+   * @param to           the index after the last pixel that may be filtered
+   * @param tapOffsets   the offset in the packed array of each tap from the filtered pixel
+   * @param weights      the weight of each tap
+   * @param truncateTaps whether each channel is truncated after every tap, rather than once
+   * @return the index of the first pixel not filtered, which the caller filters on its own
+   */
+  int filter(int[] src, int[] out, int from, int to, int[] tapOffsets, double[] weights,
+      boolean truncateTaps);
+
+  /**
+   * looks up the vector implementation.
+   *
+   * @return the implementation, or null if it is missing or cannot run here
+   */
+  static InteriorRows load() {
+    try {
+      return (InteriorRows) Class.forName("model.VectorInteriorRows")
+          .getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException | LinkageError | UnsupportedOperationException e) {
+      // not compiled, jdk.incubator.vector not added, or no lanes to gain from
+      return null;
+    }
+  }
+}
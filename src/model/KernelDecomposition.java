@@ -0,0 +1,282 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The decomposition of a filter kernel into a sum of separable terms, each of which is a vertical
+ * column of weights times a horizontal row of weights. A kernel built from r such terms can be
+ * applied as r horizontal passes followed by r vertical passes, which costs 2rN taps per pixel
+ * instead of the N * N taps of a direct convolution.
+ *
+ * <p>Exactly separable kernels (such as BlurFilter) are factored directly. Any other kernel is
+ * decomposed with a singular value decomposition, keeping the fewest terms that reproduce every
+ * kernel value within the kernel's tolerance: zero for the built-in kernels, or whatever tolerance
+ * a SupplyFilter was given. Decompositions are computed once per kernel instance and cached.
+ */
+final class KernelDecomposition {
+
+  /**
+   * the smallest kernel for which a separable plan is used. Smaller kernels are cheap enough
+   * directly, and filtering them directly keeps the built-in 3x3 filters bit-identical to before.
+   */
+  static final int MIN_SEPARABLE_SIZE = 5;
+
+  private static final double EXACT_TOLERANCE = 1e-12;
+  private static final int MAX_SWEEPS = 60;
+
+  private static final Map<IKernel, KernelDecomposition> CACHE =
+      Collections.synchronizedMap(new WeakHashMap<>());
+
+  private final int size;
+  // columns[t][ky] and rows[t][kx] are the weights of term t; the kernel value at (kx, ky) is
+  // approximately the sum over t of columns[t][ky] * rows[t][kx]
+  private final double[][] columns;
+  private final double[][] rows;
+
+  private KernelDecomposition(int size, double[][] columns, double[][] rows) {
+    this.size = size;
+    this.columns = columns;
+    this.rows = rows;
+  }
+
+  /**
+   * gets the decomposition of the supplied kernel, computing it the first time the kernel is seen.
+   *
+   * @param kernel the square kernel to decompose
+   * @return the decomposition of the kernel
+   */
+  static KernelDecomposition of(IKernel kernel) {
+    KernelDecomposition decomposition = CACHE.get(kernel);
+    if (decomposition == null) {
+      double tolerance = 0;
+      if (kernel instanceof SupplyFilter) {
+        tolerance = ((SupplyFilter) kernel).getTolerance();
+      }
+      decomposition = decompose(kernel.getKernelArray(), tolerance);
+      CACHE.put(kernel, decomposition);
+    }
+    return decomposition;
+  }
+
+  /**
+   * decomposes the supplied square kernel, indexed [x][y], into separable terms.
+   *
+   * @param kernel    the kernel values, indexed by column then row
+   * @param tolerance the largest error allowed in any reconstructed kernel value
+   * @return the decomposition of the kernel
+   */
+  static KernelDecomposition decompose(double[][] kernel, double tolerance) {
+    int n = kernel.length;
+    double largest = 0;
+    for (double[] column : kernel) {
+      for (double value : column) {
+        largest = Math.max(largest, Math.abs(value));
+      }
+    }
+    double allowed = Math.max(tolerance, EXACT_TOLERANCE * largest);
+
+    if (largest == 0) {
+      return new KernelDecomposition(n, new double[0][], new double[0][]);
+    }
+
+    KernelDecomposition factored = factorSeparable(kernel, allowed);
+    if (factored != null) {
+      return factored;
+    }
+    return decomposeSingularValues(kernel, allowed);
+  }
+
+  /**
+   * factors a kernel that is exactly one column of weights times one row of weights, by scaling
+   * the row and column through the kernel's largest value.
+   *
+   * @param kernel  the kernel values, indexed by column then row
+   * @param allowed the largest error allowed in any reconstructed kernel value
+   * @return the single-term decomposition, or null if the kernel is not separable
+   */
+  private static KernelDecomposition factorSeparable(double[][] kernel, double allowed) {
+    int n = kernel.length;
+    int pivotX = 0;
+    int pivotY = 0;
+    for (int x = 0; x < n; x++) {
+      for (int y = 0; y < n; y++) {
+        if (Math.abs(kernel[x][y]) > Math.abs(kernel[pivotX][pivotY])) {
+          pivotX = x;
+          pivotY = y;
+        }
+      }
+    }
+    double[] column = new double[n];
+    double[] row = new double[n];
+    for (int i = 0; i < n; i++) {
+      column[i] = kernel[pivotX][i];
+      row[i] = kernel[i][pivotY] / kernel[pivotX][pivotY];
+    }
+    for (int x = 0; x < n; x++) {
+      for (int y = 0; y < n; y++) {
+        if (Math.abs(column[y] * row[x] - kernel[x][y]) > allowed) {
+          return null;
+        }
+      }
+    }
+    return new KernelDecomposition(n, new double[][]{column}, new double[][]{row});
+  }
+
+  /**
+   * decomposes a kernel with a one-sided Jacobi singular value decomposition, keeping the largest
+   * terms until every kernel value is reproduced within the allowed error.
+   *
+   * @param kernel  the kernel values, indexed by column then row
+   * @param allowed the largest error allowed in any reconstructed kernel value
+   * @return the decomposition of the kernel
+   */
+  private static KernelDecomposition decomposeSingularValues(double[][] kernel, double allowed) {
+    int n = kernel.length;
+    // w starts as the kernel with rows indexed by y; rotating its columns leaves w = A * v with
+    // orthogonal columns, so A = w * transpose(v)
+    double[][] w = new double[n][n];
+    double[][] v = new double[n][n];
+    for (int y = 0; y < n; y++) {
+      for (int x = 0; x < n; x++) {
+        w[y][x] = kernel[x][y];
+      }
+      v[y][y] = 1;
+    }
+
+    for (int sweep = 0; sweep < MAX_SWEEPS; sweep++) {
+      boolean rotated = false;
+      for (int p = 0; p < n - 1; p++) {
+        for (int q = p + 1; q < n; q++) {
+          double alpha = 0;
+          double beta = 0;
+          double gamma = 0;
+          for (int i = 0; i < n; i++) {
+            alpha += w[i][p] * w[i][p];
+            beta += w[i][q] * w[i][q];
+            gamma += w[i][p] * w[i][q];
+          }
+          if (Math.abs(gamma) <= 1e-15 * Math.sqrt(alpha * beta)) {
+            continue;
+          }
+          rotated = true;
+          double zeta = (beta - alpha) / (2 * gamma);
+          double t = zeta == 0
+              ? 1 : Math.signum(zeta) / (Math.abs(zeta) + Math.sqrt(1 + zeta * zeta));
+          double c = 1 / Math.sqrt(1 + t * t);
+          double s = c * t;
+          rotate(w, p, q, c, s);
+          rotate(v, p, q, c, s);
+        }
+      }
+      if (!rotated) {
+        break;
+      }
+    }
+
+    Integer[] order = new Integer[n];
+    double[] norms = new double[n];
+    for (int j = 0; j < n; j++) {
+      order[j] = j;
+      for (int i = 0; i < n; i++) {
+        norms[j] += w[i][j] * w[i][j];
+      }
+    }
+    Arrays.sort(order, (a, b) -> Double.compare(norms[b], norms[a]));
+
+    double[][] reconstruction = new double[n][n];
+    int terms = 0;
+    while (terms < n) {
+      int j = order[terms];
+      for (int y = 0; y < n; y++) {
+        for (int x = 0; x < n; x++) {
+          reconstruction[x][y] += w[y][j] * v[x][j];
+        }
+      }
+      terms++;
+      if (maxError(kernel, reconstruction) <= allowed) {
+        break;
+      }
+    }
+
+    double[][] columns = new double[terms][n];
+    double[][] rows = new double[terms][n];
+    for (int t = 0; t < terms; t++) {
+      int j = order[t];
+      for (int i = 0; i < n; i++) {
+        columns[t][i] = w[i][j];
+        rows[t][i] = v[i][j];
+      }
+    }
+    return new KernelDecomposition(n, columns, rows);
+  }
+
+  private static void rotate(double[][] matrix, int p, int q, double c, double s) {
+    for (double[] row : matrix) {
+      double first = row[p];
+      double second = row[q];
+      row[p] = c * first - s * second;
+      row[q] = s * first + c * second;
+    }
+  }
+
+  private static double maxError(double[][] kernel, double[][] reconstruction) {
+    double error = 0;
+    for (int x = 0; x < kernel.length; x++) {
+      for (int y = 0; y < kernel.length; y++) {
+        error = Math.max(error, Math.abs(kernel[x][y] - reconstruction[x][y]));
+      }
+    }
+    return error;
+  }
+
+  /**
+   * getter method for the number of separable terms in this decomposition.
+   *
+   * @return the number of terms
+   */
+  int rank() {
+    return this.columns.length;
+  }
+
+  /**
+   * getter method for the width and height of the decomposed kernel.
+   *
+   * @return the size of the kernel
+   */
+  int size() {
+    return this.size;
+  }
+
+  /**
+   * whether applying this decomposition as horizontal and vertical passes is cheaper than a direct
+   * convolution by the whole kernel.
+   *
+   * @return true if the separable passes should be used
+   */
+  boolean isWorthSeparating() {
+    return this.size >= MIN_SEPARABLE_SIZE && 2 * this.rank() * this.size < this.size * this.size;
+  }
+
+  /**
+   * getter method for the vertical weights of a term, indexed by kernel row.
+   *
+   * @param term the index of the term
+   * @return the vertical weights of the term
+   */
+  double[] column(int term) {
+    return this.columns[term];
+  }
+
+  /**
+   * getter method for the horizontal weights of a term, indexed by kernel column.
+   *
+   * @param term the index of the term
+   * @return the horizontal weights of the term
+   */
+  double[] row(int term) {
+    return this.rows[term];
+  }
+}
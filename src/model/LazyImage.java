@@ -0,0 +1,207 @@
+package model;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Supplier;
+
+/**
+ * An image whose pixels are not computed until they are first read. A LazyImage is a node in a
+ * graph of operations: it knows its size and the operation that produces it from another image,
+ * which may itself be lazy, and it runs that operation (and any operations it depends on) the first
+ * time a pixel is asked for. The result is kept, so every operation runs at most once, and the
+ * operation and its source are then released.
+ *
+ * <p>The same deterministic operation applied to the same source image yields the same LazyImage,
+ * so a subexpression shared by several layers is only computed once. An image that is never read,
+ * such as a layer that is removed or replaced before it is saved, is never computed at all.
+ */
+public final class LazyImage implements IImage {
+
+  // source image -> operation description -> the node applying that operation to that source
+  private static final Map<IImage, Map<String, WeakReference<LazyImage>>> NODES =
+      new WeakHashMap<>();
+
+  private final int width;
+  private final int height;
+  private Supplier<IImage> operation;
+  private volatile PackedImage result;
+
+  private LazyImage(int width, int height, Supplier<IImage> operation) {
+    this.width = width;
+    this.height = height;
+    this.operation = operation;
+  }
+
+  /**
+   * gets the lazy image of the supplied operation applied to the supplied source image, reusing the
+   * node of an identical earlier operation on the same source if there is one.
+   *
+   * @param source      the image the operation reads
+   * @param description a description that is equal for two operations exactly when they always
+   *                    produce the same image from the same source, or null if the operation is not
+   *                    deterministic and must never be shared
+   * @param width       the width of the image the operation produces
+   * @param height      the height of the image the operation produces
+   * @param operation   computes the image
+   * @return the lazy image of the operation
+   */
+  static LazyImage derive(IImage source, String description, int width, int height,
+      Supplier<IImage> operation) {
+    if (description == null) {
+      return new LazyImage(width, height, operation);
+    }
+    synchronized (NODES) {
+      Map<String, WeakReference<LazyImage>> derived =
+          NODES.computeIfAbsent(source, image -> new HashMap<>());
+      WeakReference<LazyImage> reference = derived.get(description);
+      LazyImage node = reference == null ? null : reference.get();
+      if (node == null || node.width != width || node.height != height) {
+        node = new LazyImage(width, height, operation);
+        derived.put(description, new WeakReference<>(node));
+      }
+      return node;
+    }
+  }
+
+  /**
+   * makes a lazy image of the supplied size whose pixels are produced by the supplied operation the
+   * first time they are read, such as a layer of a project file that is only decoded once it is
+   * shown or filtered. The image is never shared with another operation.
+   *
+   * @param width     the width of the image the operation produces
+   * @param height    the height of the image the operation produces
+   * @param operation computes the image
+   * @return the lazy image of the operation
+   * @throws IllegalArgumentException if the size is not positive or the operation is null
+   */
+  public static LazyImage of(int width, int height, Supplier<IImage> operation)
+      throws IllegalArgumentException {
+    if (width < 1 || height < 1 || operation == null) {
+      throw new IllegalArgumentException("Invalid lazy image");
+    }
+    return new LazyImage(width, height, operation);
+  }
+
+  /**
+   * describes a kernel by its class and values, so that two kernels with the same description
+   * always filter an image the same way.
+   *
+   * @param kernel the kernel to describe
+   * @return the description of the kernel
+   */
+  static String describe(IKernel kernel) {
+    if (kernel instanceof RunningBlurFilter) {
+      // the equivalent kernel of a wide blur is large, and its parameters say the same
+      return ((RunningBlurFilter) kernel).describe();
+    }
+    String description = kernel.getClass().getName()
+        + Arrays.deepToString(kernel.getKernelArray());
+    if (kernel instanceof SupplyFilter) {
+      description += " tolerance " + ((SupplyFilter) kernel).getTolerance();
+    }
+    return description;
+  }
+
+  /**
+   * computes the pixels of this image, and of every lazy image it depends on, if they have not been
+   * computed already.
+   *
+   * @return the computed image
+   */
+  public PackedImage evaluate() {
+    PackedImage computed = this.result;
+    if (computed == null) {
+      synchronized (this) {
+        computed = this.result;
+        if (computed == null) {
+          computed = PackedImage.of(this.operation.get());
+          this.result = computed;
+          this.operation = null;
+        }
+      }
+    }
+    return computed;
+  }
+
+  /**
+   * whether the pixels of this image have been computed yet.
+   *
+   * @return true if this image has been evaluated
+   */
+  public boolean isEvaluated() {
+    return this.result != null;
+  }
+
+  /**
+   * gets the pixel at the specified coordinates, computing this image first if needed.
+   *
+   * @param column the column of the specified pixel
+   * @param row    the row of the specified pixel
+   * @return the pixel at the specified coordinates
+   */
+  @Override
+  public Pixel getPixelAt(int column, int row) {
+    return this.evaluate().getPixelAt(column, row);
+  }
+
+  /**
+   * gets the packed RGB value of the pixel at the specified coordinates, computing this image
+   * first if needed.
+   *
+   * @param column the column of the specified pixel
+   * @param row    the row of the specified pixel
+   * @return the packed RGB value at the specified coordinates
+   */
+  @Override
+  public int getRGBAt(int column, int row) {
+    return this.evaluate().getRGBAt(column, row);
+  }
+
+  /**
+   * getter method for an image returning the image's width value. The width is known without
+   * computing the image.
+   *
+   * @return the width of this image.
+   */
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * getter method for an image returning the image's height value. The height is known without
+   * computing the image.
+   *
+   * @return the height of this image.
+   */
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * gets the pixels of this image, computing it first if needed.
+   *
+   * @return the pixels of this image.
+   */
+  @Override
+  public Pixel[][] getPixels() {
+    return this.evaluate().getPixels();
+  }
+
+  /**
+   * checks whether this image has the same pixels as the supplied image, computing it first if
+   * needed.
+   *
+   * @param that the image to compare to
+   * @return true if both images have the same size and pixels
+   * @throws IllegalArgumentException if the supplied image is null.
+   */
+  @Override
+  public boolean equalImages(IImage that) throws IllegalArgumentException {
+    return this.evaluate().equalImages(that);
+  }
+}
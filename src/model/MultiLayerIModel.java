@@ -19,6 +19,18 @@ public interface MultiLayerIModel extends IModel {
    */
   void addLayer(String name, IImage image) throws IllegalArgumentException;
 
+  /**
+   * adds a copy of an existing layer to the multi layer image under the supplied new name, with
+   * the same image and transparency as the original, and sets it as the current layer. The two
+   * layers share the same image until one of them is changed.
+   *
+   * @param name    the name of the layer to duplicate
+   * @param newName the name of the new layer
+   * @throws IllegalArgumentException if either name is null, the layer does not exist, or the new
+   *                                  name already exists.
+   */
+  void duplicateLayer(String name, String newName) throws IllegalArgumentException;
+
   /**
    * removes an IModel layer from any implementation of a multi layer image model.
    *
@@ -91,4 +103,26 @@ public interface MultiLayerIModel extends IModel {
    * Getter method for the key of the current layer.
    */
   String getCurName();
+
+  /**
+   * turns lazy mode on or off. In lazy mode, filters and color processing on a layer only record
+   * the operation, and the pixels of the result are computed the first time they are read (when
+   * the layer is saved or displayed, or evaluate is called). Identical operations on the same image
+   * share one result, and results that are never read are never computed.
+   *
+   * @param lazy whether operations should be recorded rather than computed straight away
+   */
+  void setLazy(boolean lazy);
+
+  /**
+   * whether this model is in lazy mode.
+   *
+   * @return true if operations are recorded rather than computed straight away
+   */
+  boolean isLazy();
+
+  /**
+   * computes the pixels of every layer whose operations have been recorded but not yet computed.
+   */
+  void evaluate();
 }
@@ -0,0 +1,223 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * A compact representation of an image that stores every pixel as a single packed RGB integer
+ * (0xRRGGBB) in one row-major array, instead of as a 2D array of Pixel objects. Pixels are only
+ * materialized as Pixel objects when a client asks for one through getPixelAt or getPixels.
+ */
+public class PackedImage implements IImage {
+
+  private final int width;
+  private final int height;
+  final int[] rgb;
+
+  /**
+   * Constructor for a PackedImage that takes ownership of the supplied row-major array of packed
+   * RGB values. The array is not copied, so callers must not modify it after construction.
+   *
+   * @param width  the width of the image
+   * @param height the height of the image
+   * @param rgb    the packed RGB values of the image, row by row
+   * @throws IllegalArgumentException if the array is null or its size does not match the width
+   *                                  and height.
+   */
+  public PackedImage(int width, int height, int[] rgb) throws IllegalArgumentException {
+    if (rgb == null || width < 0 || height < 0 || width * height != rgb.length) {
+      throw new IllegalArgumentException("Invalid Pixels for the given model.Image");
+    }
+    this.width = width;
+    this.height = height;
+    this.rgb = rgb;
+  }
+
+  /**
+   * Returns the supplied image as a PackedImage, converting it only if it is not one already.
+   *
+   * @param image the image to convert
+   * @return a PackedImage with the same pixels as the supplied image
+   * @throws IllegalArgumentException if the supplied image is null.
+   */
+  public static PackedImage of(IImage image) throws IllegalArgumentException {
+    if (image == null) {
+      throw new IllegalArgumentException("images cannot be null!");
+    }
+    if (image instanceof PackedImage) {
+      return (PackedImage) image;
+    }
+    if (image instanceof LazyImage) {
+      return ((LazyImage) image).evaluate();
+    }
+    if (image instanceof PatchedImage) {
+      return ((PatchedImage) image).toPacked();
+    }
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[] rgb = new int[width * height];
+    for (int j = 0; j < height; j++) {
+      for (int i = 0; i < width; i++) {
+        rgb[i + width * j] = image.getRGBAt(i, j);
+      }
+    }
+    return new PackedImage(width, height, rgb);
+  }
+
+  /**
+   * packs the supplied color values into a single RGB integer, capping each value between 0 and
+   * 255 the same way a Pixel does.
+   *
+   * @param red   the red value
+   * @param green the green value
+   * @param blue  the blue value
+   * @return the packed RGB value
+   */
+  public static int pack(int red, int green, int blue) {
+    return (capColor(red) << 16) | (capColor(green) << 8) | capColor(blue);
+  }
+
+  /**
+   * gets the red value of a packed RGB integer.
+   *
+   * @param rgb the packed RGB value
+   * @return the red value
+   */
+  public static int red(int rgb) {
+    return (rgb >> 16) & 0xFF;
+  }
+
+  /**
+   * gets the green value of a packed RGB integer.
+   *
+   * @param rgb the packed RGB value
+   * @return the green value
+   */
+  public static int green(int rgb) {
+    return (rgb >> 8) & 0xFF;
+  }
+
+  /**
+   * gets the blue value of a packed RGB integer.
+   *
+   * @param rgb the packed RGB value
+   * @return the blue value
+   */
+  public static int blue(int rgb) {
+    return rgb & 0xFF;
+  }
+
+  private static int capColor(int i) {
+    if (i < 0) {
+      return 0;
+    } else if (i > 255) {
+      return 255;
+    } else {
+      return i;
+    }
+  }
+
+  /**
+   * gets the pixel at the supplied column and row (x and y values).
+   *
+   * @param column the column of the specified pixel
+   * @param row    the row of the specified pixel
+   * @return the pixel at the specified coordinates
+   * @throws IndexOutOfBoundsException if the coordinates are outside of the image.
+   */
+  @Override
+  public Pixel getPixelAt(int column, int row) {
+    int value = this.getRGBAt(column, row);
+    return new Pixel(red(value), green(value), blue(value));
+  }
+
+  /**
+   * gets the packed RGB value at the supplied column and row (x and y values).
+   *
+   * @param column the column of the specified pixel
+   * @param row    the row of the specified pixel
+   * @return the packed RGB value at the specified coordinates
+   * @throws IndexOutOfBoundsException if the coordinates are outside of the image.
+   */
+  @Override
+  public int getRGBAt(int column, int row) {
+    if (column < 0 || column >= this.width || row < 0 || row >= this.height) {
+      throw new IndexOutOfBoundsException("(" + column + ", " + row + ") is outside the image");
+    }
+    return this.rgb[column + this.width * row];
+  }
+
+  /**
+   * getter method for an image returning the image's width value.
+   *
+   * @return the width of this image.
+   */
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * getter method for an image returning the image's height value.
+   *
+   * @return the height of this image.
+   */
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * getter method for an image returning a copy of the image's pixels as a 2D pixel array indexed
+   * by column then row.
+   *
+   * @return the pixels of this image.
+   */
+  @Override
+  public Pixel[][] getPixels() {
+    Pixel[][] returnMatrix = new Pixel[this.width][this.height];
+    for (int j = 0; j < this.height; j++) {
+      for (int i = 0; i < this.width; i++) {
+        int value = this.rgb[i + this.width * j];
+        returnMatrix[i][j] = new Pixel(red(value), green(value), blue(value));
+      }
+    }
+    return returnMatrix;
+  }
+
+  /**
+   * getter method returning a copy of this image's packed RGB values, row by row.
+   *
+   * @return the packed RGB values of this image.
+   */
+  public int[] getRGBArray() {
+    return Arrays.copyOf(this.rgb, this.rgb.length);
+  }
+
+  /**
+   * determines if two IImages are equal.
+   *
+   * @param that the other image to compare to this
+   * @return whether this image and that image are the same image
+   * @throws IllegalArgumentException if the supplied image is null.
+   */
+  @Override
+  public boolean equalImages(IImage that) throws IllegalArgumentException {
+    if (that == null) {
+      throw new IllegalArgumentException("images cannot be null!");
+    }
+    if (this.width != that.getWidth() || this.height != that.getHeight()) {
+      return false;
+    }
+    if (that instanceof PackedImage) {
+      return Arrays.equals(this.rgb, ((PackedImage) that).rgb);
+    }
+    for (int j = 0; j < this.height; j++) {
+      for (int i = 0; i < this.width; i++) {
+        if (this.rgb[i + this.width * j] != that.getRGBAt(i, j)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+}
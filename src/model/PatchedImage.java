@@ -0,0 +1,173 @@
+package model;
+
+/**
+ * An image that is another image with a rectangle of its pixels replaced. Only the pixels of the
+ * rectangle are stored; every other pixel is read from the image underneath, which is shared
+ * rather than copied. Operations on a region of a large image return a PatchedImage, so a small
+ * retouch of a large image takes memory in proportion to the retouched area.
+ *
+ * <p>A patch that covers an earlier patch replaces it, and a long chain of patches is flattened
+ * into a PackedImage, so reading a pixel never walks through more than a few patches.
+ */
+final class PatchedImage implements IImage {
+
+  // the most patches laid on top of one another before they are flattened
+  private static final int MAX_DEPTH = 16;
+
+  private final IImage base;
+  private final int x;
+  private final int y;
+  private final int patchWidth;
+  private final int patchHeight;
+  private final int[] patch;
+  private final int depth;
+
+  private PatchedImage(IImage base, int x, int y, int patchWidth, int patchHeight, int[] patch,
+      int depth) {
+    this.base = base;
+    this.x = x;
+    this.y = y;
+    this.patchWidth = patchWidth;
+    this.patchHeight = patchHeight;
+    this.patch = patch;
+    this.depth = depth;
+  }
+
+  /**
+   * gets the image of the supplied base image with a rectangle of it replaced by the supplied
+   * pixels. The patch is not copied, so callers must not modify it afterwards.
+   *
+   * @param base        the image to patch
+   * @param x           the column of the left edge of the rectangle, inside the image
+   * @param y           the row of the top edge of the rectangle, inside the image
+   * @param patchWidth  the width of the rectangle
+   * @param patchHeight the height of the rectangle
+   * @param patch       the packed RGB values of the rectangle, row by row
+   * @return the patched image
+   */
+  static IImage of(IImage base, int x, int y, int patchWidth, int patchHeight, int[] patch) {
+    if (x == 0 && y == 0 && patchWidth == base.getWidth() && patchHeight == base.getHeight()) {
+      return new PackedImage(patchWidth, patchHeight, patch);
+    }
+    if (base instanceof PatchedImage) {
+      PatchedImage under = (PatchedImage) base;
+      if (x <= under.x && y <= under.y && x + patchWidth >= under.x + under.patchWidth
+          && y + patchHeight >= under.y + under.patchHeight) {
+        // the earlier patch is hidden entirely by this one
+        return of(under.base, x, y, patchWidth, patchHeight, patch);
+      }
+    }
+    int depth = base instanceof PatchedImage ? ((PatchedImage) base).depth + 1 : 1;
+    PatchedImage patched = new PatchedImage(base, x, y, patchWidth, patchHeight, patch, depth);
+    if (depth > MAX_DEPTH) {
+      return patched.toPacked();
+    }
+    return patched;
+  }
+
+  /**
+   * copies this image into a PackedImage, with the patch laid over a copy of the base image.
+   *
+   * @return a PackedImage with the same pixels as this image
+   */
+  PackedImage toPacked() {
+    int width = this.getWidth();
+    // a patched base is already copied by flattening it
+    int[] rgb = this.base instanceof PatchedImage
+        ? ((PatchedImage) this.base).toPacked().rgb : PackedImage.of(this.base).getRGBArray();
+    for (int j = 0; j < this.patchHeight; j++) {
+      System.arraycopy(this.patch, this.patchWidth * j, rgb, this.x + width * (this.y + j),
+          this.patchWidth);
+    }
+    return new PackedImage(width, this.getHeight(), rgb);
+  }
+
+  /**
+   * gets the pixel at the supplied column and row (x and y values).
+   *
+   * @param column the column of the specified pixel
+   * @param row    the row of the specified pixel
+   * @return the pixel at the specified coordinates
+   * @throws IndexOutOfBoundsException if the coordinates are outside of the image.
+   */
+  @Override
+  public Pixel getPixelAt(int column, int row) {
+    int value = this.getRGBAt(column, row);
+    return new Pixel(PackedImage.red(value), PackedImage.green(value), PackedImage.blue(value));
+  }
+
+  /**
+   * gets the packed RGB value at the supplied column and row (x and y values), from the patch if
+   * it covers the pixel and from the base image otherwise.
+   *
+   * @param column the column of the specified pixel
+   * @param row    the row of the specified pixel
+   * @return the packed RGB value at the specified coordinates
+   * @throws IndexOutOfBoundsException if the coordinates are outside of the image.
+   */
+  @Override
+  public int getRGBAt(int column, int row) {
+    int i = column - this.x;
+    int j = row - this.y;
+    if (i >= 0 && j >= 0 && i < this.patchWidth && j < this.patchHeight) {
+      return this.patch[i + this.patchWidth * j];
+    }
+    return this.base.getRGBAt(column, row);
+  }
+
+  /**
+   * getter method for an image returning the image's width value.
+   *
+   * @return the width of this image.
+   */
+  @Override
+  public int getWidth() {
+    return this.base.getWidth();
+  }
+
+  /**
+   * getter method for an image returning the image's height value.
+   *
+   * @return the height of this image.
+   */
+  @Override
+  public int getHeight() {
+    return this.base.getHeight();
+  }
+
+  /**
+   * getter method for an image returning a copy of the image's pixels as a 2D pixel array indexed
+   * by column then row.
+   *
+   * @return the pixels of this image.
+   */
+  @Override
+  public Pixel[][] getPixels() {
+    return this.toPacked().getPixels();
+  }
+
+  /**
+   * determines if two IImages are equal.
+   *
+   * @param that the other image to compare to this
+   * @return whether this image and that image are the same image
+   * @throws IllegalArgumentException if the supplied image is null.
+   */
+  @Override
+  public boolean equalImages(IImage that) throws IllegalArgumentException {
+    if (that == null) {
+      throw new IllegalArgumentException("images cannot be null!");
+    }
+    if (this.getWidth() != that.getWidth() || this.getHeight() != that.getHeight()) {
+      return false;
+    }
+    for (int j = 0; j < this.getHeight(); j++) {
+      for (int i = 0; i < this.getWidth(); i++) {
+        if (this.getRGBAt(i, j) != that.getRGBAt(i, j)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,132 @@
+package model;
+
+/**
+ * A part of an image to apply an operation to: a rectangle, or the pixels of a mask laid over a
+ * rectangle. Operations on a region only compute the pixels inside its rectangle (together with
+ * the pixels around it that a filter reads), and share every other pixel with the source image, so
+ * they cost time and memory in proportion to the size of the region rather than of the image.
+ *
+ * <p>A region may reach past the borders of the image it is applied to; only the part of it inside
+ * the image is changed.
+ */
+public final class Region {
+
+  private final int x;
+  private final int y;
+  private final int width;
+  private final int height;
+  // indexed [column][row] from the top left corner of the rectangle, or null for all of it
+  private final boolean[][] mask;
+
+  /**
+   * Constructor for a rectangular region.
+   *
+   * @param x      the column of the left edge of the rectangle
+   * @param y      the row of the top edge of the rectangle
+   * @param width  the width of the rectangle
+   * @param height the height of the rectangle
+   * @throws IllegalArgumentException if the width or height is less than 1.
+   */
+  public Region(int x, int y, int width, int height) throws IllegalArgumentException {
+    if (width < 1 || height < 1) {
+      throw new IllegalArgumentException("Region must be at least one pixel wide and high");
+    }
+    this.x = x;
+    this.y = y;
+    this.width = width;
+    this.height = height;
+    this.mask = null;
+  }
+
+  /**
+   * Constructor for a region made of the pixels of a mask, placed with its top left corner at the
+   * supplied position. The mask only needs to cover the rectangle around the pixels it selects,
+   * not the whole image.
+   *
+   * @param x    the column of the left edge of the mask
+   * @param y    the row of the top edge of the mask
+   * @param mask whether each pixel is in the region, indexed [column][row]; it is copied
+   * @throws IllegalArgumentException if the mask is null, empty, or not rectangular.
+   */
+  public Region(int x, int y, boolean[][] mask) throws IllegalArgumentException {
+    if (mask == null || mask.length == 0 || mask[0] == null || mask[0].length == 0) {
+      throw new IllegalArgumentException("Mask cannot be empty");
+    }
+    this.x = x;
+    this.y = y;
+    this.width = mask.length;
+    this.height = mask[0].length;
+    this.mask = new boolean[this.width][];
+    for (int i = 0; i < this.width; i++) {
+      if (mask[i] == null || mask[i].length != this.height) {
+        throw new IllegalArgumentException("Mask must be rectangular");
+      }
+      this.mask[i] = mask[i].clone();
+    }
+  }
+
+  /**
+   * getter method for the column of the left edge of this region's rectangle.
+   *
+   * @return the left column of this region
+   */
+  public int getX() {
+    return this.x;
+  }
+
+  /**
+   * getter method for the row of the top edge of this region's rectangle.
+   *
+   * @return the top row of this region
+   */
+  public int getY() {
+    return this.y;
+  }
+
+  /**
+   * getter method for the width of this region's rectangle.
+   *
+   * @return the width of this region
+   */
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * getter method for the height of this region's rectangle.
+   *
+   * @return the height of this region
+   */
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * whether the pixel at the supplied coordinates of an image is in this region.
+   *
+   * @param column the column of the pixel
+   * @param row    the row of the pixel
+   * @return true if the pixel is in this region
+   */
+  public boolean contains(int column, int row) {
+    long i = (long) column - this.x;
+    long j = (long) row - this.y;
+    if (i < 0 || j < 0 || i >= this.width || j >= this.height) {
+      return false;
+    }
+    return this.mask == null || this.mask[(int) i][(int) j];
+  }
+
+  /**
+   * describes this region for lazy images, so that two operations on regions with the same
+   * description change the same pixels.
+   *
+   * @return the description of this region, or null for a masked region, which is not described
+   */
+  String describe() {
+    if (this.mask != null) {
+      return null;
+    }
+    return "region " + this.x + " " + this.y + " " + this.width + " " + this.height;
+  }
+}
@@ -0,0 +1,226 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A filter kernel that has the effect of applying another filter kernel several times in a row,
+ * precomputed as a single larger kernel: the supplied kernel convolved with itself. Applying it
+ * filters the image once, so ten blurs cost about one pass over the image rather than ten, and
+ * the large kernel it builds is applied through the same separable plans as any other large
+ * kernel.
+ *
+ * <p>Filtering the image repeatedly clamps every channel between passes, which the combined kernel
+ * cannot do, so only kernels with no negative taps that sum to at most one can be combined: no pass
+ * of those can leave the range of a channel, so no clamping is lost. Kernels that can, such as
+ * sharpen, must be applied pass by pass (see passes). The combined kernel still rounds once where
+ * repeated 3x3 passes round every channel down after each tap, and reaches further past the border
+ * in a single pass where repeated passes read black past it on each one, so it keeps a little more
+ * brightness. Combined kernels are limited to MAX_LENGTH, beyond which the kernel is as costly to
+ * build as it is to apply.
+ */
+public class RepeatedFilter implements IKernel {
+
+  /**
+   * the largest width of a combined kernel.
+   */
+  public static final int MAX_LENGTH = 101;
+
+  private final double[][] repeatedKernel;
+  private final int times;
+
+  /**
+   * Constructor for a kernel that applies the supplied filter kernel the supplied number of times.
+   *
+   * @param kernel the filter kernel to repeat
+   * @param times  the number of times to apply the kernel
+   * @throws IllegalArgumentException if the kernel is null or not square with odd dimensions,
+   *                                  times is less than one, or the kernel cannot be combined that
+   *                                  many times (see canCombine).
+   */
+  public RepeatedFilter(IKernel kernel, int times) throws IllegalArgumentException {
+    if (kernel == null) {
+      throw new IllegalArgumentException("kernel cannot be null");
+    }
+    if (kernel.getLength() % 2 == 0 || kernel.getLength() != kernel.getHeight()) {
+      throw new IllegalArgumentException("Filter kernel must be square with odd dimensions!");
+    }
+    if (times < 1) {
+      throw new IllegalArgumentException("kernel must be applied at least once");
+    }
+    if (!canCombine(kernel, times)) {
+      throw new IllegalArgumentException("kernel cannot be combined " + times + " times");
+    }
+    double[][] base = kernel.getKernelArray();
+    double[][] result = base;
+    for (int i = 1; i < times; i++) {
+      result = convolve(result, base);
+    }
+    this.repeatedKernel = result;
+    this.times = times;
+  }
+
+  /**
+   * whether the supplied kernel can be combined the supplied number of times: it has no negative
+   * taps, its taps sum to at most one, and the combined kernel is no wider than MAX_LENGTH.
+   *
+   * @param kernel the square kernel of odd size to repeat
+   * @param times  the number of times to apply it
+   * @return true if a RepeatedFilter of the kernel gives the same result as applying it that many
+   *         times, up to rounding and the border
+   * @throws IllegalArgumentException if the kernel is null
+   */
+  public static boolean canCombine(IKernel kernel, int times) throws IllegalArgumentException {
+    if (kernel == null) {
+      throw new IllegalArgumentException("kernel cannot be null");
+    }
+    if ((long) (kernel.getLength() - 1) * times + 1 > MAX_LENGTH) {
+      return false;
+    }
+    double sum = 0;
+    for (double[] column : kernel.getKernelArray()) {
+      for (double value : column) {
+        if (value < 0) {
+          return false;
+        }
+        sum += value;
+      }
+    }
+    return sum <= 1 + 1e-9;
+  }
+
+  /**
+   * gets the kernels to apply one after another to have the effect of applying the supplied kernel
+   * the supplied number of times: as few combined kernels as MAX_LENGTH allows if the kernel can be
+   * combined, or the kernel itself that many times otherwise.
+   *
+   * @param kernel the square kernel of odd size to repeat
+   * @param times  the number of times to apply it
+   * @return the kernels to apply, in order
+   * @throws IllegalArgumentException if the kernel is null or not square with odd dimensions, or
+   *                                  times is less than one.
+   */
+  public static List<IKernel> passes(IKernel kernel, int times) throws IllegalArgumentException {
+    if (kernel == null) {
+      throw new IllegalArgumentException("kernel cannot be null");
+    }
+    if (kernel.getLength() % 2 == 0 || kernel.getLength() != kernel.getHeight()) {
+      throw new IllegalArgumentException("Filter kernel must be square with odd dimensions!");
+    }
+    if (times < 1) {
+      throw new IllegalArgumentException("kernel must be applied at least once");
+    }
+    if (times == 1 || !canCombine(kernel, 2)) {
+      return Collections.nCopies(times, kernel);
+    }
+    int most = kernel.getLength() == 1 ? times : (MAX_LENGTH - 1) / (kernel.getLength() - 1);
+    List<IKernel> passes = new ArrayList<>();
+    for (int left = times; left > 0; left -= most) {
+      int chunk = Math.min(most, left);
+      passes.add(chunk == 1 ? kernel : new RepeatedFilter(kernel, chunk));
+    }
+    return passes;
+  }
+
+  /**
+   * convolves two square kernels of odd size, giving the kernel that has the same effect as
+   * filtering by one and then the other.
+   *
+   * @param first  the first kernel, indexed [x][y]
+   * @param second the second kernel, indexed [x][y]
+   * @return the combined kernel, indexed [x][y]
+   */
+  private static double[][] convolve(double[][] first, double[][] second) {
+    int size = first.length + second.length - 1;
+    double[][] result = new double[size][size];
+    for (int x1 = 0; x1 < first.length; x1++) {
+      for (int y1 = 0; y1 < first.length; y1++) {
+        double weight = first[x1][y1];
+        if (weight == 0) {
+          continue;
+        }
+        for (int x2 = 0; x2 < second.length; x2++) {
+          for (int y2 = 0; y2 < second.length; y2++) {
+            result[x1 + x2][y1 + y2] += weight * second[x2][y2];
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * getter method that returns this Filter's Kernel as a 2D array of double.
+   *
+   * @return the 2D array of doubles that represents this kernel.
+   */
+  @Override
+  public double[][] getKernelArray() {
+    double[][] returnMatrix = new double[this.getLength()][];
+    for (int i = 0; i < this.repeatedKernel.length; i++) {
+      returnMatrix[i] = this.repeatedKernel[i].clone();
+    }
+    return returnMatrix;
+  }
+
+  /**
+   * gets the value from the kernel at the supplied indices.
+   *
+   * @param x the column number of the desired value
+   * @param y the row number of the desired value
+   * @return the value at the supplied indices
+   * @throws IllegalArgumentException if the supplied indices are out of bound.
+   */
+  @Override
+  public double getInKernel(int x, int y) throws IllegalArgumentException {
+    if (x >= this.getLength() || y >= this.getHeight() || x < 0 || y < 0) {
+      throw new IllegalArgumentException("indices provided are out of bounds.");
+    }
+    return this.repeatedKernel[x][y];
+  }
+
+  /**
+   * the method that applies this kernel filter to the provided image model.
+   *
+   * @param m the image model to apply the filter to
+   * @return a copy of the provided image with the filter applied
+   * @throws IllegalArgumentException if the supplied model is null
+   */
+  @Override
+  public IImage apply(IModel m) throws IllegalArgumentException {
+    if (m == null) {
+      throw new IllegalArgumentException("model cannot be null.");
+    }
+    return m.applyFilter(this);
+  }
+
+  /**
+   * getter method that returns the number of times the original kernel is applied.
+   *
+   * @return the number of repeats this kernel stands for
+   */
+  public int getTimes() {
+    return this.times;
+  }
+
+  /**
+   * getter method that returns the length of this kernel.
+   *
+   * @return the length of this kernel
+   */
+  @Override
+  public int getLength() {
+    return this.repeatedKernel.length;
+  }
+
+  /**
+   * getter method that returns the height of this kernel.
+   *
+   * @return the height of this kernel
+   */
+  @Override
+  public int getHeight() {
+    return this.repeatedKernel[0].length;
+  }
+}
@@ -0,0 +1,23 @@
+package model;
+
+/**
+ * The ways an image can be resampled when it is scaled down.
+ */
+public enum ResampleMode {
+
+  /**
+   * Each new pixel blends the two to four old pixels nearest to where it falls, truncating each
+   * blend to a whole value. This is the default, and gives exactly the pixels downScale always has.
+   * It is fast, but for strong reductions it skips most of the old pixels, so fine detail turns
+   * into noise.
+   */
+  BILINEAR,
+
+  /**
+   * Each new pixel is the average of every old pixel it covers, weighted by how much of each it
+   * covers, and rounded to the nearest whole value. When the old size is a whole multiple of the new
+   * one, every new pixel averages an equal block of old pixels, summed exactly. This is the better
+   * choice for thumbnails and other strong reductions.
+   */
+  AREA
+}
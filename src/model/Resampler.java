@@ -0,0 +1,328 @@
+package model;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A plan for scaling images of one size down to another, made once and reused for every image of
+ * that size. For each column and each row of the new image the plan lists the old columns or rows
+ * it reads and their weights, so resampling is a horizontal pass over the old rows the new rows
+ * need, followed by a vertical pass that combines them, with no coordinates worked out per pixel.
+ * The rows of the new image are resampled in bands through RowBands.
+ *
+ * <p>The most recently used plans are kept, so a batch of images of the same size shares one plan.
+ */
+final class Resampler {
+
+  // the number of plans kept for reuse
+  private static final int CACHE_SIZE = 16;
+
+  private static final Map<String, Resampler> PLANS =
+      new LinkedHashMap<String, Resampler>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Resampler> eldest) {
+          return this.size() > CACHE_SIZE;
+        }
+      };
+
+  /**
+   * The old columns or rows that each new column or row reads, and their weights.
+   */
+  private static final class Axis {
+
+    private final int taps;
+    private final int[] index;
+    private final double[] weight;
+
+    private Axis(int newSize, int taps) {
+      this.taps = taps;
+      this.index = new int[newSize * taps];
+      this.weight = new double[newSize * taps];
+    }
+
+    /**
+     * plans an axis the way downScale always has: new position i falls at i * oldSize / newSize,
+     * and reads the old positions either side of it, or just the one it lands on exactly.
+     *
+     * @param oldSize the old width or height
+     * @param newSize the new width or height
+     * @return the plan of the axis
+     */
+    static Axis bilinear(int oldSize, int newSize) {
+      Axis axis = new Axis(newSize, 2);
+      for (int i = 0; i < newSize; i++) {
+        double position = (i * oldSize) / (double) newSize;
+        if (position % 1 == 0) {
+          axis.index[2 * i] = (int) position;
+          axis.index[2 * i + 1] = (int) position;
+          axis.weight[2 * i] = 1;
+        } else {
+          axis.index[2 * i] = (int) Math.floor(position);
+          axis.index[2 * i + 1] = (int) Math.ceil(position);
+          axis.weight[2 * i] = Math.ceil(position) - position;
+          axis.weight[2 * i + 1] = position - Math.floor(position);
+        }
+      }
+      return axis;
+    }
+
+    /**
+     * plans an axis by area: new position i covers the old positions from i * oldSize / newSize to
+     * (i + 1) * oldSize / newSize, each weighted by how much of it is covered.
+     *
+     * @param oldSize the old width or height
+     * @param newSize the new width or height
+     * @return the plan of the axis
+     */
+    static Axis area(int oldSize, int newSize) {
+      double scale = (double) oldSize / newSize;
+      Axis axis = new Axis(newSize, (int) Math.ceil(scale) + 1);
+      for (int i = 0; i < newSize; i++) {
+        double start = i * scale;
+        double end = Math.min(oldSize, (i + 1) * scale);
+        int first = (int) Math.floor(start);
+        for (int k = 0; k < axis.taps; k++) {
+          int old = first + k;
+          double covered = Math.min(end, old + 1) - Math.max(start, old);
+          if (old < oldSize && covered > 0) {
+            axis.index[axis.taps * i + k] = old;
+            axis.weight[axis.taps * i + k] = covered / scale;
+          } else {
+            // a tap past the covered range reads the first position again, with no weight
+            axis.index[axis.taps * i + k] = first;
+          }
+        }
+      }
+      return axis;
+    }
+  }
+
+  private final int oldWidth;
+  private final int newWidth;
+  private final int newHeight;
+  private final ResampleMode mode;
+  private final Axis columns;
+  private final Axis rows;
+  // the size of the block each new pixel averages, when both sizes divide exactly
+  private final int blockWidth;
+  private final int blockHeight;
+
+  private Resampler(int oldWidth, int oldHeight, int newWidth, int newHeight,
+      ResampleMode mode) {
+    this.oldWidth = oldWidth;
+    this.newWidth = newWidth;
+    this.newHeight = newHeight;
+    this.mode = mode;
+    if (mode == ResampleMode.AREA && oldWidth % newWidth == 0 && oldHeight % newHeight == 0) {
+      this.blockWidth = oldWidth / newWidth;
+      this.blockHeight = oldHeight / newHeight;
+      this.columns = null;
+      this.rows = null;
+    } else {
+      this.blockWidth = 0;
+      this.blockHeight = 0;
+      this.columns = mode == ResampleMode.AREA
+          ? Axis.area(oldWidth, newWidth) : Axis.bilinear(oldWidth, newWidth);
+      this.rows = mode == ResampleMode.AREA
+          ? Axis.area(oldHeight, newHeight) : Axis.bilinear(oldHeight, newHeight);
+    }
+  }
+
+  /**
+   * gets the plan for scaling images of the supplied old size to the supplied new size, reusing a
+   * recent plan if there is one.
+   *
+   * @param oldWidth  the width of the images to scale
+   * @param oldHeight the height of the images to scale
+   * @param newWidth  the width of the scaled images, from 1 to the old width
+   * @param newHeight the height of the scaled images, from 1 to the old height
+   * @param mode      how the scaled pixels are computed
+   * @return the plan
+   */
+  static Resampler of(int oldWidth, int oldHeight, int newWidth, int newHeight,
+      ResampleMode mode) {
+    String key = oldWidth + " " + oldHeight + " " + newWidth + " " + newHeight + " " + mode;
+    synchronized (PLANS) {
+      Resampler plan = PLANS.get(key);
+      if (plan == null) {
+        plan = new Resampler(oldWidth, oldHeight, newWidth, newHeight, mode);
+        PLANS.put(key, plan);
+      }
+      return plan;
+    }
+  }
+
+  /**
+   * scales the supplied image, which must be of this plan's old size.
+   *
+   * @param image the image to scale
+   * @return the packed pixels of the scaled image
+   */
+  int[] resample(PackedImage image) {
+    int[] src = image.rgb;
+    int[] out = new int[this.newWidth * this.newHeight];
+    // each new row costs about as much as the old pixels it reads
+    long work = (long) src.length / this.newHeight;
+    int weight = (int) Math.min(Integer.MAX_VALUE, work);
+    if (this.columns == null) {
+      RowBands.run(weight, this.newHeight, (fromRow, toRow) ->
+          this.averageBlocks(src, out, fromRow, toRow));
+    } else {
+      RowBands.run(weight, this.newHeight, (fromRow, toRow) ->
+          this.resampleRows(src, out, fromRow, toRow));
+    }
+    return out;
+  }
+
+  /**
+   * averages the equal blocks of old pixels under the new rows from fromRow (inclusive) to toRow
+   * (exclusive), summing them exactly and rounding each average to the nearest whole value.
+   *
+   * @param src     the packed pixels of the old image
+   * @param out     the packed pixels of the new image
+   * @param fromRow the first new row
+   * @param toRow   the row after the last new row
+   */
+  private void averageBlocks(int[] src, int[] out, int fromRow, int toRow) {
+    int count = this.blockWidth * this.blockHeight;
+    int[] red = new int[this.newWidth];
+    int[] green = new int[this.newWidth];
+    int[] blue = new int[this.newWidth];
+    for (int y = fromRow; y < toRow; y++) {
+      Arrays.fill(red, 0);
+      Arrays.fill(green, 0);
+      Arrays.fill(blue, 0);
+      for (int oldY = y * this.blockHeight; oldY < (y + 1) * this.blockHeight; oldY++) {
+        int offset = this.oldWidth * oldY;
+        for (int x = 0; x < this.newWidth; x++) {
+          for (int i = 0; i < this.blockWidth; i++) {
+            int rgb = src[offset++];
+            red[x] += (rgb >> 16) & 0xFF;
+            green[x] += (rgb >> 8) & 0xFF;
+            blue[x] += rgb & 0xFF;
+          }
+        }
+      }
+      for (int x = 0; x < this.newWidth; x++) {
+        out[x + this.newWidth * y] = PackedImage.pack((red[x] + count / 2) / count,
+            (green[x] + count / 2) / count, (blue[x] + count / 2) / count);
+      }
+    }
+  }
+
+  /**
+   * resamples the new rows from fromRow (inclusive) to toRow (exclusive) through the column and
+   * row tables. Bilinear plans truncate each channel after the horizontal and the vertical pass, as
+   * downScale always has; area plans keep the sums exact and round once at the end.
+   *
+   * @param src     the packed pixels of the old image
+   * @param out     the packed pixels of the new image
+   * @param fromRow the first new row
+   * @param toRow   the row after the last new row
+   */
+  private void resampleRows(int[] src, int[] out, int fromRow, int toRow) {
+    boolean truncate = this.mode == ResampleMode.BILINEAR;
+    int taps = this.rows.taps;
+    // the horizontal passes of the old rows the previous new row read, which the next one reuses
+    int[] cachedRow = new int[taps];
+    double[][] cached = new double[taps][3 * this.newWidth];
+    Arrays.fill(cachedRow, -1);
+    double[][] passes = new double[taps][];
+    double[] sum = new double[3 * this.newWidth];
+
+    for (int y = fromRow; y < toRow; y++) {
+      for (int k = 0; k < taps; k++) {
+        int oldY = this.rows.index[taps * y + k];
+        passes[k] = null;
+        for (int c = 0; c < taps; c++) {
+          if (cachedRow[c] == oldY) {
+            passes[k] = cached[c];
+          }
+        }
+      }
+      // horizontal passes of the rows not already cached go into the slots nothing reads now
+      for (int k = 0; k < taps; k++) {
+        if (passes[k] != null) {
+          continue;
+        }
+        int oldY = this.rows.index[taps * y + k];
+        int slot = this.freeSlot(cached, passes);
+        this.horizontal(src, oldY, cached[slot], truncate);
+        cachedRow[slot] = oldY;
+        passes[k] = cached[slot];
+        for (int j = k + 1; j < taps; j++) {
+          if (this.rows.index[taps * y + j] == oldY) {
+            passes[j] = cached[slot];
+          }
+        }
+      }
+
+      Arrays.fill(sum, 0);
+      for (int k = 0; k < taps; k++) {
+        double w = this.rows.weight[taps * y + k];
+        double[] pass = passes[k];
+        for (int i = 0; i < sum.length; i++) {
+          sum[i] += pass[i] * w;
+        }
+      }
+      for (int x = 0; x < this.newWidth; x++) {
+        double r = sum[x];
+        double g = sum[x + this.newWidth];
+        double b = sum[x + 2 * this.newWidth];
+        out[x + this.newWidth * y] = truncate
+            ? PackedImage.pack((int) r, (int) g, (int) b)
+            : PackedImage.pack((int) (r + 0.5), (int) (g + 0.5), (int) (b + 0.5));
+      }
+    }
+  }
+
+  /**
+   * finds a cache slot that none of the current passes uses.
+   *
+   * @param cached the cached passes
+   * @param passes the passes the current new row reads
+   * @return the index of a free slot
+   */
+  private int freeSlot(double[][] cached, double[][] passes) {
+    for (int slot = 0; slot < cached.length; slot++) {
+      boolean used = false;
+      for (double[] pass : passes) {
+        used |= pass == cached[slot];
+      }
+      if (!used) {
+        return slot;
+      }
+    }
+    throw new IllegalStateException("no free slot");
+  }
+
+  /**
+   * resamples one old row across, writing its red, green and blue values for each new column into
+   * consecutive thirds of the supplied array.
+   *
+   * @param src      the packed pixels of the old image
+   * @param oldY     the old row
+   * @param pass     the array to write to
+   * @param truncate whether to truncate each value to a whole number
+   */
+  private void horizontal(int[] src, int oldY, double[] pass, boolean truncate) {
+    int taps = this.columns.taps;
+    int offset = this.oldWidth * oldY;
+    for (int x = 0; x < this.newWidth; x++) {
+      double r = 0;
+      double g = 0;
+      double b = 0;
+      for (int k = 0; k < taps; k++) {
+        int rgb = src[offset + this.columns.index[taps * x + k]];
+        double w = this.columns.weight[taps * x + k];
+        r += ((rgb >> 16) & 0xFF) * w;
+        g += ((rgb >> 8) & 0xFF) * w;
+        b += (rgb & 0xFF) * w;
+      }
+      pass[x] = truncate ? (int) r : r;
+      pass[x + this.newWidth] = truncate ? (int) g : g;
+      pass[x + 2 * this.newWidth] = truncate ? (int) b : b;
+    }
+  }
+}
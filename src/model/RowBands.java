@@ -0,0 +1,148 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs per-row image work in parallel by splitting the rows of the output into bands, each of
+ * which is written directly into a shared, preallocated output buffer by one task of a fork-join
+ * pool. Every output pixel is still computed by the same code as in a serial run, so results are
+ * identical whichever way the rows are split.
+ *
+ * <p>Images smaller than the serial threshold are processed on the calling thread, where the cost
+ * of handing work to the pool would outweigh the work itself.
+ */
+public final class RowBands {
+
+  /**
+   * the default number of pixels below which images are processed serially.
+   */
+  public static final int DEFAULT_SERIAL_THRESHOLD = 1 << 16;
+
+  // bands per worker thread, so that a slow band does not leave the other workers idle
+  private static final int BANDS_PER_THREAD = 4;
+
+  private static volatile ForkJoinPool pool = ForkJoinPool.commonPool();
+  private static volatile int serialThreshold = DEFAULT_SERIAL_THRESHOLD;
+  private static volatile boolean parallel = true;
+
+  /**
+   * A piece of work over a contiguous range of rows.
+   */
+  interface RowTask {
+
+    /**
+     * does the work for the rows from fromRow (inclusive) to toRow (exclusive).
+     *
+     * @param fromRow the first row
+     * @param toRow   the row after the last row
+     */
+    void run(int fromRow, int toRow);
+  }
+
+  private RowBands() {
+  }
+
+  /**
+   * sets the pool that bands of rows are run on.
+   *
+   * @param newPool the pool to run bands on
+   * @throws IllegalArgumentException if the pool is null
+   */
+  public static void setPool(ForkJoinPool newPool) throws IllegalArgumentException {
+    if (newPool == null) {
+      throw new IllegalArgumentException("Pool cannot be null");
+    }
+    pool = newPool;
+  }
+
+  /**
+   * getter method for the pool that bands of rows are run on.
+   *
+   * @return the pool bands are run on
+   */
+  public static ForkJoinPool getPool() {
+    return pool;
+  }
+
+  /**
+   * sets the number of pixels below which an image is processed on the calling thread.
+   *
+   * @param pixels the smallest image, in pixels, to process in parallel
+   * @throws IllegalArgumentException if the threshold is negative
+   */
+  public static void setSerialThreshold(int pixels) throws IllegalArgumentException {
+    if (pixels < 0) {
+      throw new IllegalArgumentException("Serial threshold cannot be negative");
+    }
+    serialThreshold = pixels;
+  }
+
+  /**
+   * getter method for the number of pixels below which an image is processed serially.
+   *
+   * @return the serial threshold in pixels
+   */
+  public static int getSerialThreshold() {
+    return serialThreshold;
+  }
+
+  /**
+   * turns parallel processing on or off. When off, every image is processed on the calling thread.
+   *
+   * @param enabled whether images should be processed in parallel
+   */
+  public static void setParallel(boolean enabled) {
+    parallel = enabled;
+  }
+
+  /**
+   * whether images at least as large as the serial threshold are processed in parallel.
+   *
+   * @return true if parallel processing is on
+   */
+  public static boolean isParallel() {
+    return parallel;
+  }
+
+  /**
+   * runs the supplied task over every row of an image, either serially or split into bands.
+   *
+   * @param width  the width of the image, used to weigh the work
+   * @param height the number of rows to process
+   * @param task   the work to do for each band of rows
+   */
+  static void run(int width, int height, RowTask task) {
+    ForkJoinPool current = pool;
+    long pixels = (long) width * height;
+    if (!parallel || height < 2 || pixels < serialThreshold || current.getParallelism() < 2) {
+      task.run(0, height);
+      return;
+    }
+    int bands = Math.min(height, current.getParallelism() * BANDS_PER_THREAD);
+    List<RecursiveAction> actions = new ArrayList<>(bands);
+    for (int band = 0; band < bands; band++) {
+      int fromRow = (int) ((long) height * band / bands);
+      int toRow = (int) ((long) height * (band + 1) / bands);
+      actions.add(new RecursiveAction() {
+        @Override
+        protected void compute() {
+          task.run(fromRow, toRow);
+        }
+      });
+    }
+    if (ForkJoinTask.inForkJoinPool() && ForkJoinTask.getPool() == current) {
+      ForkJoinTask.invokeAll(actions);
+    } else {
+      current.invoke(new RecursiveAction() {
+        @Override
+        protected void compute() {
+          invokeAll(actions);
+        }
+      });
+    }
+  }
+}
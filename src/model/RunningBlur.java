@@ -0,0 +1,132 @@
+package model;
+
+/**
+ * Applies a RunningBlurFilter to a packed image. The image is split into red, green and blue
+ * planes of doubles, every pass of the blur is run along each row and then down each column of
+ * every plane, and the planes are scaled, truncated and packed back together. Rows, and then
+ * columns, are spread across threads through RowBands.
+ *
+ * <p>Each line is padded through the edge mode by the blur's padding before its passes run, and the
+ * passes see nothing but black past the padding. Stacked passes therefore read past the border of
+ * the image exactly as the blur's equivalent kernel would, rather than each pass reading black (or
+ * clamped, or mirrored) values of the pass before it.
+ */
+final class RunningBlur {
+
+  private static final int COLUMN_BLOCK = 16;
+
+  private RunningBlur() {
+  }
+
+  /**
+   * blurs the supplied image.
+   *
+   * @param image    the image to blur
+   * @param filter   the blur to apply
+   * @param edgeMode how pixels past the border of the image are read
+   * @return the packed pixels of the blurred image
+   */
+  static int[] filter(PackedImage image, RunningBlurFilter filter, EdgeMode edgeMode) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[] src = image.rgb;
+    double[][] planes = new double[3][width * height];
+    RunningBlurFilter.LinePass[] passes = filter.passes();
+
+    int padding = filter.padding();
+    RowBands.run(width, height, (fromRow, toRow) -> {
+      for (int i = width * fromRow; i < width * toRow; i++) {
+        planes[0][i] = (src[i] >> 16) & 0xFF;
+        planes[1][i] = (src[i] >> 8) & 0xFF;
+        planes[2][i] = src[i] & 0xFF;
+      }
+      LineBuffers buffers = new LineBuffers(width, padding);
+      double[] row = new double[width];
+      for (double[] plane : planes) {
+        for (int y = fromRow; y < toRow; y++) {
+          System.arraycopy(plane, width * y, row, 0, width);
+          buffers.blur(passes, row, edgeMode);
+          System.arraycopy(row, 0, plane, width * y, width);
+        }
+      }
+    });
+
+    // columns are independent, so they are split into bands the same way rows are, and read a
+    // block at a time so that each row of the planes is visited once per block rather than once
+    // per column
+    RowBands.run(height, width, (fromColumn, toColumn) -> {
+      LineBuffers buffers = new LineBuffers(height, padding);
+      double[][] columns = new double[COLUMN_BLOCK][height];
+      for (double[] plane : planes) {
+        for (int blockStart = fromColumn; blockStart < toColumn; blockStart += COLUMN_BLOCK) {
+          int block = Math.min(COLUMN_BLOCK, toColumn - blockStart);
+          for (int y = 0; y < height; y++) {
+            for (int c = 0; c < block; c++) {
+              columns[c][y] = plane[blockStart + c + width * y];
+            }
+          }
+          for (int c = 0; c < block; c++) {
+            buffers.blur(passes, columns[c], edgeMode);
+          }
+          for (int y = 0; y < height; y++) {
+            for (int c = 0; c < block; c++) {
+              plane[blockStart + c + width * y] = columns[c][y];
+            }
+          }
+        }
+      }
+    });
+
+    int[] out = new int[width * height];
+    double scale = filter.scale();
+    RowBands.run(width, height, (fromRow, toRow) -> {
+      for (int i = width * fromRow; i < width * toRow; i++) {
+        out[i] = PackedImage.pack(
+            (int) (planes[0][i] / scale + SeparableConvolution.ROUNDING_SLACK),
+            (int) (planes[1][i] / scale + SeparableConvolution.ROUNDING_SLACK),
+            (int) (planes[2][i] / scale + SeparableConvolution.ROUNDING_SLACK));
+      }
+    });
+    return out;
+  }
+
+  /**
+   * The buffers one thread uses to blur lines of one length.
+   */
+  private static final class LineBuffers {
+
+    private final int length;
+    private final int padding;
+    private double[] line;
+    private double[] other;
+
+    LineBuffers(int length, int padding) {
+      this.length = length;
+      this.padding = padding;
+      this.line = new double[length + 2 * padding];
+      this.other = new double[length + 2 * padding];
+    }
+
+    /**
+     * pads a line through the edge mode, runs every pass along it, and writes the result back.
+     *
+     * @param passes   the passes to run, in order
+     * @param values   the values of the line, replaced by the blurred values
+     * @param edgeMode how values past the ends of the line are read
+     */
+    void blur(RunningBlurFilter.LinePass[] passes, double[] values, EdgeMode edgeMode) {
+      int padded = this.length + 2 * this.padding;
+      for (int i = 0; i < padded; i++) {
+        int resolved = edgeMode.resolve(i - this.padding, this.length);
+        this.line[i] = resolved < 0 ? 0 : values[resolved];
+      }
+      for (RunningBlurFilter.LinePass pass : passes) {
+        pass.filter(this.line, this.other, padded);
+        double[] swap = this.line;
+        this.line = this.other;
+        this.other = swap;
+      }
+      System.arraycopy(this.line, this.padding, values, 0, this.length);
+    }
+  }
+}
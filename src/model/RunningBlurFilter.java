@@ -0,0 +1,198 @@
+package model;
+
+/**
+ * A blur whose cost per pixel does not depend on its radius. Rather than summing every tap of a
+ * kernel, it is applied as a short series of passes along each row and then down each column, each
+ * of which keeps a running result as it moves along the line: a running sum for box blurs, or a
+ * recursive filter for Gaussian blurs. FilterEngine recognizes these kernels and applies them this
+ * way, while the kernel array they report is the equivalent ordinary kernel, for clients that read
+ * it.
+ */
+public abstract class RunningBlurFilter implements IKernel {
+
+  /**
+   * One pass of a running blur along a line of channel values.
+   */
+  interface LinePass {
+
+    /**
+     * filters a line of values, reading values past the ends of the line as zero.
+     *
+     * @param in     the values of the line
+     * @param out    the array to write the filtered values to
+     * @param length the number of values in the line
+     */
+    void filter(double[] in, double[] out, int length);
+  }
+
+  private final int radius;
+  private double[] weights;
+
+  /**
+   * Constructor for a running blur whose equivalent kernel reaches the supplied number of pixels
+   * from its center.
+   *
+   * @param radius the radius of the equivalent kernel
+   */
+  RunningBlurFilter(int radius) {
+    this.radius = radius;
+  }
+
+  /**
+   * gets the passes to run along every row, and then down every column, of an image.
+   *
+   * @return the passes of this blur, in order
+   */
+  abstract LinePass[] passes();
+
+  /**
+   * gets how far past each end of a line its values must be read for the passes to treat the ends
+   * of the line the way the equivalent kernel does.
+   *
+   * @return the padding of every line, in pixels
+   */
+  int padding() {
+    return this.radius;
+  }
+
+  /**
+   * gets the number every value is divided by once all passes are done, for passes that sum values
+   * rather than average them.
+   *
+   * @return the scale of the result of the passes
+   */
+  abstract double scale();
+
+  /**
+   * gets the weights of the equivalent kernel along one axis, from one end to the other.
+   *
+   * @return the one dimensional weights of this blur
+   */
+  abstract double[] lineWeights();
+
+  /**
+   * describes this blur by its kind and parameters, so that two blurs with the same description
+   * always filter an image the same way.
+   *
+   * @return the description of this blur
+   */
+  abstract String describe();
+
+  private double[] weights() {
+    if (this.weights == null) {
+      this.weights = this.lineWeights();
+    }
+    return this.weights;
+  }
+
+  /**
+   * getter method that returns the equivalent kernel of this blur as a 2D array of double.
+   *
+   * @return the 2D array of doubles that represents this kernel.
+   */
+  @Override
+  public double[][] getKernelArray() {
+    double[] line = this.weights();
+    double[][] returnMatrix = new double[line.length][line.length];
+    for (int i = 0; i < line.length; i++) {
+      for (int j = 0; j < line.length; j++) {
+        returnMatrix[i][j] = line[i] * line[j];
+      }
+    }
+    return returnMatrix;
+  }
+
+  /**
+   * gets the value from the equivalent kernel at the supplied indices.
+   *
+   * @param x the column number of the desired value
+   * @param y the row number of the desired value
+   * @return the value at the supplied indices
+   * @throws IllegalArgumentException if the supplied indices are out of bound.
+   */
+  @Override
+  public double getInKernel(int x, int y) throws IllegalArgumentException {
+    if (x >= this.getLength() || y >= this.getHeight() || x < 0 || y < 0) {
+      throw new IllegalArgumentException("indices provided are out of bounds.");
+    }
+    return this.weights()[x] * this.weights()[y];
+  }
+
+  /**
+   * the method that applies this blur to the provided image model.
+   *
+   * @param m the image model to apply the filter to
+   * @return a copy of the provided image with the filter applied
+   * @throws IllegalArgumentException if the supplied model is null
+   */
+  @Override
+  public IImage apply(IModel m) throws IllegalArgumentException {
+    if (m == null) {
+      throw new IllegalArgumentException("model cannot be null.");
+    }
+    return m.applyFilter(this);
+  }
+
+  /**
+   * getter method that returns the length of the equivalent kernel.
+   *
+   * @return the length of this kernel
+   */
+  @Override
+  public int getLength() {
+    return 2 * this.radius + 1;
+  }
+
+  /**
+   * getter method that returns the height of the equivalent kernel.
+   *
+   * @return the height of this kernel
+   */
+  @Override
+  public int getHeight() {
+    return 2 * this.radius + 1;
+  }
+
+  /**
+   * A pass that replaces every value by the sum of the values within a radius of it, keeping a
+   * running sum as it moves along the line. The sums of whole channel values are whole numbers, so
+   * they are exact, and dividing by the scale at the end gives the exact average.
+   */
+  static final class BoxPass implements LinePass {
+
+    private final int radius;
+
+    /**
+     * Constructor for a box pass of the supplied radius.
+     *
+     * @param radius the number of values on each side of a value that are summed with it
+     */
+    BoxPass(int radius) {
+      this.radius = radius;
+    }
+
+    /**
+     * replaces every value of the line by the sum of the values within the radius of it.
+     *
+     * @param in     the values of the line
+     * @param out    the array to write the sums to
+     * @param length the number of values in the line
+     */
+    @Override
+    public void filter(double[] in, double[] out, int length) {
+      double sum = 0;
+      for (int i = 0; i <= this.radius && i < length; i++) {
+        sum += in[i];
+      }
+      for (int i = 0; i < length; i++) {
+        out[i] = sum;
+        if (i + this.radius + 1 < length) {
+          sum += in[i + this.radius + 1];
+        }
+        if (i - this.radius >= 0) {
+          sum -= in[i - this.radius];
+        }
+      }
+    }
+  }
+}
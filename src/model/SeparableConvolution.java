@@ -0,0 +1,117 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * A convolution of one packed image by a kernel decomposed into separable terms. Each term is
+ * applied as a horizontal pass along the rows of the image followed by a vertical pass down its
+ * columns, and the terms are summed, so a kernel of size N with r terms costs 2rN taps per pixel.
+ *
+ * <p>The channels are accumulated as doubles and truncated once per pixel, as a direct Convolution
+ * does for kernels large enough to be separated. A tiny slack is added before truncating so that
+ * sums which only miss a whole number through floating point error (a blur of a flat color, say)
+ * still land on it.
+ */
+final class SeparableConvolution {
+
+  static final double ROUNDING_SLACK = 1e-7;
+
+  private final int[] src;
+  private final int width;
+  private final int height;
+  private final EdgeMode edgeMode;
+  private final KernelDecomposition decomposition;
+  private final int half;
+
+  /**
+   * Constructor for a separable convolution of the supplied image by the supplied decomposition.
+   *
+   * @param image         the image to filter
+   * @param decomposition the separable terms of the kernel to filter the image by
+   * @param edgeMode      how to treat taps that fall outside of the image
+   */
+  SeparableConvolution(PackedImage image, KernelDecomposition decomposition, EdgeMode edgeMode) {
+    this.src = image.rgb;
+    this.width = image.getWidth();
+    this.height = image.getHeight();
+    this.edgeMode = edgeMode;
+    this.decomposition = decomposition;
+    this.half = decomposition.size() / 2;
+  }
+
+  /**
+   * filters the rows from fromRow (inclusive) to toRow (exclusive) into the supplied array. The
+   * horizontal passes of the source rows are kept in a ring of one kernel height per term, so each
+   * source row is passed once while the rows below it are filtered.
+   *
+   * @param out     the packed pixels of the filtered image, row-major
+   * @param fromRow the first row to filter
+   * @param toRow   the row after the last row to filter
+   */
+  void filterRows(int[] out, int fromRow, int toRow) {
+    int size = this.decomposition.size();
+    int rank = this.decomposition.rank();
+    double[][][] passed = new double[rank][size][3 * this.width];
+    int[][] passedRow = new int[rank][size];
+    for (int[] rows : passedRow) {
+      Arrays.fill(rows, -1);
+    }
+    double[] sums = new double[3 * this.width];
+
+    for (int y = fromRow; y < toRow; y++) {
+      Arrays.fill(sums, 0);
+      for (int term = 0; term < rank; term++) {
+        double[] column = this.decomposition.column(term);
+        for (int ky = 0; ky < size; ky++) {
+          int sourceY = this.edgeMode.resolve(y + ky - this.half, this.height);
+          if (sourceY < 0 || column[ky] == 0) {
+            continue;
+          }
+          int slot = sourceY % size;
+          if (passedRow[term][slot] != sourceY) {
+            this.horizontalPass(sourceY, this.decomposition.row(term), passed[term][slot]);
+            passedRow[term][slot] = sourceY;
+          }
+          double[] source = passed[term][slot];
+          double weight = column[ky];
+          for (int i = 0; i < sums.length; i++) {
+            sums[i] += weight * source[i];
+          }
+        }
+      }
+      for (int x = 0; x < this.width; x++) {
+        out[x + this.width * y] = PackedImage.pack((int) (sums[3 * x] + ROUNDING_SLACK),
+            (int) (sums[3 * x + 1] + ROUNDING_SLACK), (int) (sums[3 * x + 2] + ROUNDING_SLACK));
+      }
+    }
+  }
+
+  /**
+   * passes the supplied horizontal weights along one row of the source image.
+   *
+   * @param y       the row of the source image
+   * @param weights the horizontal weights, indexed by kernel column
+   * @param result  the array to write the red, green and blue sums of every pixel to, interleaved
+   */
+  private void horizontalPass(int y, double[] weights, double[] result) {
+    int rowStart = this.width * y;
+    for (int x = 0; x < this.width; x++) {
+      double red = 0;
+      double green = 0;
+      double blue = 0;
+      for (int kx = 0; kx < weights.length; kx++) {
+        int sourceX = this.edgeMode.resolve(x + kx - this.half, this.width);
+        if (sourceX < 0) {
+          continue;
+        }
+        int rgb = this.src[rowStart + sourceX];
+        red += weights[kx] * ((rgb >> 16) & 0xFF);
+        green += weights[kx] * ((rgb >> 8) & 0xFF);
+        blue += weights[kx] * (rgb & 0xFF);
+      }
+      result[3 * x] = red;
+      result[3 * x + 1] = green;
+      result[3 * x + 2] = blue;
+    }
+  }
+}
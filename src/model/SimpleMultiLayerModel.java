@@ -2,11 +2,12 @@ package model;
 
 import java.awt.Color;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 
 /**
  * Class implementing a multi layer image model that has a hashmap of strings to IModels and
@@ -19,6 +20,7 @@ public class SimpleMultiLayerModel implements MultiLayerIModel {
   final Map<String, IModel> layers;
   final Map<String, Boolean> transparency;
   IModel current;
+  boolean lazy;
 
   /**
    * Constructor for a SimpleMultiLayerModel that creates a new multilayer model when supplied an
@@ -56,6 +58,28 @@ public class SimpleMultiLayerModel implements MultiLayerIModel {
     setCurrent(name);
   }
 
+  /**
+   * adds a new layer sharing the image and transparency of the layer of the supplied name. No
+   * pixels are copied, as the image of a layer is never modified in place.
+   *
+   * @param name    the name of the layer to duplicate
+   * @param newName the name of the new layer
+   * @throws IllegalArgumentException if either name is null, the layer does not exist, or the new
+   *                                  name already exists.
+   */
+  @Override
+  public void duplicateLayer(String name, String newName) throws IllegalArgumentException {
+    if (name == null || newName == null) {
+      throw new IllegalArgumentException("name cannot be null");
+    }
+    if (!this.layers.containsKey(name)) {
+      throw new IllegalArgumentException("no such layer exists");
+    }
+    boolean transparent = this.transparency.get(name);
+    this.addLayer(newName, this.layers.get(name).getImage());
+    this.transparency.replace(newName, transparent);
+  }
+
   /**
    * removes the layer of the supplied name from this multi layer image model.
    *
@@ -88,7 +112,7 @@ public class SimpleMultiLayerModel implements MultiLayerIModel {
     if (!this.layers.containsKey(name)) {
       throw new IllegalArgumentException("no such layer exists");
     }
-    return new ImageModel(this.layers.get(name).getImage());
+    return this.layers.get(name);
   }
 
   /**
@@ -98,7 +122,7 @@ public class SimpleMultiLayerModel implements MultiLayerIModel {
    */
   @Override
   public IModel getCurrent() {
-    return new ImageModel(this.current.getImage());
+    return this.current;
   }
 
   /**
@@ -158,18 +182,14 @@ public class SimpleMultiLayerModel implements MultiLayerIModel {
   }
 
   /**
-   * gets the layers from this multi layer image model and returns them as an ArrayList.
+   * gets the layers from this multi layer image model and returns them as an ArrayList. Layer
+   * models never change once created, so the layers themselves are returned rather than copies.
    *
    * @return the layers of this multi layer image model in an ArrayList
    */
   @Override
   public ArrayList<IModel> getLayers() {
-    Collection<IModel> values = this.layers.values();
-    ArrayList<IModel> layerList = new ArrayList<>();
-    for (IModel m : values) {
-      layerList.add(new ImageModel(m.getImage()));
-    }
-    return layerList;
+    return new ArrayList<>(this.layers.values());
   }
 
   /**
@@ -242,9 +262,55 @@ public class SimpleMultiLayerModel implements MultiLayerIModel {
    */
   @Override
   public IImage applyFilter(IKernel kernel) {
+    if (this.lazy) {
+      return this.applyFilter(kernel, EdgeMode.ZERO);
+    }
     return this.current.applyFilter(kernel);
   }
 
+  /**
+   * applies this image filter to the current layer of this multi layer image model with the
+   * supplied edge mode by delegating to the ImageModel class.
+   *
+   * @param kernel   the kernel to be used to filter the image
+   * @param edgeMode how pixels past the border of the image are read
+   * @return the IImage of the current layer IModel with the filter applied
+   */
+  @Override
+  public IImage applyFilter(IKernel kernel, EdgeMode edgeMode) {
+    if (this.lazy) {
+      ImageModel.checkFilterKernel(kernel, edgeMode);
+      IModel layer = this.current;
+      return this.defer(LazyImage.describe(kernel) + " " + edgeMode,
+          () -> layer.applyFilter(kernel, edgeMode));
+    }
+    return this.current.applyFilter(kernel, edgeMode);
+  }
+
+  /**
+   * applies this image filter to a region of the current layer of this multi layer image model by
+   * delegating to the ImageModel class.
+   *
+   * @param kernel   the kernel to be used to filter the image
+   * @param edgeMode how pixels past the border of the image are read
+   * @param region   the part of the layer to filter
+   * @return the IImage of the current layer IModel with the filter applied to the region
+   */
+  @Override
+  public IImage applyFilter(IKernel kernel, EdgeMode edgeMode, Region region) {
+    if (this.lazy) {
+      ImageModel.checkFilterKernel(kernel, edgeMode);
+      if (region == null) {
+        throw new IllegalArgumentException("Region cannot be null");
+      }
+      IModel layer = this.current;
+      String description = region.describe() == null ? null
+          : LazyImage.describe(kernel) + " " + edgeMode + " " + region.describe();
+      return this.defer(description, () -> layer.applyFilter(kernel, edgeMode, region));
+    }
+    return this.current.applyFilter(kernel, edgeMode, region);
+  }
+
   /**
    * applies this image color processor to the current layer of this multi layer image model by
    * delegating to the ImageModel class.
@@ -254,9 +320,96 @@ public class SimpleMultiLayerModel implements MultiLayerIModel {
    */
   @Override
   public IImage applyColorProcessing(IKernel kernel) {
+    if (this.lazy) {
+      return this.applyColorProcessing(Collections.singletonList(kernel), true);
+    }
     return this.current.applyColorProcessing(kernel);
   }
 
+  /**
+   * applies a chain of color processing kernels to the current layer of this multi layer image
+   * model by delegating to the ImageModel class.
+   *
+   * @param kernels the kernels to be used to process the image, in the order they apply
+   * @param exact   whether to truncate and clamp colors after every step
+   * @return the current layer's image with the chain of kernels applied
+   */
+  @Override
+  public IImage applyColorProcessing(List<IKernel> kernels, boolean exact) {
+    if (this.lazy) {
+      if (kernels == null || kernels.isEmpty()) {
+        throw new IllegalArgumentException("At least one kernel must be supplied");
+      }
+      StringBuilder description = new StringBuilder(exact ? "colors exact" : "colors fused");
+      for (IKernel kernel : kernels) {
+        ImageModel.checkColorKernel(kernel);
+        description.append(' ').append(LazyImage.describe(kernel));
+      }
+      IModel layer = this.current;
+      List<IKernel> chain = new ArrayList<>(kernels);
+      return this.defer(description.toString(), () -> layer.applyColorProcessing(chain, exact));
+    }
+    return this.current.applyColorProcessing(kernels, exact);
+  }
+
+  /**
+   * applies a chain of color processing kernels to a region of the current layer of this multi
+   * layer image model by delegating to the ImageModel class.
+   *
+   * @param kernels the kernels to be used to process the image, in the order they apply
+   * @param exact   whether to truncate and clamp colors after every step
+   * @param region  the part of the layer to process
+   * @return the current layer's image with the chain of kernels applied to the region
+   */
+  @Override
+  public IImage applyColorProcessing(List<IKernel> kernels, boolean exact, Region region) {
+    if (this.lazy) {
+      ImageModel.checkColorKernels(kernels);
+      if (region == null) {
+        throw new IllegalArgumentException("Region cannot be null");
+      }
+      String description = null;
+      if (region.describe() != null) {
+        StringBuilder builder = new StringBuilder(exact ? "colors exact" : "colors fused");
+        for (IKernel kernel : kernels) {
+          builder.append(' ').append(LazyImage.describe(kernel));
+        }
+        description = builder.append(' ').append(region.describe()).toString();
+      }
+      IModel layer = this.current;
+      List<IKernel> chain = new ArrayList<>(kernels);
+      return this.defer(description, () -> layer.applyColorProcessing(chain, exact, region));
+    }
+    return this.current.applyColorProcessing(kernels, exact, region);
+  }
+
+  /**
+   * returns the current layer's image scaled down to fit within the supplied size, from the
+   * layer's own pyramid of halvings, by delegating to the ImageModel class.
+   *
+   * @param maxWidth  the largest width of the preview
+   * @param maxHeight the largest height of the preview
+   * @return the preview of the current layer
+   * @throws IllegalArgumentException if either size is less than 1.
+   */
+  @Override
+  public IImage preview(int maxWidth, int maxHeight) throws IllegalArgumentException {
+    return this.current.preview(maxWidth, maxHeight);
+  }
+
+  /**
+   * records an operation on the current layer that keeps the size of its image.
+   *
+   * @param description a description that is equal for operations that always give the same image,
+   *                    or null if the operation must never be shared
+   * @param operation   computes the result of the operation
+   * @return the lazy result of the operation
+   */
+  IImage defer(String description, Supplier<IImage> operation) {
+    IImage source = this.current.getImage();
+    return LazyImage.derive(source, description, source.getWidth(), source.getHeight(), operation);
+  }
+
   /**
    * gets the current layer of this multi layer image model's IImage by delegating to the ImageModel
    * class.
@@ -267,4 +420,37 @@ public class SimpleMultiLayerModel implements MultiLayerIModel {
   public IImage getImage() {
     return this.current.getImage();
   }
+
+  /**
+   * turns lazy mode on or off for this multi layer image model.
+   *
+   * @param lazy whether operations should be recorded rather than computed straight away
+   */
+  @Override
+  public void setLazy(boolean lazy) {
+    this.lazy = lazy;
+  }
+
+  /**
+   * whether this multi layer image model is in lazy mode.
+   *
+   * @return true if operations are recorded rather than computed straight away
+   */
+  @Override
+  public boolean isLazy() {
+    return this.lazy;
+  }
+
+  /**
+   * computes the pixels of every layer whose operations have been recorded but not yet computed.
+   */
+  @Override
+  public void evaluate() {
+    for (IModel layer : this.layers.values()) {
+      IImage image = layer.getImage();
+      if (image instanceof LazyImage) {
+        ((LazyImage) image).evaluate();
+      }
+    }
+  }
 }
@@ -0,0 +1,106 @@
+package model;
+
+/**
+ * A blur made of several box blurs of the same radius applied one after another. Each box blur
+ * spreads the previous one further, and three or more of them closely approach a Gaussian blur,
+ * while costing the same per pixel whatever the radius.
+ */
+public class StackedBoxBlurFilter extends RunningBlurFilter {
+
+  private final int radius;
+  private final int passes;
+
+  /**
+   * Constructor for a stacked box blur of the supplied radius and number of box blurs.
+   *
+   * @param radius the radius of each box blur
+   * @param passes the number of box blurs to apply
+   * @throws IllegalArgumentException if the radius or number of passes is less than one.
+   */
+  public StackedBoxBlurFilter(int radius, int passes) throws IllegalArgumentException {
+    super(radius * Math.max(passes, 1));
+    if (radius < 1) {
+      throw new IllegalArgumentException("blur radius must be at least 1");
+    }
+    if (passes < 1) {
+      throw new IllegalArgumentException("blur must have at least one pass");
+    }
+    this.radius = radius;
+    this.passes = passes;
+  }
+
+  /**
+   * gets the passes of this blur: one running sum for each box blur.
+   *
+   * @return the passes of this blur
+   */
+  @Override
+  LinePass[] passes() {
+    LinePass[] result = new LinePass[this.passes];
+    for (int i = 0; i < this.passes; i++) {
+      result[i] = new BoxPass(this.radius);
+    }
+    return result;
+  }
+
+  /**
+   * gets the number the stacked running sums are divided by: the number of pixels in the box, once
+   * for every pass.
+   *
+   * @return the scale of the result of the passes
+   */
+  @Override
+  double scale() {
+    return Math.pow(2 * this.radius + 1, 2 * this.passes);
+  }
+
+  /**
+   * gets the weights of the equivalent kernel along one axis: the box weights convolved with
+   * themselves once for every pass.
+   *
+   * @return the one dimensional weights of this blur
+   */
+  @Override
+  double[] lineWeights() {
+    int side = 2 * this.radius + 1;
+    double[] weights = new double[]{1};
+    for (int pass = 0; pass < this.passes; pass++) {
+      double[] next = new double[weights.length + side - 1];
+      for (int i = 0; i < weights.length; i++) {
+        for (int j = 0; j < side; j++) {
+          next[i + j] += weights[i] / side;
+        }
+      }
+      weights = next;
+    }
+    return weights;
+  }
+
+  /**
+   * describes this blur by its radius and number of passes.
+   *
+   * @return the description of this blur
+   */
+  @Override
+  String describe() {
+    return "stacked box blur " + this.radius + " " + this.passes;
+  }
+
+  /**
+   * getter method that returns the radius of each box blur.
+   *
+   * @return the radius of each box blur
+   */
+  public int getRadius() {
+    return this.radius;
+  }
+
+  /**
+   * getter method that returns the number of box blurs applied.
+   *
+   * @return the number of passes of this blur
+   */
+  public int getPasses() {
+    return this.passes;
+  }
+}
@@ -0,0 +1,155 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Filters or color processes an image that arrives one row at a time, handing back each row of
+ * the result as soon as every row it depends on has arrived. Only a window of rows is ever held:
+ * a band of output rows together with the rows of margin above and below it that the kernel
+ * reaches, kept in a ring that is overwritten as the image streams through. An image of any
+ * height can therefore be processed in memory proportional to its width.
+ *
+ * <p>Each band is filtered as a small image of its own, through the same plans as a whole image,
+ * with the rows of margin read through the edge mode where they fall past the top or bottom of
+ * the image. Rows near the edges of the band are discarded, so every row handed back is the same
+ * as filtering the whole image at once, except for the rounding of the frequency domain plans and
+ * the tails of recursive Gaussian blurs, which reach further than their margin.
+ */
+public final class StreamingFilter {
+
+  // the number of output rows filtered together, at the least
+  private static final int BAND_ROWS = 64;
+
+  private final int width;
+  private final int height;
+  private final int margin;
+  private final int bandRows;
+  private final EdgeMode edgeMode;
+  private final Function<PackedImage, int[]> operation;
+  private final int[][] ring;
+  private int nextInput;
+  private int nextOutput;
+
+  private StreamingFilter(int width, int height, int margin, EdgeMode edgeMode,
+      Function<PackedImage, int[]> operation) throws IllegalArgumentException {
+    if (width < 0 || height < 0) {
+      throw new IllegalArgumentException("Invalid Width or Height");
+    }
+    this.width = width;
+    this.height = height;
+    this.margin = margin;
+    this.bandRows = Math.max(BAND_ROWS, 2 * margin);
+    this.edgeMode = edgeMode;
+    this.operation = operation;
+    this.ring = new int[Math.min(height, this.bandRows + 2 * margin)][];
+  }
+
+  /**
+   * creates a stream that filters an image of the supplied size by the supplied kernel.
+   *
+   * @param kernel   the square kernel of odd size to filter by
+   * @param edgeMode how pixels past the border of the image are read
+   * @param width    the width of the image
+   * @param height   the height of the image
+   * @return a stream that filters the rows it is given
+   * @throws IllegalStateException    if the kernel is null
+   * @throws IllegalArgumentException if the kernel is even in size or not square, the edge mode is
+   *                                  null or wraps around, or the size is negative
+   */
+  public static StreamingFilter filter(IKernel kernel, EdgeMode edgeMode, int width, int height)
+      throws IllegalArgumentException {
+    ImageModel.checkFilterKernel(kernel, edgeMode);
+    if (edgeMode == EdgeMode.WRAP) {
+      // the rows past the top of the image are the last rows, which have not arrived yet
+      throw new IllegalArgumentException("Wrapped edges cannot be streamed");
+    }
+    return new StreamingFilter(width, height, FilterEngine.reach(kernel), edgeMode,
+        strip -> FilterEngine.filter(strip, kernel, edgeMode));
+  }
+
+  /**
+   * creates a stream that applies a chain of color processing kernels to an image of the supplied
+   * size.
+   *
+   * @param kernels the color processing kernels to apply, in order
+   * @param exact   whether to truncate and clamp after every kernel, exactly as applying each
+   *                kernel on its own would
+   * @param width   the width of the image
+   * @param height  the height of the image
+   * @return a stream that color processes the rows it is given
+   * @throws IllegalStateException    if any kernel is null
+   * @throws IllegalArgumentException if the list is null or empty, a kernel is not a 3x3 square,
+   *                                  or the size is negative
+   */
+  public static StreamingFilter colorProcessing(List<IKernel> kernels, boolean exact, int width,
+      int height) throws IllegalArgumentException {
+    ImageModel.checkColorKernels(kernels);
+    List<IKernel> chain = new ArrayList<>(kernels);
+    return new StreamingFilter(width, height, 0, EdgeMode.ZERO, strip ->
+        PackedImage.of(new ImageModel(strip).applyColorProcessing(chain, exact)).rgb);
+  }
+
+  /**
+   * adds the next row of the image to the stream.
+   *
+   * @param row the packed RGB values of the row, which is copied
+   * @return the rows of the result that this row completes, in order, possibly none
+   * @throws IllegalArgumentException if the row is null or not as wide as the image
+   * @throws IllegalStateException    if every row of the image has already been added
+   */
+  public List<int[]> addRow(int[] row) throws IllegalArgumentException {
+    if (row == null || row.length != this.width) {
+      throw new IllegalArgumentException("Row does not match the width of the image");
+    }
+    if (this.isFinished()) {
+      throw new IllegalStateException("Every row of the image has already been added");
+    }
+    this.ring[this.nextInput % this.ring.length] = row.clone();
+    this.nextInput++;
+
+    List<int[]> done = new ArrayList<>();
+    while (this.nextOutput < this.height
+        && this.nextInput >= Math.min(this.height, this.nextOutput + this.bandRows + this.margin)) {
+      this.filterBand(Math.min(this.height, this.nextOutput + this.bandRows), done);
+    }
+    return done;
+  }
+
+  /**
+   * whether every row of the image has been added, and so every row of the result handed back.
+   *
+   * @return true if the stream is complete
+   */
+  public boolean isFinished() {
+    return this.nextInput == this.height;
+  }
+
+  /**
+   * filters the output rows from the next one up to bandEnd (exclusive), as an image of those rows
+   * and the rows of margin around them.
+   *
+   * @param bandEnd the row after the last row of the band
+   * @param done    the list to add the finished rows to
+   */
+  private void filterBand(int bandEnd, List<int[]> done) {
+    int top = this.nextOutput - this.margin;
+    int stripHeight = bandEnd - this.nextOutput + 2 * this.margin;
+    int[] strip = new int[this.width * stripHeight];
+    for (int y = 0; y < stripHeight; y++) {
+      int source = this.edgeMode.resolve(top + y, this.height);
+      if (source >= 0) {
+        System.arraycopy(this.ring[source % this.ring.length], 0, strip, this.width * y,
+            this.width);
+      }
+    }
+    int[] filtered = this.operation.apply(new PackedImage(this.width, stripHeight, strip));
+    for (int y = this.nextOutput; y < bandEnd; y++) {
+      int[] row = new int[this.width];
+      System.arraycopy(filtered, this.width * (y - top), row, 0, this.width);
+      done.add(row);
+    }
+    this.nextOutput = bandEnd;
+  }
+}
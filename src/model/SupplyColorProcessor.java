@@ -11,14 +11,18 @@ public class SupplyColorProcessor implements IKernel {
   private final double[][] supplyKernel;
 
   /**
-   * Constructor allows users to input their own Color Processing Kernel.
+   * Constructor allows users to input their own Color Processing Kernel. The kernel is copied, so
+   * later changes to the supplied array do not change this processor.
    */
   public SupplyColorProcessor(double[][] supplyKernel) {
     if (supplyKernel.length != 3 || supplyKernel[0].length != 3) {
       throw new IllegalArgumentException(
           "color processing kernel must be a square 2D array of length 3!");
     } else {
-      this.supplyKernel = supplyKernel;
+      this.supplyKernel = new double[3][];
+      for (int i = 0; i < 3; i++) {
+        this.supplyKernel[i] = supplyKernel[i].clone();
+      }
     }
   }
 
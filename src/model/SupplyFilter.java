@@ -9,17 +9,38 @@ package model;
 public class SupplyFilter implements IKernel {
 
   private final double[][] supplyKernel;
+  private final double tolerance;
 
   /**
    * Constructor allows users to input their own Filter Kernel.
    */
   public SupplyFilter(double[][] supplyKernel) {
+    this(supplyKernel, 0);
+  }
+
+  /**
+   * Constructor allows users to input their own Filter Kernel, along with how far any value of the
+   * kernel may be approximated when it is split into cheaper separable passes. Large kernels that
+   * are close to a sum of a few separable kernels filter much faster with a small tolerance.
+   *
+   * @param supplyKernel the filter kernel
+   * @param tolerance    the largest error allowed in any value of the kernel, 0 for none
+   * @throws IllegalArgumentException if the kernel is not square with odd dimensions, or the
+   *                                  tolerance is negative.
+   */
+  public SupplyFilter(double[][] supplyKernel, double tolerance) throws IllegalArgumentException {
     if (supplyKernel.length % 2 == 0 || supplyKernel[0].length != supplyKernel.length) {
       throw new IllegalArgumentException(
           "Filter kernel must be a square 2D array of odd dimensions!");
-    } else {
-      this.supplyKernel = supplyKernel;
     }
+    if (tolerance < 0) {
+      throw new IllegalArgumentException("tolerance cannot be negative");
+    }
+    this.supplyKernel = new double[supplyKernel.length][];
+    for (int i = 0; i < supplyKernel.length; i++) {
+      this.supplyKernel[i] = supplyKernel[i].clone();
+    }
+    this.tolerance = tolerance;
   }
 
   /**
@@ -73,6 +94,16 @@ public class SupplyFilter implements IKernel {
     return m.applyFilter(this);
   }
 
+  /**
+   * getter method that returns how far any value of this kernel may be approximated when it is
+   * split into separable passes.
+   *
+   * @return the tolerance of this kernel
+   */
+  public double getTolerance() {
+    return this.tolerance;
+  }
+
   /**
    * getter method that returns the length of this kernel.
    *
@@ -0,0 +1,216 @@
+package model;
+
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Finds the nearest of a set of seed points to every pixel of an image, through a grid of buckets
+ * laid over the image. Each bucket lists the seeds that fall in it, so the search for a pixel's
+ * nearest seed starts in the pixel's own bucket and spreads out one ring of buckets at a time,
+ * stopping as soon as no unvisited bucket can hold a nearer seed. With buckets sized to hold a seed
+ * or two each, a pixel is compared against a handful of seeds however many there are.
+ *
+ * <p>Distances are compared squared, in exact integer arithmetic. When two seeds are equally near a
+ * pixel, the one that comes first in the seed list wins.
+ *
+ * <p>The label maps of the most recent seeded mosaics are kept, so the same mosaic applied to every
+ * layer of a model, or run again, finds the nearest seeds only once. They are held softly, so a
+ * few maps of large images are given up rather than run the program out of memory.
+ */
+final class VoronoiGrid {
+
+  // the number of label maps kept for reuse, each holding an int per pixel
+  private static final int CACHE_SIZE = 4;
+
+  private static final Map<String, SoftReference<int[]>> LABELS =
+      new LinkedHashMap<String, SoftReference<int[]>>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SoftReference<int[]>> eldest) {
+          return this.size() > CACHE_SIZE;
+        }
+      };
+
+  private final int width;
+  private final int height;
+  private final int[] seedX;
+  private final int[] seedY;
+  private final int cellSize;
+  private final int columns;
+  private final int rows;
+  // the seeds of bucket b are bucketSeeds[bucketStart[b]] to bucketSeeds[bucketStart[b + 1] - 1]
+  private final int[] bucketStart;
+  private final int[] bucketSeeds;
+
+  /**
+   * Constructor for the grid of the supplied seeds over an image of the supplied size.
+   *
+   * @param width  the width of the image
+   * @param height the height of the image
+   * @param seedX  the column of each seed, from 0 to the width of the image
+   * @param seedY  the row of each seed, from 0 to the height of the image
+   */
+  VoronoiGrid(int width, int height, int[] seedX, int[] seedY) {
+    this.width = width;
+    this.height = height;
+    this.seedX = seedX;
+    this.seedY = seedY;
+    // seeds may lie on the far edge of the image, so the grid covers one more column and row
+    double area = (double) (width + 1) * (height + 1);
+    this.cellSize = Math.max(1, (int) Math.ceil(Math.sqrt(area / Math.max(1, seedX.length))));
+    this.columns = width / this.cellSize + 1;
+    this.rows = height / this.cellSize + 1;
+
+    int buckets = this.columns * this.rows;
+    this.bucketStart = new int[buckets + 1];
+    for (int seed = 0; seed < seedX.length; seed++) {
+      this.bucketStart[this.bucketOf(seed) + 1]++;
+    }
+    for (int b = 0; b < buckets; b++) {
+      this.bucketStart[b + 1] += this.bucketStart[b];
+    }
+    this.bucketSeeds = new int[seedX.length];
+    int[] next = new int[buckets];
+    for (int seed = 0; seed < seedX.length; seed++) {
+      int bucket = this.bucketOf(seed);
+      this.bucketSeeds[this.bucketStart[bucket] + next[bucket]++] = seed;
+    }
+  }
+
+  /**
+   * gets the grid of the supplied number of seeds, placed at random over an image of the supplied
+   * size. Seeds fall anywhere from the first pixel to one past the last, and a seed picked twice is
+   * kept twice, but the first copy is always at least as near, so the second never gets a pixel.
+   *
+   * @param width  the width of the image
+   * @param height the height of the image
+   * @param seeds  the number of seeds
+   * @param random where the positions of the seeds are drawn from
+   * @return the grid
+   */
+  static VoronoiGrid random(int width, int height, int seeds, Random random) {
+    int[] seedX = new int[seeds];
+    int[] seedY = new int[seeds];
+    for (int seed = 0; seed < seeds; seed++) {
+      seedX[seed] = random.nextInt(width + 1);
+      seedY[seed] = random.nextInt(height + 1);
+    }
+    return new VoronoiGrid(width, height, seedX, seedY);
+  }
+
+  /**
+   * gets the labels of every pixel of an image of the supplied size, for the supplied number of
+   * seeds drawn from a Random with the supplied seed, reusing a recent label map if there is one.
+   * The label map is shared, so callers must not modify it.
+   *
+   * @param width      the width of the image
+   * @param height     the height of the image
+   * @param seeds      the number of seeds
+   * @param randomSeed the seed of the Random the positions of the seeds are drawn from
+   * @return the index of the nearest seed to each pixel, row by row
+   */
+  static int[] labels(int width, int height, int seeds, long randomSeed) {
+    String key = width + " " + height + " " + seeds + " " + randomSeed;
+    synchronized (LABELS) {
+      SoftReference<int[]> reference = LABELS.get(key);
+      int[] labels = reference == null ? null : reference.get();
+      if (labels != null) {
+        return labels;
+      }
+    }
+    // labelling a large image takes a while, so it is done without holding up other mosaics; two
+    // threads asking for the same map at once may both compute it, and the first one kept wins
+    int[] computed = random(width, height, seeds, new Random(randomSeed)).labels();
+    synchronized (LABELS) {
+      SoftReference<int[]> reference = LABELS.get(key);
+      int[] labels = reference == null ? null : reference.get();
+      if (labels != null) {
+        return labels;
+      }
+      LABELS.put(key, new SoftReference<>(computed));
+      return computed;
+    }
+  }
+
+  /**
+   * gets the bucket the supplied seed falls in.
+   *
+   * @param seed the index of the seed
+   * @return the index of its bucket
+   */
+  private int bucketOf(int seed) {
+    return this.seedX[seed] / this.cellSize + this.columns * (this.seedY[seed] / this.cellSize);
+  }
+
+  /**
+   * labels every pixel of the image with the index of its nearest seed, working through the rows
+   * in bands through RowBands.
+   *
+   * @return the index of the nearest seed to each pixel, row by row
+   */
+  int[] labels() {
+    int[] labels = new int[this.width * this.height];
+    RowBands.run(this.width, this.height, (fromRow, toRow) -> {
+      for (int y = fromRow; y < toRow; y++) {
+        for (int x = 0; x < this.width; x++) {
+          labels[x + this.width * y] = this.nearest(x, y);
+        }
+      }
+    });
+    return labels;
+  }
+
+  /**
+   * finds the nearest seed to the supplied pixel, searching the buckets in rings around the
+   * pixel's own bucket.
+   *
+   * @param x the column of the pixel
+   * @param y the row of the pixel
+   * @return the index of the nearest seed, the first one in the seed list if several are nearest
+   */
+  int nearest(int x, int y) {
+    int cellX = x / this.cellSize;
+    int cellY = y / this.cellSize;
+    // how far the pixel is from the edges of its own bucket, which every further ring lies beyond
+    int margin = Math.min(Math.min(x - cellX * this.cellSize, (cellX + 1) * this.cellSize - 1 - x),
+        Math.min(y - cellY * this.cellSize, (cellY + 1) * this.cellSize - 1 - y));
+    int maxRing = Math.max(Math.max(cellX, this.columns - 1 - cellX),
+        Math.max(cellY, this.rows - 1 - cellY));
+    long best = Long.MAX_VALUE;
+    int bestSeed = -1;
+    for (int ring = 0; ring <= maxRing; ring++) {
+      if (bestSeed >= 0) {
+        // every bucket of this ring is at least this far from the pixel
+        long reach = (long) (ring - 1) * this.cellSize + margin + 1;
+        if (reach * reach > best) {
+          break;
+        }
+      }
+      for (int by = cellY - ring; by <= cellY + ring; by++) {
+        if (by < 0 || by >= this.rows) {
+          continue;
+        }
+        boolean edgeRow = by == cellY - ring || by == cellY + ring;
+        int step = edgeRow ? 1 : 2 * ring;
+        for (int bx = cellX - ring; bx <= cellX + ring; bx += Math.max(1, step)) {
+          if (bx < 0 || bx >= this.columns) {
+            continue;
+          }
+          int bucket = bx + this.columns * by;
+          for (int i = this.bucketStart[bucket]; i < this.bucketStart[bucket + 1]; i++) {
+            int seed = this.bucketSeeds[i];
+            long dx = this.seedX[seed] - x;
+            long dy = this.seedY[seed] - y;
+            long distance = dx * dx + dy * dy;
+            if (distance < best || (distance == best && seed < bestSeed)) {
+              best = distance;
+              bestSeed = seed;
+            }
+          }
+        }
+      }
+    }
+    return bestSeed;
+  }
+}
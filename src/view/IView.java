@@ -75,6 +75,47 @@ public interface IView {
    */
   String getFilter();
 
+  /**
+   * getter method for the number of times the user wants the selected filter applied.
+   *
+   * @return the number of times to apply the filter
+   * @throws IllegalArgumentException if the value entered is not a positive integer
+   */
+  int getFilterRepeat();
+
+  /**
+   * getter method for the size of wide blurs entered by the user: the radius of a box blur, or the
+   * standard deviation of a Gaussian blur.
+   *
+   * @return the size of the blur
+   * @throws IllegalArgumentException if the value entered is not a number
+   */
+  double getBlurSize();
+
+  /**
+   * getter method for whether the user chose to save PPM and PGM files with binary samples rather
+   * than plain text.
+   *
+   * @return whether to save PPM and PGM files as binary
+   */
+  boolean isBinarySave();
+
+  /**
+   * getter method for the JPEG quality entered by the user, from 1 to 100.
+   *
+   * @return the quality, or -1 if the field is blank, to keep the encoder's default
+   * @throws IllegalArgumentException if the value entered is not an integer
+   */
+  int getJpegQuality();
+
+  /**
+   * getter method for the PNG deflate level entered by the user, from 0 to 9.
+   *
+   * @return the level, or -1 if the field is blank, to keep the encoder's default
+   * @throws IllegalArgumentException if the value entered is not an integer
+   */
+  int getPngLevel();
+
   /**
    * getter method that gets the layer name as selected by the user in the view.
    *
@@ -4,7 +4,6 @@ import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.awt.GridLayout;
 import java.awt.event.ActionListener;
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
@@ -12,6 +11,7 @@ import javax.swing.BorderFactory;
 import javax.swing.BoxLayout;
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 
 import javax.swing.JComboBox;
 import javax.swing.JFileChooser;
@@ -26,8 +26,8 @@ import javax.swing.JScrollPane;
 import javax.swing.JTextField;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import model.IImage;
+import model.ImageRasters;
 import model.MultiLayerIModel;
-import model.Pixel;
 
 /**
  * view class utilizing the swing framework to create a GUI for this image processing application.
@@ -58,6 +58,11 @@ public class JFrameView extends JFrame implements IView {
   private JTextField menuShrinkX;
   private JTextField menuShrinkY;
   private JTextField menuMosaicNum;
+  private JTextField filterRepeat;
+  private JTextField blurSize;
+  private JCheckBox binarySave;
+  private JTextField jpegQuality;
+  private JTextField pngLevel;
   private JButton menuFlipTransparency;
 
   private JLabel fileOpenDisplay;
@@ -161,10 +166,16 @@ public class JFrameView extends JFrame implements IView {
     optionDisplay = new JLabel("No Filter Selected Yet");
     optionsDialogPanel.add(optionDisplay);
 
-    // apply filter button
+    // apply filter button and how many times to apply it
     applyFilterButton = new JButton("Apply filter");
     applyFilterButton.setActionCommand("Apply Filter");
     optionsDialogPanel.add(applyFilterButton);
+    filterRepeat = new JTextField("1", 3);
+    optionsDialogPanel.add(filterRepeat);
+    optionsDialogPanel.add(new JLabel("times"));
+    optionsDialogPanel.add(new JLabel("wide blur size"));
+    blurSize = new JTextField("10", 4);
+    optionsDialogPanel.add(blurSize);
 
     //Shrink and Mosaic
     JPanel shrinkMosaic = new JPanel();
@@ -188,6 +199,16 @@ public class JFrameView extends JFrame implements IView {
     mainPanel.add(fileSaveButton);
     fileSaveDisplay = new JLabel("File path will appear here");
     mainPanel.add(fileSaveDisplay);
+    binarySave = new JCheckBox("save .ppm/.pgm as binary");
+    mainPanel.add(binarySave);
+    JPanel encoding = new JPanel();
+    encoding.add(new JLabel("jpeg quality (1-100)"));
+    jpegQuality = new JTextField("", 3);
+    encoding.add(jpegQuality);
+    encoding.add(new JLabel("png level (0-9)"));
+    pngLevel = new JTextField("", 2);
+    encoding.add(pngLevel);
+    mainPanel.add(encoding);
 
     //exit button
     exitButton = new JButton("Exit");
@@ -296,27 +317,20 @@ public class JFrameView extends JFrame implements IView {
   public void setImage(MultiLayerIModel m) {
     IImage image = m.getImage();
     if (!m.getTransparency(m.getCurName())) {
-      BufferedImage bi = new BufferedImage(image.getWidth(), image.getHeight(),
-          BufferedImage.TYPE_INT_RGB);
-      for (int h = 0; h < image.getHeight(); h++) {
-        for (int w = 0; w < image.getWidth(); w++) {
-          Pixel p = image.getPixelAt(w, h);
-          bi.setRGB(w, h, 65536 * p.getRed() + 256 * p.getGreen() + p.getBlue());
-        }
-      }
-      imageLabel.setIcon(new ImageIcon(bi));
+      imageLabel.setIcon(new ImageIcon(ImageRasters.toBufferedImage(image)));
     }
   }
 
   /**
-   * opens the file panel and allows a user to select a jpg, ppm, png, or text file to read to be
-   * operated on.
+   * opens the file panel and allows a user to select a jpg, ppm, pgm, png, text or layers project
+   * file to read to be operated on.
    */
   @Override
   public void openFile() {
     final JFileChooser fchooser = new JFileChooser(".");
     FileNameExtensionFilter filter = new FileNameExtensionFilter(
-        "JPG, PPM & PNG Images, txt files", "jpg", "png", "txt", "ppm");
+        "JPG, PPM, PGM & PNG Images, txt and layers files", "jpg", "png", "txt", "ppm", "pgm",
+        "layers");
     fchooser.setFileFilter(filter);
     int retvalue = fchooser.showOpenDialog(JFrameView.this);
     if (retvalue == JFileChooser.APPROVE_OPTION) {
@@ -326,14 +340,15 @@ public class JFrameView extends JFrame implements IView {
   }
 
   /**
-   * opens the file panel and allows a user to select a jpg, ppm, png, or text file to read to add
-   * to the model to be operated on.
+   * opens the file panel and allows a user to select a jpg, ppm, pgm, png, text or layers project
+   * file to read to add to the model to be operated on.
    */
   @Override
   public void openAddFile() {
     final JFileChooser faddchooser = new JFileChooser(".");
     FileNameExtensionFilter filter = new FileNameExtensionFilter(
-        "JPG, PPM & PNG Images, txt files", "jpg", "png", "txt", "ppm");
+        "JPG, PPM, PGM & PNG Images, txt and layers files", "jpg", "png", "txt", "ppm", "pgm",
+        "layers");
     faddchooser.setFileFilter(filter);
     int returnvalue = faddchooser.showOpenDialog(JFrameView.this);
     if (returnvalue == JFileChooser.APPROVE_OPTION) {
@@ -361,7 +376,8 @@ public class JFrameView extends JFrame implements IView {
    */
   @Override
   public void openOptions() {
-    String[] options = {"Sepia", "GreyScale", "Blur", "Sharpen"};
+    String[] options = {"Sepia", "GreyScale", "Blur", "Sharpen", "Box Blur", "Stacked Blur",
+        "Gaussian Blur"};
     int retvalue = JOptionPane
         .showOptionDialog(JFrameView.this, "Please choose filter", "Filters",
             JOptionPane.YES_OPTION, JOptionPane.INFORMATION_MESSAGE, null, options, options[3]);
@@ -496,4 +512,93 @@ public class JFrameView extends JFrame implements IView {
     }
     return returnInt;
   }
+
+  /**
+   * getter method for the number of times the user wants the selected filter applied.
+   *
+   * @return the number of times to apply the filter
+   * @throws IllegalArgumentException if the value entered is not a positive integer
+   */
+  @Override
+  public int getFilterRepeat() {
+    int returnInt;
+    try {
+      returnInt = Integer.parseInt(filterRepeat.getText().trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("repeat field value must be an integer");
+    }
+    if (returnInt < 1) {
+      throw new IllegalArgumentException("repeat field value must be positive");
+    }
+    return returnInt;
+  }
+
+  /**
+   * getter method for the size of wide blurs entered by the user: the radius of a box blur, or the
+   * standard deviation of a Gaussian blur.
+   *
+   * @return the size of the blur
+   * @throws IllegalArgumentException if the value entered is not a number
+   */
+  @Override
+  public double getBlurSize() {
+    try {
+      return Double.parseDouble(blurSize.getText().trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("blur size field value must be a number");
+    }
+  }
+
+  /**
+   * getter method for whether the user checked the box to save PPM and PGM files with binary
+   * samples.
+   *
+   * @return whether to save PPM and PGM files as binary
+   */
+  @Override
+  public boolean isBinarySave() {
+    return binarySave.isSelected();
+  }
+
+  /**
+   * getter method for the JPEG quality entered by the user.
+   *
+   * @return the quality, or -1 if the field is blank
+   * @throws IllegalArgumentException if the value entered is not an integer
+   */
+  @Override
+  public int getJpegQuality() {
+    return optionalInt(jpegQuality, "jpeg quality");
+  }
+
+  /**
+   * getter method for the PNG deflate level entered by the user.
+   *
+   * @return the level, or -1 if the field is blank
+   * @throws IllegalArgumentException if the value entered is not an integer
+   */
+  @Override
+  public int getPngLevel() {
+    return optionalInt(pngLevel, "png level");
+  }
+
+  /**
+   * reads an integer from a field that may be left blank.
+   *
+   * @param field the field to read
+   * @param name  the name of the field, for the error message
+   * @return the integer, or -1 if the field is blank
+   * @throws IllegalArgumentException if the value entered is not an integer
+   */
+  private int optionalInt(JTextField field, String name) {
+    String text = field.getText().trim();
+    if (text.isEmpty()) {
+      return -1;
+    }
+    try {
+      return Integer.parseInt(text);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(name + " field value must be an integer");
+    }
+  }
 }
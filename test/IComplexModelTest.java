@@ -7,11 +7,17 @@ import java.awt.Color;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import model.ComplexImageModel;
+import model.ComplexMultiLayerModel;
 import model.IComplexModel;
 import model.IImage;
 import model.ImageModel;
+import model.PackedImage;
+import model.ResampleMode;
 import org.junit.Test;
 
 
@@ -152,4 +158,313 @@ public class IComplexModelTest {
     assertTrue(model.getImage().equalImages(resultList.get(0)));
   }
 
+  @Test
+  public void testMosaicOneSeedIsAverage() {
+    IImage image = noiseImage(90, 70);
+    IImage result = new ComplexImageModel(image).applyMosaic(1);
+    long[] total = new long[3];
+    for (int y = 0; y < 70; y++) {
+      for (int x = 0; x < 90; x++) {
+        total[0] += image.getPixelAt(x, y).getRed();
+        total[1] += image.getPixelAt(x, y).getGreen();
+        total[2] += image.getPixelAt(x, y).getBlue();
+      }
+    }
+    int count = 90 * 70;
+    for (int y = 0; y < 70; y++) {
+      for (int x = 0; x < 90; x++) {
+        assertEquals(total[0] / count, result.getPixelAt(x, y).getRed());
+        assertEquals(total[1] / count, result.getPixelAt(x, y).getGreen());
+        assertEquals(total[2] / count, result.getPixelAt(x, y).getBlue());
+      }
+    }
+  }
+
+  @Test
+  public void testMosaicTilesAreAverages() {
+    IImage image = noiseImage(120, 80);
+    IImage result = new ComplexImageModel(image).applyMosaic(300);
+    // with noise underneath, no two tiles share a color, so each color is one tile
+    Map<Integer, long[]> tiles = new HashMap<>();
+    for (int y = 0; y < 80; y++) {
+      for (int x = 0; x < 120; x++) {
+        long[] total = tiles.computeIfAbsent(result.getRGBAt(x, y), k -> new long[4]);
+        total[0] += image.getPixelAt(x, y).getRed();
+        total[1] += image.getPixelAt(x, y).getGreen();
+        total[2] += image.getPixelAt(x, y).getBlue();
+        total[3]++;
+      }
+    }
+    assertTrue(tiles.size() <= 300);
+    assertTrue(tiles.size() > 200);
+    for (Map.Entry<Integer, long[]> tile : tiles.entrySet()) {
+      long[] total = tile.getValue();
+      int average = (int) (total[0] / total[3]) << 16 | (int) (total[1] / total[3]) << 8
+          | (int) (total[2] / total[3]);
+      assertEquals((int) tile.getKey(), average);
+    }
+  }
+
+  @Test
+  public void testSeededMosaicMatchesNearestSeeds() {
+    IImage image = noiseImage(64, 48);
+    IImage result = new ComplexImageModel(image).applyMosaic(150, 7L);
+    Random random = new Random(7L);
+    int[] seedX = new int[150];
+    int[] seedY = new int[150];
+    for (int i = 0; i < 150; i++) {
+      seedX[i] = random.nextInt(65);
+      seedY[i] = random.nextInt(49);
+    }
+    long[][] totals = new long[150][4];
+    int[] labels = new int[64 * 48];
+    for (int y = 0; y < 48; y++) {
+      for (int x = 0; x < 64; x++) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 150; i++) {
+          long distance = (long) (seedX[i] - x) * (seedX[i] - x)
+              + (long) (seedY[i] - y) * (seedY[i] - y);
+          if (distance < best) {
+            best = distance;
+            labels[x + 64 * y] = i;
+          }
+        }
+        long[] total = totals[labels[x + 64 * y]];
+        total[0] += image.getPixelAt(x, y).getRed();
+        total[1] += image.getPixelAt(x, y).getGreen();
+        total[2] += image.getPixelAt(x, y).getBlue();
+        total[3]++;
+      }
+    }
+    for (int y = 0; y < 48; y++) {
+      for (int x = 0; x < 64; x++) {
+        long[] total = totals[labels[x + 64 * y]];
+        assertEquals(total[0] / total[3], result.getPixelAt(x, y).getRed());
+        assertEquals(total[1] / total[3], result.getPixelAt(x, y).getGreen());
+        assertEquals(total[2] / total[3], result.getPixelAt(x, y).getBlue());
+      }
+    }
+  }
+
+  @Test
+  public void testSeededMosaicIsReproducible() {
+    IImage image = noiseImage(80, 60);
+    IImage first = new ComplexImageModel(image).applyMosaic(200, 42L);
+    IImage second = new ComplexImageModel(image).applyMosaic(200, 42L);
+    IImage other = new ComplexImageModel(image).applyMosaic(200, 43L);
+    assertTrue(first.equalImages(second));
+    assertFalse(first.equalImages(other));
+  }
+
+  @Test
+  public void testSeededMosaicSharesTilesAcrossLayers() {
+    IImage image = noiseImage(80, 60);
+    ComplexMultiLayerModel model = new ComplexMultiLayerModel("a", image);
+    int[] inverted = new int[80 * 60];
+    for (int i = 0; i < inverted.length; i++) {
+      inverted[i] = image.getRGBAt(i % 80, i / 80) ^ 0xFFFFFF;
+    }
+    model.addLayer("b", new PackedImage(80, 60, inverted));
+    model.setCurrent("a");
+    IImage first = model.applyMosaic(120, 5L);
+    model.setCurrent("b");
+    IImage second = model.applyMosaic(120, 5L);
+    // the same seeds cut both layers into the same tiles
+    for (int y = 0; y < 60; y++) {
+      for (int x = 1; x < 80; x++) {
+        assertEquals(first.getRGBAt(x, y) == first.getRGBAt(x - 1, y),
+            second.getRGBAt(x, y) == second.getRGBAt(x - 1, y));
+      }
+    }
+  }
+
+  @Test
+  public void testDownScaleMatchesPerPixelBlend() {
+    IImage image = noiseImage(37, 23);
+    IComplexModel model = new ComplexImageModel(image);
+    for (double ratio : new double[]{1, 0.9, 0.5, 0.334, 0.27, 0.1}) {
+      IImage result = model.downScale(ratio, 1 - ratio / 2);
+      int width = (int) Math.floor(37 * ratio);
+      int height = (int) Math.floor(23 * (1 - ratio / 2));
+      assertEquals(width, result.getWidth());
+      assertEquals(height, result.getHeight());
+      for (int y = 0; y < height; y++) {
+        for (int x = 0; x < width; x++) {
+          double oldX = (x * 37) / (double) width;
+          double oldY = (y * 23) / (double) height;
+          for (int shift = 0; shift <= 16; shift += 8) {
+            int top = blend(oldX, channel(image, oldX, oldY, shift, false, false),
+                channel(image, oldX, oldY, shift, true, false));
+            int bottom = blend(oldX, channel(image, oldX, oldY, shift, false, true),
+                channel(image, oldX, oldY, shift, true, true));
+            assertEquals(blend(oldY, top, bottom), (result.getRGBAt(x, y) >> shift) & 0xFF);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testDownScaleAreaAveragesBlocks() {
+    IImage image = noiseImage(40, 30);
+    IImage result = new ComplexImageModel(image).downScale(0.25, 0.1, ResampleMode.AREA);
+    assertEquals(10, result.getWidth());
+    assertEquals(3, result.getHeight());
+    for (int y = 0; y < 3; y++) {
+      for (int x = 0; x < 10; x++) {
+        assertEquals((areaSum(image, 4 * x, 10 * y, 4, 10, 0) + 20) / 40,
+            result.getRGBAt(x, y) & 0xFF);
+      }
+    }
+  }
+
+  @Test
+  public void testDownScaleAreaUnevenRatio() {
+    IImage image = noiseImage(41, 29);
+    IImage result = new ComplexImageModel(image).downScale(0.3, 0.4, ResampleMode.AREA);
+    assertEquals(12, result.getWidth());
+    assertEquals(11, result.getHeight());
+    assertAreaAverage(image, result, 0.5 + 1e-9);
+  }
+
+  @Test
+  public void testDownScaleAreaStrongReductionIsExact() {
+    IImage image = ImageUtil.readFile("res\\KenjiNoFilter.jpg").get(0);
+    IImage result = new ComplexImageModel(image).downScale(0.11, 0.13, ResampleMode.AREA);
+    assertEquals(11, result.getWidth());
+    assertEquals(16, result.getHeight());
+    assertAreaAverage(image, result, 0.5 + 1e-9);
+  }
+
+  @Test
+  public void testPreviewFitsAndKeepsProportions() {
+    IImage image = noiseImage(160, 40);
+    ComplexImageModel model = new ComplexImageModel(image);
+    IImage preview = model.preview(20, 20);
+    assertEquals(20, preview.getWidth());
+    assertEquals(5, preview.getHeight());
+    for (int y = 0; y < 5; y++) {
+      for (int x = 0; x < 20; x++) {
+        int sum = areaSum(image, 8 * x, 8 * y, 8, 8, 16);
+        assertEquals(sum / 64.0, (preview.getRGBAt(x, y) >> 16) & 0xFF, 2);
+      }
+    }
+    assertTrue(model.preview(20, 20).equalImages(preview));
+    assertTrue(model.preview(500, 500).equalImages(image));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPreviewEmpty() {
+    new ComplexImageModel(rainbowImage).preview(0, 10);
+  }
+
+  /**
+   * sums one channel of a block of pixels of an image.
+   *
+   * @param image  the image to read
+   * @param x      the left column of the block
+   * @param y      the top row of the block
+   * @param width  the width of the block
+   * @param height the height of the block
+   * @param shift  the shift of the channel within a packed value
+   * @return the sum of the channel over the block
+   */
+  private static int areaSum(IImage image, int x, int y, int width, int height, int shift) {
+    int sum = 0;
+    for (int j = y; j < y + height; j++) {
+      for (int i = x; i < x + width; i++) {
+        sum += (image.getRGBAt(i, j) >> shift) & 0xFF;
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * checks that every green value of a scaled image is within the supplied tolerance of the
+   * average of the pixels it covers in the original image, weighted by how much of each it covers.
+   *
+   * @param image     the original image
+   * @param result    the scaled image
+   * @param tolerance the largest difference allowed
+   * @return the mean difference
+   */
+  private static double assertAreaAverage(IImage image, IImage result, double tolerance) {
+    double totalError = 0;
+    double scaleX = image.getWidth() / (double) result.getWidth();
+    double scaleY = image.getHeight() / (double) result.getHeight();
+    for (int y = 0; y < result.getHeight(); y++) {
+      for (int x = 0; x < result.getWidth(); x++) {
+        double sum = 0;
+        for (int j = 0; j < image.getHeight(); j++) {
+          double coverY = Math.min((y + 1) * scaleY, j + 1) - Math.max(y * scaleY, j);
+          for (int i = 0; i < image.getWidth(); i++) {
+            double coverX = Math.min((x + 1) * scaleX, i + 1) - Math.max(x * scaleX, i);
+            if (coverX > 0 && coverY > 0) {
+              sum += coverX * coverY * ((image.getRGBAt(i, j) >> 8) & 0xFF);
+            }
+          }
+        }
+        int actual = (result.getRGBAt(x, y) >> 8) & 0xFF;
+        assertEquals(sum / (scaleX * scaleY), actual, tolerance);
+        totalError += Math.abs(sum / (scaleX * scaleY) - actual);
+      }
+    }
+    return totalError / (result.getWidth() * result.getHeight());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDownScaleNullMode() {
+    new ComplexImageModel(rainbowImage).downScale(0.5, 0.5, null);
+  }
+
+  /**
+   * builds an image of the supplied size filled with pseudo-random colors.
+   *
+   * @param width  the width of the image
+   * @param height the height of the image
+   * @return the image
+   */
+  private static IImage noiseImage(int width, int height) {
+    Random random = new Random(42);
+    int[] rgb = new int[width * height];
+    for (int i = 0; i < rgb.length; i++) {
+      rgb[i] = random.nextInt(1 << 24);
+    }
+    return new PackedImage(width, height, rgb);
+  }
+
+  /**
+   * reads one channel of the pixel at the rounded down or up position, treating an exact position
+   * as both.
+   *
+   * @param image the image to read
+   * @param x     the column to read near
+   * @param y     the row to read near
+   * @param shift the shift of the channel within a packed value
+   * @param ceilX whether to round the column up
+   * @param ceilY whether to round the row up
+   * @return the value of the channel
+   */
+  private static int channel(IImage image, double x, double y, int shift, boolean ceilX,
+      boolean ceilY) {
+    int column = (int) (ceilX ? Math.ceil(x) : Math.floor(x));
+    int row = (int) (ceilY ? Math.ceil(y) : Math.floor(y));
+    return (image.getRGBAt(column, row) >> shift) & 0xFF;
+  }
+
+  /**
+   * blends two values by a position between them, as downScale always has, with an exact position
+   * taking the first value.
+   *
+   * @param position the position between the two values
+   * @param a        the value at the position rounded down
+   * @param b        the value at the position rounded up
+   * @return the blended value
+   */
+  private static int blend(double position, int a, int b) {
+    if (position % 1 == 0) {
+      return a;
+    }
+    return (int) (b * (position - Math.floor(position)) + a * (Math.ceil(position) - position));
+  }
 }
@@ -1,17 +1,28 @@
 
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.awt.Color;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import model.BlurFilter;
+import model.BoxBlurFilter;
+import model.EdgeMode;
+import model.FilterPlan;
+import model.GaussianBlurFilter;
 import model.GreyScaleFilter;
 import model.IImage;
 import model.IKernel;
+import model.Image;
 import model.ImageModel;
+import model.Pixel;
+import model.RepeatedFilter;
 import model.SepiaFilter;
 import model.SharpenFilter;
+import model.StackedBoxBlurFilter;
 import model.SupplyColorProcessor;
 import model.SupplyFilter;
 import org.junit.Test;
@@ -247,4 +258,383 @@ public class IKernelTest {
 
     blur.apply(null);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testSupplyFilterCopiesKernel() {
+    double[][] kernel = new double[][]{{0, 0, 0}, {0, 1, 0}, {0, 0, 0}};
+    SupplyFilter filter = new SupplyFilter(kernel);
+    kernel[1][1] = 5;
+    assertEquals(1, filter.getInKernel(1, 1), 0.001);
+    assertEquals(0, filter.getTolerance(), 0.001);
+  }
+
+  @Test
+  public void testSupplyColorProcessorCopiesKernel() {
+    double[][] kernel = new double[][]{{1, 0, 0}, {0, 1, 0}, {0, 0, 1}};
+    SupplyColorProcessor processor = new SupplyColorProcessor(kernel);
+    kernel[0][0] = 3;
+    assertEquals(1, processor.getInKernel(0, 0), 0.001);
+  }
+
+  @Test
+  public void testColorProcessingMatchesPerPixelMath() {
+    double[][] kernel = new double[][]{{0.5, 1.7, -0.3}, {0.25, -0.9, 0.8}, {0.333, 0.1, 0.9}};
+    ArrayList<Color> colors = new ArrayList<>();
+    for (int i = 0; i < 256; i++) {
+      colors.add(new Color(i, (i * 97) % 256, 255 - i));
+    }
+    IImage image = new ImageModel().getRainbow(3, 1, colors);
+    IImage processed = new ImageModel(image).applyColorProcessing(
+        new SupplyColorProcessor(kernel));
+    for (int y = 0; y < image.getHeight(); y++) {
+      int r = image.getPixelAt(0, y).getRed();
+      int g = image.getPixelAt(0, y).getGreen();
+      int b = image.getPixelAt(0, y).getBlue();
+      int[] expected = new int[3];
+      for (int c = 0; c < 3; c++) {
+        int value = (int) ((kernel[0][c] * r) + (kernel[1][c] * g) + (kernel[2][c] * b));
+        expected[c] = Math.max(0, Math.min(255, value));
+      }
+      assertEquals(expected[0], processed.getPixelAt(1, y).getRed());
+      assertEquals(expected[1], processed.getPixelAt(1, y).getGreen());
+      assertEquals(expected[2], processed.getPixelAt(1, y).getBlue());
+    }
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testSupplyFilterNegativeTolerance() {
+    new SupplyFilter(new double[][]{{1}}, -0.5);
+  }
+
+  @Test
+  public void testSeparableSupplyFilterMatchesDirectSum() {
+    double[] weights = new double[]{1 / 16.0, 4 / 16.0, 6 / 16.0, 4 / 16.0, 1 / 16.0};
+    double[][] kernel = new double[5][5];
+    for (int x = 0; x < 5; x++) {
+      for (int y = 0; y < 5; y++) {
+        kernel[x][y] = weights[x] * weights[y];
+      }
+    }
+    IImage image = kenjiLikeImage();
+    IImage filtered = new ImageModel(image).applyFilter(new SupplyFilter(kernel));
+    assertImagesWithin(referenceFilter(image, kernel), filtered, 1);
+  }
+
+  @Test
+  public void testLowRankSupplyFilterWithinTolerance() {
+    double[][] kernel = new double[7][7];
+    for (int x = 0; x < 7; x++) {
+      for (int y = 0; y < 7; y++) {
+        // two separable terms plus a little noise that the tolerance allows to be dropped
+        kernel[x][y] = 0.02 * (1 + Math.abs(x - 3)) * (1 + Math.abs(y - 3)) / 4
+            - 0.01 * Math.cos(x) * Math.sin(y) + 0.00001 * ((x * 7 + y) % 3);
+      }
+    }
+    IImage image = kenjiLikeImage();
+    IImage filtered = new ImageModel(image).applyFilter(new SupplyFilter(kernel, 0.0001));
+    // each of the 49 kernel values may be off by the tolerance, on channels of at most 255
+    assertImagesWithin(referenceFilter(image, kernel), filtered, 4);
+  }
+
+  @Test
+  public void testLargeSupplyFilterMatchesDirectSum() {
+    // an irregular 13x13 kernel has no cheap separable form, so it is filtered through transforms
+    double[][] kernel = new double[13][13];
+    for (int x = 0; x < 13; x++) {
+      for (int y = 0; y < 13; y++) {
+        kernel[x][y] = ((x * 31 + y * 17) % 23) / 1500.0;
+      }
+    }
+    IImage image = kenjiLikeImage();
+    IImage filtered = new ImageModel(image).applyFilter(new SupplyFilter(kernel));
+    assertImagesWithin(referenceFilter(image, kernel), filtered, 1);
+  }
+
+  @Test
+  public void testFrequencyDomainFilterMatchesDirectSumOnEveryEdge() {
+    // the transforms round each level by at most one against the exact sum
+    IKernel kernel = new SupplyFilter(irregularKernel(13));
+    IImage image = noisyImage(150, 110);
+    assertEquals(FilterPlan.FREQUENCY_DOMAIN,
+        FilterPlan.of(kernel, image.getWidth(), image.getHeight()));
+    for (EdgeMode edgeMode : EdgeMode.values()) {
+      IImage filtered = new ImageModel(image).applyFilter(kernel, edgeMode);
+      assertImagesWithin(referenceFilter(image, kernel.getKernelArray(), edgeMode), filtered, 1);
+    }
+  }
+
+  @Test
+  public void testFrequencyDomainFilterSpansManyTiles() {
+    // a tall narrow image whose rows of tiles do not line up with the rows of bands
+    IKernel kernel = new SupplyFilter(irregularKernel(21));
+    IImage image = noisyImage(70, 333);
+    assertEquals(FilterPlan.FREQUENCY_DOMAIN,
+        FilterPlan.of(kernel, image.getWidth(), image.getHeight()));
+    IImage filtered = new ImageModel(image).applyFilter(kernel, EdgeMode.MIRROR);
+    assertImagesWithin(referenceFilter(image, kernel.getKernelArray(), EdgeMode.MIRROR),
+        filtered, 1);
+  }
+
+  @Test
+  public void testSuppliedSharpenMatchesBuiltIn() {
+    // rounding depends on the kernel's values, so the same weights round alike whatever class
+    IImage image = noisyImage(40, 30);
+    IImage builtIn = new ImageModel(image).applyFilter(new SharpenFilter());
+    IImage supplied = new ImageModel(image).applyFilter(
+        new SupplyFilter(new SharpenFilter().getKernelArray()));
+    assertTrue(builtIn.equalImages(supplied));
+  }
+
+  @Test
+  public void testFilterPlans() {
+    assertEquals(FilterPlan.DIRECT, FilterPlan.of(new SharpenFilter(), 100, 100));
+    assertEquals(FilterPlan.SEPARABLE, FilterPlan.of(new RepeatedFilter(new BlurFilter(), 4),
+        100, 100));
+    assertEquals(FilterPlan.RUNNING_BLUR, FilterPlan.of(new BoxBlurFilter(30), 100, 100));
+    // too small an image for tiles to pay off
+    assertEquals(FilterPlan.DIRECT, FilterPlan.of(new SupplyFilter(irregularKernel(13)), 4, 4));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFilterPlanOfEmptyImage() {
+    FilterPlan.of(new BlurFilter(), 0, 10);
+  }
+
+  @Test
+  public void testRepeatedFilterKernel() {
+    RepeatedFilter twice = new RepeatedFilter(new BlurFilter(), 2);
+    assertEquals(5, twice.getLength());
+    assertEquals(5, twice.getHeight());
+    assertEquals(2, twice.getTimes());
+    // the centre of [1 4 6 4 1] / 16 in both directions
+    assertEquals(36 / 256.0, twice.getInKernel(2, 2), 1e-12);
+    assertEquals(1 / 256.0, twice.getInKernel(0, 4), 1e-12);
+    double sum = 0;
+    for (double[] column : new RepeatedFilter(new BlurFilter(), 10).getKernelArray()) {
+      for (double value : column) {
+        sum += value;
+      }
+    }
+    assertEquals(1, sum, 1e-9);
+  }
+
+  @Test
+  public void testRepeatedFilterMatchesBinomialKernel() {
+    // blurring three times by [1 2 1] / 4 is the same as blurring once by [1 6 15 20 15 6 1] / 64
+    double[] weights = new double[]{1, 6, 15, 20, 15, 6, 1};
+    double[][] binomial = new double[7][7];
+    for (int x = 0; x < 7; x++) {
+      for (int y = 0; y < 7; y++) {
+        binomial[x][y] = weights[x] * weights[y] / 4096;
+      }
+    }
+    IImage image = kenjiLikeImage();
+    IImage repeated = new ImageModel(image).applyFilter(new RepeatedFilter(new BlurFilter(), 3));
+    assertImagesWithin(referenceFilter(image, binomial), repeated, 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRepeatedFilterZeroTimes() {
+    new RepeatedFilter(new BlurFilter(), 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRepeatedFilterRefusesSharpen() {
+    // sharpen pushes channels out of range, so passes clamp in between and cannot be combined
+    new RepeatedFilter(new SharpenFilter(), 2);
+  }
+
+  @Test
+  public void testRepeatedSharpenIsAppliedPassByPass() {
+    assertFalse(RepeatedFilter.canCombine(new SharpenFilter(), 2));
+    List<IKernel> passes = RepeatedFilter.passes(new SharpenFilter(), 3);
+    assertEquals(3, passes.size());
+    IImage image = kenjiLikeImage();
+    ImageModel literal = new ImageModel(image);
+    for (int i = 0; i < 3; i++) {
+      literal = new ImageModel(literal.applyFilter(new SharpenFilter()));
+    }
+    ImageModel passed = new ImageModel(image);
+    for (IKernel pass : passes) {
+      passed = new ImageModel(passed.applyFilter(pass));
+    }
+    assertTrue(literal.getImage().equalImages(passed.getImage()));
+  }
+
+  @Test
+  public void testRepeatedBlurIsSplitAtMaxLength() {
+    List<IKernel> passes = RepeatedFilter.passes(new BlurFilter(), 120);
+    int times = 0;
+    for (IKernel pass : passes) {
+      assertTrue(pass.getLength() <= RepeatedFilter.MAX_LENGTH);
+      times += ((RepeatedFilter) pass).getTimes();
+    }
+    assertEquals(120, times);
+    assertEquals(3, passes.size());
+    assertFalse(RepeatedFilter.canCombine(new BlurFilter(), 51));
+    assertEquals(RepeatedFilter.MAX_LENGTH, new RepeatedFilter(new BlurFilter(), 50).getLength());
+  }
+
+  @Test
+  public void testBoxBlurMatchesKernel() {
+    BoxBlurFilter box = new BoxBlurFilter(2);
+    assertEquals(5, box.getLength());
+    assertEquals(1 / 25.0, box.getInKernel(0, 4), 1e-12);
+    IImage image = kenjiLikeImage();
+    IImage filtered = new ImageModel(image).applyFilter(box);
+    assertImagesWithin(referenceFilter(image, box.getKernelArray()), filtered, 1);
+  }
+
+  @Test
+  public void testStackedBoxBlurMatchesKernel() {
+    StackedBoxBlurFilter stacked = new StackedBoxBlurFilter(1, 3);
+    assertEquals(7, stacked.getLength());
+    // three [1 1 1] / 3 boxes make [1 3 6 7 6 3 1] / 27 along each axis
+    assertEquals(49 / 729.0, stacked.getInKernel(3, 3), 1e-12);
+    IImage image = kenjiLikeImage();
+    IImage filtered = new ImageModel(image).applyFilter(stacked);
+    assertImagesWithin(referenceFilter(image, stacked.getKernelArray()), filtered, 1);
+  }
+
+  @Test
+  public void testGaussianBlurCloseToKernel() {
+    GaussianBlurFilter gaussian = new GaussianBlurFilter(2);
+    assertEquals(13, gaussian.getLength());
+    IImage image = kenjiLikeImage();
+    IImage filtered = new ImageModel(image).applyFilter(gaussian);
+    // the recursive filter is an approximation of a sampled Gaussian
+    assertImagesWithin(referenceFilter(image, gaussian.getKernelArray()), filtered, 8);
+  }
+
+  @Test
+  public void testGaussianBlurOfFlatImageIsFlat() {
+    IImage grey = new ImageModel().getCheckerboard(10, 4, Color.GRAY, Color.GRAY);
+    IImage filtered = new ImageModel(grey).applyFilter(new GaussianBlurFilter(6), EdgeMode.CLAMP);
+    for (int x = 0; x < filtered.getWidth(); x++) {
+      assertEquals(128, filtered.getPixelAt(x, x).getRed(), 1);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGaussianBlurSmallSigma() {
+    new GaussianBlurFilter(0.1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBoxBlurZeroRadius() {
+    new BoxBlurFilter(0);
+  }
+
+  /**
+   * builds a small image with varied colors to filter.
+   */
+  private IImage kenjiLikeImage() {
+    ArrayList<Color> colors = new ArrayList<>();
+    for (int i = 0; i < 12; i++) {
+      colors.add(new Color((i * 53) % 256, (i * 97) % 256, (i * 151) % 256));
+    }
+    return new ImageModel().getRainbow(13, 1, colors);
+  }
+
+  /**
+   * builds a square kernel of the supplied size with no cheap separable form.
+   */
+  private double[][] irregularKernel(int size) {
+    double[][] kernel = new double[size][size];
+    double sum = 0;
+    for (int x = 0; x < size; x++) {
+      for (int y = 0; y < size; y++) {
+        kernel[x][y] = (x * 31 + y * 17) % 23;
+        sum += kernel[x][y];
+      }
+    }
+    for (double[] column : kernel) {
+      for (int y = 0; y < size; y++) {
+        column[y] /= sum;
+      }
+    }
+    return kernel;
+  }
+
+  /**
+   * builds an image of the supplied size with unrelated levels in every pixel and channel.
+   */
+  private IImage noisyImage(int width, int height) {
+    ArrayList<Pixel> pixels = new ArrayList<>();
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        pixels.add(new Pixel((x * 37 + y * 11) % 256, (x * x + y * 7) % 256,
+            (x * 5 + y * y * 3) % 256));
+      }
+    }
+    return new Image(width, height, pixels);
+  }
+
+  /**
+   * filters an image with black borders, summing each channel exactly before truncating it.
+   */
+  private int[][][] referenceFilter(IImage image, double[][] kernel) {
+    return this.referenceFilter(image, kernel, EdgeMode.ZERO);
+  }
+
+  /**
+   * filters an image treating its borders by the supplied edge mode, summing each channel exactly
+   * before truncating it.
+   */
+  private int[][][] referenceFilter(IImage image, double[][] kernel, EdgeMode edgeMode) {
+    int half = kernel.length / 2;
+    int[][][] result = new int[image.getWidth()][image.getHeight()][3];
+    for (int x = 0; x < image.getWidth(); x++) {
+      for (int y = 0; y < image.getHeight(); y++) {
+        double[] sums = new double[3];
+        for (int kx = 0; kx < kernel.length; kx++) {
+          for (int ky = 0; ky < kernel.length; ky++) {
+            int sx = this.resolve(x + kx - half, image.getWidth(), edgeMode);
+            int sy = this.resolve(y + ky - half, image.getHeight(), edgeMode);
+            if (sx < 0 || sy < 0) {
+              continue;
+            }
+            sums[0] += kernel[kx][ky] * image.getPixelAt(sx, sy).getRed();
+            sums[1] += kernel[kx][ky] * image.getPixelAt(sx, sy).getGreen();
+            sums[2] += kernel[kx][ky] * image.getPixelAt(sx, sy).getBlue();
+          }
+        }
+        for (int c = 0; c < 3; c++) {
+          result[x][y][c] = Math.max(0, Math.min(255, (int) sums[c]));
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * maps a coordinate past the border of an image onto the pixel the edge mode reads, or -1.
+   */
+  private int resolve(int index, int size, EdgeMode edgeMode) {
+    if (index >= 0 && index < size) {
+      return index;
+    }
+    switch (edgeMode) {
+      case CLAMP:
+        return Math.max(0, Math.min(size - 1, index));
+      case WRAP:
+        return Math.floorMod(index, size);
+      case MIRROR:
+        int period = 2 * size - 2;
+        int folded = period == 0 ? 0 : Math.floorMod(index, period);
+        return folded < size ? folded : period - folded;
+      default:
+        return -1;
+    }
+  }
+
+  private void assertImagesWithin(int[][][] expected, IImage actual, int tolerance) {
+    for (int x = 0; x < actual.getWidth(); x++) {
+      for (int y = 0; y < actual.getHeight(); y++) {
+        assertEquals(expected[x][y][0], actual.getPixelAt(x, y).getRed(), tolerance);
+        assertEquals(expected[x][y][1], actual.getPixelAt(x, y).getGreen(), tolerance);
+        assertEquals(expected[x][y][2], actual.getPixelAt(x, y).getBlue(), tolerance);
+      }
+    }
+  }
+}
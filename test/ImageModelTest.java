@@ -1,20 +1,43 @@
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import controller.ImageController;
 import controller.ImageUtil;
+import controller.PNMFormat;
+import controller.SaveOptions;
 import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 import model.BlurFilter;
+import model.EdgeMode;
 
 import model.GreyScaleFilter;
 import model.IImage;
+import model.IKernel;
 import model.ImageModel;
+import model.ImageRasters;
+import model.LazyImage;
+import model.MultiLayerIModel;
+import model.PackedImage;
+import model.Region;
+import model.RepeatedFilter;
+import model.RowBands;
 import model.SepiaFilter;
 import model.SharpenFilter;
+import model.SimpleMultiLayerModel;
+import model.StreamingFilter;
 import model.SupplyColorProcessor;
 import model.SupplyFilter;
 import org.junit.Test;
@@ -204,6 +227,79 @@ public class ImageModelTest {
     assertEquals(126, newImage.getPixelAt(1, 1).getRed());
   }
 
+  @Test
+  public void testApplyFilterEdgeModes() {
+    IImage row = new PackedImage(3, 1, new int[]{0x1E1E1E, 0x5A5A5A, 0xB4B4B4});
+    ImageModel rowModel = new ImageModel(row);
+    // copies the pixel to the left of each pixel
+    SupplyFilter shift = new SupplyFilter(new double[][]{{0, 1, 0}, {0, 0, 0}, {0, 0, 0}});
+    assertEquals(0, rowModel.applyFilter(shift, EdgeMode.ZERO).getPixelAt(0, 0).getRed());
+    assertEquals(30, rowModel.applyFilter(shift, EdgeMode.CLAMP).getPixelAt(0, 0).getRed());
+    assertEquals(90, rowModel.applyFilter(shift, EdgeMode.MIRROR).getPixelAt(0, 0).getRed());
+    assertEquals(180, rowModel.applyFilter(shift, EdgeMode.WRAP).getPixelAt(0, 0).getRed());
+    assertEquals(90, rowModel.applyFilter(shift, EdgeMode.ZERO).getPixelAt(2, 0).getRed());
+    assertTrue(rowModel.applyFilter(shift).equalImages(rowModel.applyFilter(shift, EdgeMode.ZERO)));
+  }
+
+  @Test
+  public void testApplyFilterEdgeModesKernelLargerThanImage() {
+    IImage grey = imageModel1.getRainbow(2, 2, new ArrayList<>(Arrays.asList(Color.GRAY)));
+    double[][] box = new double[5][5];
+    for (double[] column : box) {
+      Arrays.fill(column, 0.04);
+    }
+    ImageModel greyModel = new ImageModel(grey);
+    assertEquals(128, greyModel.applyFilter(new SupplyFilter(box), EdgeMode.CLAMP)
+        .getPixelAt(1, 1).getRed());
+    assertEquals(128, greyModel.applyFilter(new SupplyFilter(box), EdgeMode.WRAP)
+        .getPixelAt(0, 1).getRed());
+    assertEquals(20, greyModel.applyFilter(new SupplyFilter(box), EdgeMode.ZERO)
+        .getPixelAt(0, 0).getRed());
+  }
+
+  @Test
+  public void testLargeKernelsRoundAlikeOnEveryPlan() {
+    int[] grey = new int[40 * 40];
+    Arrays.fill(grey, 0x808080);
+    ImageModel greyModel = new ImageModel(new PackedImage(40, 40, grey));
+    double[][] box = new double[5][5];
+    for (double[] column : box) {
+      Arrays.fill(column, 0.04);
+    }
+    // an 11x11 box made full rank, filtered directly or by transforms depending on the image
+    double[][] fullRank = new double[11][11];
+    for (double[] column : fullRank) {
+      Arrays.fill(column, 1 / 121.0);
+    }
+    for (int i = 0; i < 10; i++) {
+      fullRank[i][i] += i % 2 == 0 ? 0.001 : -0.001;
+    }
+    double[][] large = new double[31][31];
+    Random random = new Random(3);
+    double total = 0;
+    for (double[] column : large) {
+      for (int j = 0; j < column.length; j++) {
+        column[j] = 1 + random.nextDouble();
+        total += column[j];
+      }
+    }
+    for (double[] column : large) {
+      for (int j = 0; j < column.length; j++) {
+        column[j] /= total;
+      }
+    }
+    for (double[][] kernel : Arrays.asList(box, fullRank, large)) {
+      IImage result = greyModel.applyFilter(new SupplyFilter(kernel), EdgeMode.CLAMP);
+      assertEquals(0x808080, result.getRGBAt(0, 0));
+      assertEquals(0x808080, result.getRGBAt(20, 20));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testApplyFilterNullEdgeMode() {
+    imageModel1.applyFilter(new BlurFilter(), null);
+  }
+
   @Test(expected = IllegalStateException.class)
   public void testApplyApplyColorProcessingNullImage() {
     ImageModel nullIM = new ImageModel(null);
@@ -513,6 +609,29 @@ public class ImageModelTest {
     assertEquals(255, images.get(4).getPixelAt(0, 0).getRed());
   }
 
+  @Test
+  public void testParallelLayersKeepOrder() {
+    List<IImage> layers = new ArrayList<>();
+    for (int i = 0; i < 12; i++) {
+      int[] pixels = new int[40 * 30];
+      Arrays.fill(pixels, PackedImage.pack(i * 20, 255 - i * 20, i));
+      layers.add(new PackedImage(40, 30, pixels));
+    }
+    ImageUtil.writeFile(layers, "res\\layersOut.png");
+    List<IImage> read = ImageUtil.readFile("res\\layersOutPath.txt");
+    assertEquals(12, read.size());
+    for (int i = 0; i < 12; i++) {
+      assertTrue(layers.get(i).equalImages(read.get(i)));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingLayerReported() throws IOException {
+    Files.write(Paths.get("res\\missingLayerPath.txt"), Arrays.asList(
+        "res\\KenjiNoFilter.png", "res\\noSuchLayer.png", "res\\KenjiNoFilter.png"));
+    ImageUtil.readFile("res\\missingLayerPath.txt");
+  }
+
   @Test
   public void testMultiBlur() {
     control2.controlImage();
@@ -624,4 +743,480 @@ public class ImageModelTest {
     List<IImage> result = ImageUtil.readFile("res\\singleRemoveLayerOutPath.txt");
     assertEquals(2, result.size());
   }
+
+  @Test
+  public void testParallelMatchesSerial() {
+    ArrayList<Color> colors = new ArrayList<>();
+    for (int i = 0; i < 37; i++) {
+      colors.add(new Color((i * 53) % 256, (i * 97) % 256, (i * 151) % 256));
+    }
+    ImageModel model = new ImageModel(imageModel1.getRainbow(41, 1, colors));
+    double[][] box = new double[7][7];
+    for (double[] column : box) {
+      Arrays.fill(column, 1 / 49.0);
+    }
+
+    RowBands.setParallel(false);
+    IImage blurred = model.applyFilter(new BlurFilter());
+    IImage boxed = model.applyFilter(new SupplyFilter(box), EdgeMode.MIRROR);
+    IImage sepia = model.applyColorProcessing(new SepiaFilter());
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    RowBands.setPool(pool);
+    RowBands.setSerialThreshold(0);
+    RowBands.setParallel(true);
+    try {
+      assertTrue(blurred.equalImages(model.applyFilter(new BlurFilter())));
+      assertTrue(boxed.equalImages(model.applyFilter(new SupplyFilter(box), EdgeMode.MIRROR)));
+      assertTrue(sepia.equalImages(model.applyColorProcessing(new SepiaFilter())));
+    } finally {
+      RowBands.setPool(ForkJoinPool.commonPool());
+      RowBands.setSerialThreshold(RowBands.DEFAULT_SERIAL_THRESHOLD);
+      pool.shutdown();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRowBandsNegativeThreshold() {
+    RowBands.setSerialThreshold(-1);
+  }
+
+  @Test
+  public void testColorChainExactMatchesSeparateSteps() {
+    IImage sepia = new ImageModel(rainbowImage).applyColorProcessing(new SepiaFilter());
+    IImage separate = new ImageModel(sepia).applyColorProcessing(new GreyScaleFilter());
+    IImage chained = rainbowModel.applyColorProcessing(
+        Arrays.asList(new SepiaFilter(), new GreyScaleFilter()), true);
+    assertTrue(separate.equalImages(chained));
+  }
+
+  @Test
+  public void testColorChainFusedAppliesProduct() {
+    SupplyColorProcessor halve = new SupplyColorProcessor(
+        new double[][]{{0.5, 0, 0}, {0, 0.5, 0}, {0, 0, 0.5}});
+    SupplyColorProcessor swap = new SupplyColorProcessor(
+        new double[][]{{0, 1, 0}, {1, 0, 0}, {0, 0, 1}});
+    IImage image = new ImageModel().getCheckerboard(1, 1, new Color(101, 40, 255), Color.BLACK);
+    IImage fused = new ImageModel(image).applyColorProcessing(Arrays.asList(halve, swap), false);
+    assertEquals(20, fused.getPixelAt(0, 0).getRed());
+    assertEquals(50, fused.getPixelAt(0, 0).getGreen());
+    assertEquals(127, fused.getPixelAt(0, 0).getBlue());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testColorChainEmpty() {
+    rainbowModel.applyColorProcessing(new ArrayList<>(), true);
+  }
+
+  @Test
+  public void testStreamedFilterMatchesWholeImage() {
+    IImage image = imageModel1.getRainbow(99, 40,
+        new ArrayList<Color>(Arrays.asList(Color.RED, Color.ORANGE, Color.YELLOW)));
+    int[] rgb = PackedImage.of(new ImageModel(image).applyColorProcessing(new SepiaFilter()))
+        .getRGBArray();
+    IImage source = new PackedImage(99, 120, rgb);
+    for (int i = 0; i < rgb.length; i++) {
+      rgb[i] ^= (i * 7919) & 0x3F3F3F;
+    }
+    IKernel kernel = new RepeatedFilter(new BlurFilter(), 4);
+    for (EdgeMode edgeMode : Arrays.asList(EdgeMode.ZERO, EdgeMode.CLAMP, EdgeMode.MIRROR)) {
+      IImage whole = new ImageModel(source).applyFilter(kernel, edgeMode);
+      StreamingFilter stream = StreamingFilter.filter(kernel, edgeMode, 99, 120);
+      List<int[]> rows = new ArrayList<>();
+      for (int y = 0; y < 120; y++) {
+        int[] row = new int[99];
+        for (int x = 0; x < 99; x++) {
+          row[x] = source.getRGBAt(x, y);
+        }
+        rows.addAll(stream.addRow(row));
+      }
+      assertTrue(stream.isFinished());
+      assertEquals(120, rows.size());
+      for (int y = 0; y < 120; y++) {
+        for (int x = 0; x < 99; x++) {
+          assertEquals(whole.getRGBAt(x, y), rows.get(y)[x]);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testStreamPPMMatchesLoadedImage() {
+    IImage rainbowImage = imageModel1.getRainbow(99, 33,
+        new ArrayList<Color>(Arrays.asList(Color.RED, Color.ORANGE, Color.YELLOW)));
+    ImageUtil.writePPM(rainbowImage, "res\\RainbowStreamIn.ppm");
+    ImageUtil.streamFilter("res\\RainbowStreamIn.ppm", "res\\RainbowStreamBlur.ppm",
+        new BlurFilter());
+    ImageUtil.streamColors("res\\RainbowStreamIn.ppm", "res\\RainbowStreamSepia.ppm",
+        Arrays.asList(new SepiaFilter(), new SepiaFilter()), true);
+    ImageModel model = new ImageModel(rainbowImage);
+    assertTrue(model.applyFilter(new BlurFilter())
+        .equalImages(ImageUtil.ppmToImage("res\\RainbowStreamBlur.ppm")));
+    assertTrue(model.applyColorProcessing(Arrays.asList(new SepiaFilter(), new SepiaFilter()), true)
+        .equalImages(ImageUtil.ppmToImage("res\\RainbowStreamSepia.ppm")));
+  }
+
+  @Test
+  public void testStreamedSharpenPassesMatchSeparatePasses() {
+    IImage rainbowImage = imageModel1.getRainbow(70, 30,
+        new ArrayList<Color>(Arrays.asList(Color.RED, Color.BLUE, Color.YELLOW)));
+    ImageUtil.writePPM(rainbowImage, "res\\RainbowStreamIn.ppm");
+    ImageUtil.streamFilter("res\\RainbowStreamIn.ppm", "res\\RainbowStreamSharpen.ppm",
+        RepeatedFilter.passes(new SharpenFilter(), 3), PNMFormat.PLAIN);
+    IImage expected = rainbowImage;
+    for (int i = 0; i < 3; i++) {
+      expected = new ImageModel(expected).applyFilter(new SharpenFilter());
+    }
+    assertTrue(expected.equalImages(ImageUtil.ppmToImage("res\\RainbowStreamSharpen.ppm")));
+  }
+
+  @Test
+  public void testPPMCommentsAnywhere() throws IOException {
+    Files.write(Paths.get("res\\CommentedIn.ppm"), ("P3# plain\n2 # wide\n1\n#max\n255\n"
+        + "255 0 10#first\n\n0\t128 300").getBytes(StandardCharsets.US_ASCII));
+    IImage image = ImageUtil.ppmToImage("res\\CommentedIn.ppm");
+    assertEquals(2, image.getWidth());
+    assertEquals(1, image.getHeight());
+    assertEquals(0xFF000A, image.getRGBAt(0, 0));
+    assertEquals(0x0080FF, image.getRGBAt(1, 0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPPMTruncated() throws IOException {
+    Files.write(Paths.get("res\\TruncatedIn.ppm"),
+        "P3\n2 2\n255\n1 2 3 4 5 6 7".getBytes(StandardCharsets.US_ASCII));
+    ImageUtil.ppmToImage("res\\TruncatedIn.ppm");
+  }
+
+  @Test
+  public void testBinaryPPMRoundTrip() throws IOException {
+    IImage image = imageModel1.getRainbow(31, 17,
+        new ArrayList<Color>(Arrays.asList(Color.RED, Color.CYAN, Color.MAGENTA)));
+    Files.deleteIfExists(Paths.get("res\\RainbowBinary.ppm"));
+    ImageUtil.writePPM(image, "res\\RainbowBinary.ppm", PNMFormat.BINARY);
+    byte[] bytes = Files.readAllBytes(Paths.get("res\\RainbowBinary.ppm"));
+    String header = "P6\n" + image.getWidth() + " " + image.getHeight() + "\n255\n";
+    assertEquals(header.length() + image.getWidth() * image.getHeight() * 3, bytes.length);
+    assertTrue(image.equalImages(ImageUtil.ppmToImage("res\\RainbowBinary.ppm")));
+  }
+
+  @Test
+  public void testGreyPGMRoundTrip() throws IOException {
+    IImage grey = new ImageModel(imageModel1.getRainbow(20, 9,
+        new ArrayList<Color>(Arrays.asList(Color.RED, Color.BLUE)))).applyColorProcessing(
+        Arrays.asList(new GreyScaleFilter()), true);
+    for (PNMFormat format : PNMFormat.values()) {
+      Files.deleteIfExists(Paths.get("res\\RainbowGrey" + format + ".pgm"));
+      ImageUtil.writePGM(grey, "res\\RainbowGrey" + format + ".pgm", format);
+      assertTrue(grey.equalImages(ImageUtil.readFile("res\\RainbowGrey" + format + ".pgm")
+          .get(0)));
+    }
+  }
+
+  @Test
+  public void testSixteenBitPPMIsScaled() throws IOException {
+    byte[] header = "P6 1 1 65535\n".getBytes(StandardCharsets.US_ASCII);
+    byte[] bytes = Arrays.copyOf(header, header.length + 6);
+    bytes[header.length] = (byte) 0xFF;
+    bytes[header.length + 1] = (byte) 0xFF;
+    bytes[header.length + 2] = (byte) 0x80;
+    Files.write(Paths.get("res\\SixteenBitIn.ppm"), bytes);
+    assertEquals(0xFF8000, ImageUtil.ppmToImage("res\\SixteenBitIn.ppm").getRGBAt(0, 0));
+  }
+
+  @Test
+  public void testParallelPPMWriteMatchesSerial() throws IOException {
+    List<Color> colors = new ArrayList<>();
+    for (int i = 0; i < 40; i++) {
+      colors.add(new Color((i * 53) % 256, (i * 97) % 256, (i * 151) % 256));
+    }
+    IImage image = imageModel1.getRainbow(700, 8, colors);
+    for (PNMFormat format : PNMFormat.values()) {
+      String serialPath = "res\\ParallelSerial" + format + ".ppm";
+      String parallelPath = "res\\ParallelStripes" + format + ".ppm";
+      RowBands.setParallel(false);
+      ImageUtil.writePPM(image, serialPath, format);
+      ForkJoinPool pool = new ForkJoinPool(4);
+      RowBands.setPool(pool);
+      RowBands.setParallel(true);
+      try {
+        ImageUtil.writePPM(image, parallelPath, format);
+      } finally {
+        RowBands.setPool(ForkJoinPool.commonPool());
+        pool.shutdown();
+      }
+      assertTrue(Arrays.equals(Files.readAllBytes(Paths.get(serialPath)),
+          Files.readAllBytes(Paths.get(parallelPath))));
+    }
+  }
+
+  @Test
+  public void testRasterCopyMatchesGetRGB() {
+    int[] types = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB,
+        BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_BYTE_GRAY,
+        BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_USHORT_565_RGB};
+    for (int type : types) {
+      BufferedImage bi = new BufferedImage(64, 20, type);
+      for (int y = 0; y < 20; y++) {
+        for (int x = 0; x < 64; x++) {
+          bi.setRGB(x, y, 0x80000000 | (x * 4) << 16 | (y * 12) << 8 | ((x * y) & 0xFF));
+        }
+      }
+      for (BufferedImage source : Arrays.asList(bi, bi.getSubimage(3, 2, 50, 15))) {
+        IImage image = ImageRasters.fromBufferedImage(source);
+        for (int y = 0; y < source.getHeight(); y++) {
+          for (int x = 0; x < source.getWidth(); x++) {
+            assertEquals(source.getRGB(x, y) & 0xFFFFFF, image.getRGBAt(x, y));
+          }
+        }
+        assertTrue(image.equalImages(
+            ImageRasters.fromBufferedImage(ImageRasters.toBufferedImage(image))));
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testStreamWrapEdges() {
+    StreamingFilter.filter(new BlurFilter(), EdgeMode.WRAP, 10, 10);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testStreamTooManyRows() {
+    StreamingFilter stream = StreamingFilter.filter(new BlurFilter(), EdgeMode.ZERO, 2, 1);
+    stream.addRow(new int[2]);
+    stream.addRow(new int[2]);
+  }
+
+  @Test
+  public void testRegionFilterMatchesWholeImageInside() {
+    IImage image = PackedImage.of(imageModel1.getRainbow(40, 10,
+        new ArrayList<Color>(Arrays.asList(Color.RED, Color.BLUE, Color.GREEN, Color.PINK))));
+    IKernel kernel = new RepeatedFilter(new BlurFilter(), 3);
+    for (EdgeMode edgeMode : EdgeMode.values()) {
+      IImage whole = new ImageModel(image).applyFilter(kernel, edgeMode);
+      Region region = new Region(-3, 5, 12, 20);
+      IImage part = new ImageModel(image).applyFilter(kernel, edgeMode, region);
+      for (int y = 0; y < 40; y++) {
+        for (int x = 0; x < 40; x++) {
+          IImage expected = region.contains(x, y) ? whole : image;
+          assertEquals(expected.getRGBAt(x, y), part.getRGBAt(x, y));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testMaskedColorProcessing() {
+    boolean[][] mask = new boolean[3][2];
+    mask[0][0] = true;
+    mask[2][1] = true;
+    Region region = new Region(1, 1, mask);
+    IImage part = rainbowModel.applyColorProcessing(
+        Arrays.asList(new SepiaFilter(), new GreyScaleFilter()), true, region);
+    IImage whole = rainbowModel.applyColorProcessing(
+        Arrays.asList(new SepiaFilter(), new GreyScaleFilter()), true);
+    for (int y = 0; y < rainbowImage.getHeight(); y++) {
+      for (int x = 0; x < rainbowImage.getWidth(); x++) {
+        boolean inside = (x == 1 && y == 1) || (x == 3 && y == 2);
+        assertEquals(inside, region.contains(x, y));
+        assertEquals((inside ? whole : rainbowImage).getRGBAt(x, y), part.getRGBAt(x, y));
+      }
+    }
+  }
+
+  @Test
+  public void testRegionOutsideImageLeavesItAlone() {
+    IImage part = rainbowModel.applyFilter(new BlurFilter(), EdgeMode.ZERO,
+        new Region(500, 500, 10, 10));
+    assertTrue(part.equalImages(rainbowImage));
+  }
+
+  @Test
+  public void testRegionToTheEdge() {
+    // a region of Integer.MAX_VALUE pixels runs from its corner to the border of the image
+    Region region = new Region(2, 1, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    IImage whole = rainbowModel.applyFilter(new BlurFilter(), EdgeMode.ZERO);
+    IImage filtered = rainbowModel.applyFilter(new BlurFilter(), EdgeMode.ZERO, region);
+    IImage sepia = rainbowModel.applyColorProcessing(new SepiaFilter());
+    IImage processed = rainbowModel.applyColorProcessing(
+        Collections.singletonList(new SepiaFilter()), true, region);
+    for (int y = 0; y < rainbowImage.getHeight(); y++) {
+      for (int x = 0; x < rainbowImage.getWidth(); x++) {
+        boolean inside = x >= 2 && y >= 1;
+        assertEquals(inside, region.contains(x, y));
+        assertEquals((inside ? whole : rainbowImage).getRGBAt(x, y), filtered.getRGBAt(x, y));
+        assertEquals((inside ? sepia : rainbowImage).getRGBAt(x, y), processed.getRGBAt(x, y));
+      }
+    }
+  }
+
+  @Test
+  public void testRepeatedRegionEdits() {
+    IImage image = rainbowImage;
+    IImage expected = rainbowImage;
+    for (int i = 0; i < 40; i++) {
+      Region region = new Region(i % 5, i % 3, 2, 2);
+      image = new ImageModel(image).applyFilter(new SharpenFilter(), EdgeMode.CLAMP, region);
+      IImage whole = new ImageModel(expected).applyFilter(new SharpenFilter(), EdgeMode.CLAMP);
+      int[] rgb = PackedImage.of(expected).getRGBArray();
+      for (int y = 0; y < expected.getHeight(); y++) {
+        for (int x = 0; x < expected.getWidth(); x++) {
+          if (region.contains(x, y)) {
+            rgb[x + expected.getWidth() * y] = whole.getRGBAt(x, y);
+          }
+        }
+      }
+      expected = new PackedImage(expected.getWidth(), expected.getHeight(), rgb);
+    }
+    assertTrue(expected.equalImages(image));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRegionNull() {
+    rainbowModel.applyFilter(new BlurFilter(), EdgeMode.ZERO, null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRegionEmpty() {
+    new Region(0, 0, 0, 4);
+  }
+
+  /**
+   * makes a patterned image, which compresses differently at different settings.
+   *
+   * @return the image, in a list to save
+   */
+  private static List<IImage> patterned() {
+    BufferedImage bi = new BufferedImage(96, 64, BufferedImage.TYPE_INT_RGB);
+    for (int y = 0; y < 64; y++) {
+      for (int x = 0; x < 96; x++) {
+        bi.setRGB(x, y, (x * 5 + y) << 16 | ((x * y) & 0xFF) << 8 | ((x ^ y) * 3 & 0xFF));
+      }
+    }
+    return new ArrayList<>(Arrays.asList(ImageRasters.fromBufferedImage(bi)));
+  }
+
+  @Test
+  public void testSaveFormatFollowsExtension() throws IOException {
+    ImageUtil.writeFile(patterned(), "res\\PatternSave.png");
+    byte[] png = Files.readAllBytes(Paths.get("res\\PatternSave.png"));
+    assertEquals((byte) 0x89, png[0]);
+    assertEquals("PNG", new String(png, 1, 3, StandardCharsets.US_ASCII));
+    ImageUtil.writeFile(patterned(), "res\\PatternSave.jpg");
+    byte[] jpg = Files.readAllBytes(Paths.get("res\\PatternSave.jpg"));
+    assertEquals((byte) 0xFF, jpg[0]);
+    assertEquals((byte) 0xD8, jpg[1]);
+  }
+
+  @Test
+  public void testJpegQualityChangesSize() throws IOException {
+    ImageUtil.writeFile(patterned(), "res\\PatternLow.jpg",
+        new SaveOptions(PNMFormat.PLAIN, 10, SaveOptions.DEFAULT));
+    ImageUtil.writeFile(patterned(), "res\\PatternHigh.jpg",
+        new SaveOptions(PNMFormat.PLAIN, 95, SaveOptions.DEFAULT));
+    assertTrue(Files.size(Paths.get("res\\PatternLow.jpg"))
+        < Files.size(Paths.get("res\\PatternHigh.jpg")));
+  }
+
+  @Test
+  public void testPngLevelChangesSizeNotPixels() throws IOException {
+    ImageUtil.writeFile(patterned(), "res\\PatternStored.png",
+        new SaveOptions(PNMFormat.PLAIN, SaveOptions.DEFAULT, 0));
+    ImageUtil.writeFile(patterned(), "res\\PatternDeflated.png",
+        new SaveOptions(PNMFormat.PLAIN, SaveOptions.DEFAULT, 9));
+    assertTrue(Files.size(Paths.get("res\\PatternStored.png"))
+        > Files.size(Paths.get("res\\PatternDeflated.png")));
+    assertTrue(ImageUtil.readFile("res\\PatternStored.png").get(0)
+        .equalImages(ImageUtil.readFile("res\\PatternDeflated.png").get(0)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSaveOptionsInvalidQuality() {
+    new SaveOptions(PNMFormat.PLAIN, 101, SaveOptions.DEFAULT);
+  }
+
+  @Test
+  public void testProjectKeepsLayersAndState() {
+    int[] noise = new int[50 * 40];
+    Random random = new Random(7);
+    for (int i = 0; i < noise.length; i++) {
+      noise[i] = random.nextInt(1 << 24);
+    }
+    MultiLayerIModel model = new SimpleMultiLayerModel("background", patterned().get(0));
+    model.addLayer("noise", new PackedImage(50, 40, noise));
+    model.addLayer("rainbow", rainbowImage);
+    model.flipTransparency("noise");
+    model.setCurrent("noise");
+    model.setLazy(true);
+    ImageUtil.saveProject(model, "res\\project.layers");
+
+    MultiLayerIModel opened = ImageUtil.openProject("res\\project.layers",
+        SimpleMultiLayerModel::new);
+    assertEquals(model.getLayerNames(), opened.getLayerNames());
+    assertEquals("noise", opened.getCurName());
+    assertTrue(opened.isLazy());
+    assertTrue(opened.getTransparency("noise"));
+    assertFalse(opened.getTransparency("rainbow"));
+    for (String name : model.getLayerNames()) {
+      IImage image = opened.getLayer(name).getImage();
+      assertFalse(((LazyImage) image).isEvaluated());
+      assertTrue(model.getLayer(name).getImage().equalImages(image));
+    }
+  }
+
+  @Test
+  public void testProjectSavedOverItself() {
+    ImageUtil.writeFile(patterned(), "res\\reopened.layers");
+    MultiLayerIModel opened = ImageUtil.openProject("res\\reopened.layers",
+        SimpleMultiLayerModel::new);
+    assertFalse(((LazyImage) opened.getLayer("layer1").getImage()).isEvaluated());
+    ImageUtil.saveProject(opened, "res\\reopened.layers");
+    List<IImage> images = ImageUtil.readFile("res\\reopened.layers");
+    assertEquals(1, images.size());
+    assertTrue(patterned().get(0).equalImages(images.get(0)));
+    // saving decoded the layer before replacing the file it was opened from
+    assertTrue(patterned().get(0).equalImages(opened.getLayer("layer1").getImage()));
+  }
+
+  @Test
+  public void testProjectLayersReadInStoredOrder() {
+    List<IImage> layers = new ArrayList<>();
+    for (int i = 0; i < 12; i++) {
+      int[] rgb = new int[6 * 4];
+      Arrays.fill(rgb, i * 0x0A0B0C);
+      layers.add(new PackedImage(6, 4, rgb));
+    }
+    ImageUtil.writeFile(layers, "res\\ordered.layers");
+    List<IImage> images = ImageUtil.readFile("res\\ordered.layers");
+    assertEquals(12, images.size());
+    for (int i = 0; i < 12; i++) {
+      assertTrue(layers.get(i).equalImages(images.get(i)));
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testProjectLayerReadAfterFileReplaced() throws IOException {
+    ImageUtil.writeFile(patterned(), "res\\replaced.layers");
+    MultiLayerIModel opened = ImageUtil.openProject("res\\replaced.layers",
+        SimpleMultiLayerModel::new);
+    IImage layer = opened.getLayer("layer1").getImage();
+    // layers are read from the file when first used, so they refuse a file that has been replaced
+    Files.write(Paths.get("res\\replaced.layers"), new byte[16]);
+    layer.getRGBAt(0, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testProjectRefusesHugeLayer() {
+    IImage huge = LazyImage.of(30000, 30000, () -> {
+      throw new IllegalStateException("never decoded");
+    });
+    ImageUtil.writeFile(Collections.singletonList(huge), "res\\huge.layers");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidProjectFile() throws IOException {
+    Files.write(Paths.get("res\\invalid.layers"), "P3 1 1 255 0 0 0".getBytes(
+        StandardCharsets.US_ASCII));
+    ImageUtil.openProject("res\\invalid.layers", SimpleMultiLayerModel::new);
+  }
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import model.IImage;
+import model.Image;
+import model.ImageModel;
+import model.PackedImage;
+import model.Pixel;
+import org.junit.Test;
+
+/**
+ * testing class for model.PackedImage.
+ */
+public class PackedImageTest {
+
+  Pixel black = new Pixel(0, 0, 0);
+  Pixel white = new Pixel(255, 255, 255);
+  Image checkerImage = new Image(2, 2, new ArrayList<>(Arrays.asList(black, white, white, black)));
+  PackedImage checker = new PackedImage(2, 2, new int[]{0x000000, 0xFFFFFF, 0xFFFFFF, 0x000000});
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructorError() {
+    new PackedImage(10, 10, new int[4]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructorNull() {
+    new PackedImage(0, 0, null);
+  }
+
+  @Test
+  public void testPack() {
+    int rgb = PackedImage.pack(12, 300, -4);
+    assertEquals(12, PackedImage.red(rgb));
+    assertEquals(255, PackedImage.green(rgb));
+    assertEquals(0, PackedImage.blue(rgb));
+  }
+
+  @Test
+  public void testPixelAccess() {
+    assertEquals(2, checker.getWidth());
+    assertEquals(2, checker.getHeight());
+    assertEquals(0, checker.getPixelAt(0, 0).getRed());
+    assertEquals(255, checker.getPixelAt(1, 0).getGreen());
+    assertEquals(255, checker.getPixelAt(0, 1).getBlue());
+    assertEquals(0xFFFFFF, checker.getRGBAt(1, 0));
+    assertEquals(2, checker.getPixels().length);
+    assertEquals(255, checker.getPixels()[0][1].getRed());
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testPixelAccessOutOfBounds() {
+    checker.getRGBAt(2, 0);
+  }
+
+  @Test
+  public void testEqualImages() {
+    assertTrue(checker.equalImages(checkerImage));
+    assertTrue(checkerImage.equalImages(checker));
+    assertTrue(checker.equalImages(PackedImage.of(checkerImage)));
+    assertFalse(checker.equalImages(new PackedImage(2, 2, new int[4])));
+    assertFalse(checker.equalImages(new PackedImage(1, 4, checker.getRGBArray())));
+  }
+
+  @Test
+  public void testOf() {
+    assertEquals(checker, PackedImage.of(checker));
+    PackedImage converted = PackedImage.of(checkerImage);
+    assertEquals(0xFFFFFF, converted.getRGBAt(0, 1));
+    assertEquals(0, converted.getRGBAt(1, 1));
+  }
+
+  @Test
+  public void testGetRGBArrayIsCopy() {
+    int[] rgb = checker.getRGBArray();
+    rgb[0] = 0x123456;
+    assertEquals(0, checker.getRGBAt(0, 0));
+  }
+
+  @Test
+  public void testModelProducesSameImages() {
+    IImage board = new ImageModel().getCheckerboard(1, 4, Color.BLACK, Color.WHITE);
+    assertTrue(board.equalImages(checker));
+  }
+}
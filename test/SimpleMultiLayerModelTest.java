@@ -5,10 +5,12 @@ import static org.junit.Assert.assertTrue;
 import java.awt.Color;
 import java.util.ArrayList;
 import java.util.Arrays;
+import model.BlurFilter;
 import model.GreyScaleFilter;
 import model.IImage;
 import model.IModel;
 import model.ImageModel;
+import model.LazyImage;
 import model.MultiLayerIModel;
 import model.SharpenFilter;
 import model.SimpleMultiLayerModel;
@@ -97,6 +99,43 @@ public class SimpleMultiLayerModelTest {
     this.simp.getLayer("hi");
   }
 
+  @Test
+  public void testGettersShareImage() {
+    IImage image = this.simp.getImage();
+    assertTrue(image == this.simp.getImage());
+    assertTrue(image == this.simp.getCurrent().getImage());
+    assertTrue(image == this.simp.getLayer("rainbowBase").getImage());
+    assertTrue(image == this.simp.getLayers().get(0).getImage());
+  }
+
+  @Test
+  public void testDuplicateLayer() {
+    this.simp.flipTransparency("rainbowBase");
+    this.simp.duplicateLayer("rainbowBase", "rainbowCopy");
+    assertEquals(2, this.simp.numLayers());
+    assertEquals("rainbowCopy", this.simp.getCurName());
+    assertTrue(this.simp.getTransparency("rainbowCopy"));
+    assertTrue(this.simp.getLayer("rainbowBase").getImage()
+        == this.simp.getLayer("rainbowCopy").getImage());
+
+    IImage sharpened = this.simp.applyFilter(new SharpenFilter());
+    this.simp.removeLayer("rainbowCopy");
+    this.simp.addLayer("rainbowCopy", sharpened);
+    assertTrue(this.rainbowImage.equalImages(this.simp.getLayer("rainbowBase").getImage()));
+    assertFalse(this.rainbowImage.equalImages(this.simp.getLayer("rainbowCopy").getImage()));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDuplicateLayerNonExistent() {
+    this.simp.duplicateLayer("hi", "copy");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDuplicateLayerExistingName() {
+    this.simp.addLayer("checkerBase", this.checkerImage);
+    this.simp.duplicateLayer("checkerBase", "rainbowBase");
+  }
+
   @Test
   public void testGetCurrent() {
     assertTrue(this.rainbowImage.equalImages(this.simp.getCurrent().getImage()));
@@ -231,4 +270,50 @@ public class SimpleMultiLayerModelTest {
     this.simp.addLayer("checkerBase", this.checkerImage);
     assertTrue(this.checkerImage.equalImages(this.simp.getImage()));
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testLazyFilterComputedOnRead() {
+    IImage eager = this.simp.applyFilter(new BlurFilter());
+    this.simp.setLazy(true);
+    assertTrue(this.simp.isLazy());
+    IImage lazy = this.simp.applyFilter(new BlurFilter());
+    assertTrue(lazy instanceof LazyImage);
+    assertFalse(((LazyImage) lazy).isEvaluated());
+    assertEquals(5, lazy.getWidth());
+    assertFalse(((LazyImage) lazy).isEvaluated());
+    assertTrue(eager.equalImages(lazy));
+    assertTrue(((LazyImage) lazy).isEvaluated());
+  }
+
+  @Test
+  public void testLazyChainSharesCommonOperations() {
+    this.simp.setLazy(true);
+    IImage first = this.simp.applyFilter(new BlurFilter());
+    IImage second = this.simp.applyFilter(new BlurFilter());
+    assertTrue(first == second);
+    assertFalse(first == this.simp.applyFilter(new SharpenFilter()));
+
+    this.simp.addLayer("blurred", first);
+    IImage greyed = this.simp.applyColorProcessing(new GreyScaleFilter());
+    this.simp.addLayer("greyed", greyed);
+    assertFalse(((LazyImage) first).isEvaluated());
+    this.simp.evaluate();
+    assertTrue(((LazyImage) first).isEvaluated());
+    assertTrue(((LazyImage) greyed).isEvaluated());
+
+    IImage expected = new ImageModel(new ImageModel(this.rainbowImage)
+        .applyFilter(new BlurFilter())).applyColorProcessing(new GreyScaleFilter());
+    assertTrue(expected.equalImages(this.simp.getLayer("greyed").getImage()));
+  }
+
+  @Test
+  public void testLazyRemovedLayerNeverComputed() {
+    this.simp.setLazy(true);
+    this.simp.addLayer("blurred", this.simp.applyFilter(new BlurFilter()));
+    LazyImage blurred = (LazyImage) this.simp.getImage();
+    this.simp.removeLayer("blurred");
+    this.simp.setCurrent("rainbowBase");
+    this.simp.evaluate();
+    assertFalse(blurred.isEvaluated());
+  }
+}